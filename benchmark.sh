@@ -0,0 +1,28 @@
+#!/bin/bash
+# Runs the JMH benchmarks of src/benchmark/java and stores the results per commit in benchmark-results.
+#
+# Usage: benchmark.sh [baseline commit] [benchmark regex] [threshold in percent]
+#   If a baseline commit is given, the results are compared with the stored results of this commit.
+
+BASELINE=$1
+INCLUDE=${2:-.*}
+THRESHOLD=${3:-}
+LABEL=`git rev-parse --short HEAD`
+RESULTS=benchmark-results
+
+mkdir -p $RESULTS
+
+mvn -o -Pbenchmark integration-test -DskipTests -Dbenchmark.include="$INCLUDE" -Dbenchmark.label=$LABEL || { echo "Benchmarks failed"; exit 1; }
+cp -f target/$LABEL.json $RESULTS/$LABEL.json
+echo "Results stored in $RESULTS/$LABEL.json"
+
+if [ -n "$BASELINE" ]; then
+    BASELINE=`git rev-parse --short $BASELINE`
+    if [ ! -f $RESULTS/$BASELINE.json ]; then
+        echo "No results for baseline $BASELINE, run benchmark.sh on this commit first"
+        exit 1
+    fi
+    mvn -o -q -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+        -Dexec.mainClass=hudson.plugins.analysis.benchmark.BenchmarkComparison \
+        -Dexec.args="$RESULTS/$BASELINE.json $RESULTS/$LABEL.json $THRESHOLD"
+fi
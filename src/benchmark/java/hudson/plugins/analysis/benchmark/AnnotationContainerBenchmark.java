@@ -0,0 +1,88 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.JavaProject;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Benchmarks the creation of the mappings of an {@link AnnotationContainer}.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnnotationContainerBenchmark {
+    /** Number of warnings. */
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private List<FileAnnotation> warnings;
+    private Project project;
+
+    /**
+     * Creates the warnings and a project that contains these warnings.
+     */
+    @Setup
+    public void createWarnings() {
+        warnings = new WorkloadGenerator(1).withWarnings(size).createWarnings();
+        project = new Project();
+        project.addAnnotations(warnings);
+    }
+
+    /**
+     * Adds all warnings to a new project.
+     *
+     * @return the project
+     */
+    @Benchmark
+    public JavaProject addAnnotations() {
+        JavaProject container = new JavaProject();
+        container.addAnnotations(warnings);
+        return container;
+    }
+
+    /**
+     * Rebuilds the mappings of a project.
+     *
+     * @return the project
+     */
+    @Benchmark
+    public JavaProject rebuildMappings() {
+        project.rebuild();
+        return project;
+    }
+
+    /**
+     * Project that provides access to the rebuild of the mappings.
+     */
+    private static class Project extends JavaProject {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Rebuilds the mappings.
+         */
+        void rebuild() {
+            rebuildMappings();
+        }
+    }
+}
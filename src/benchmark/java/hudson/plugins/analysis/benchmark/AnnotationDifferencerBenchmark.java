@@ -0,0 +1,77 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Sets;
+
+import hudson.plugins.analysis.core.AnnotationDifferencer;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Benchmarks the computation of new and fixed warnings by the
+ * {@link AnnotationDifferencer}.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnnotationDifferencerBenchmark {
+    /** Number of warnings in each build. */
+    @Param({"1000", "10000", "100000"})
+    private int size;
+    /** Percentage of warnings that differ between the builds. */
+    @Param({"1", "20"})
+    private int changes;
+
+    private Set<FileAnnotation> previous;
+    private Set<FileAnnotation> current;
+
+    /**
+     * Creates the warnings of two consecutive builds.
+     */
+    @Setup
+    public void createWarnings() {
+        List<List<FileAnnotation>> history = new WorkloadGenerator(1).withWarnings(size).withChurn(changes).createHistory(2);
+        previous = Sets.newHashSet(history.get(0));
+        current = Sets.newHashSet(history.get(1));
+    }
+
+    /**
+     * Computes the new warnings.
+     *
+     * @return the new warnings
+     */
+    @Benchmark
+    public Set<FileAnnotation> newWarnings() {
+        return AnnotationDifferencer.getNewAnnotations(current, previous);
+    }
+
+    /**
+     * Computes the fixed warnings.
+     *
+     * @return the fixed warnings
+     */
+    @Benchmark
+    public Set<FileAnnotation> fixedWarnings() {
+        return AnnotationDifferencer.getFixedAnnotations(current, previous);
+    }
+}
@@ -0,0 +1,114 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Compares two JSON result files of the JMH benchmarks, e.g. the results of
+ * two commits. For each benchmark that is part of both runs the scores and the
+ * relative change are printed. If a threshold is given, then the program
+ * exits with status 1 if any benchmark is slower by more than the threshold.
+ * <p>
+ * Usage: <code>BenchmarkComparison baseline.json current.json [threshold in percent]</code>
+ *
+ * @author Ulli Hafner
+ */
+public final class BenchmarkComparison {
+    /**
+     * Compares the results of two runs.
+     *
+     * @param args
+     *            the baseline file, the current file and an optional
+     *            threshold in percent
+     * @throws IOException
+     *             if the files could not be read
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison baseline.json current.json [threshold]"); // NOPMD
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : Double.MAX_VALUE;
+
+        boolean hasRegression = false;
+        System.out.println(String.format("%-90s %14s %14s %8s", "Benchmark", "Baseline", "Current", "Change")); // NOPMD
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.println(String.format("%-90s %14s %14.3f %8s", entry.getKey(), "-", after.value, "new")); // NOPMD
+            }
+            else {
+                double change = (after.value - before.value) * 100 / before.value;
+                if (after.isLowerBetter) {
+                    hasRegression |= change > threshold;
+                }
+                else {
+                    hasRegression |= -change > threshold;
+                }
+                System.out.println(String.format("%-90s %14.3f %14.3f %+7.1f%% %s", entry.getKey(), // NOPMD
+                        before.value, after.value, change, after.unit));
+            }
+        }
+        if (hasRegression) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the primary scores of a JMH result file.
+     *
+     * @param file
+     *            the file to read
+     * @return the scores mapped by benchmark name and parameters
+     * @throws IOException
+     *             if the file could not be read
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Score> read(final File file) throws IOException {
+        Map<String, Score> scores = Maps.newTreeMap();
+        JSONArray results = JSONArray.fromObject(FileUtils.readFileToString(file, "UTF-8"));
+        for (int i = 0; i < results.size(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            StringBuilder name = new StringBuilder(result.getString("benchmark"));
+            JSONObject params = result.optJSONObject("params");
+            if (params != null && !params.isNullObject()) {
+                name.append(new TreeMap<Object, Object>(params));
+            }
+            JSONObject metric = result.getJSONObject("primaryMetric");
+            scores.put(name.toString(), new Score(metric.getDouble("score"), metric.getString("scoreUnit"),
+                    !"thrpt".equals(result.getString("mode"))));
+        }
+        return scores;
+    }
+
+    /**
+     * The primary score of a benchmark.
+     */
+    private static class Score {
+        private final double value;
+        private final String unit;
+        private final boolean isLowerBetter;
+
+        Score(final double value, final String unit, final boolean isLowerBetter) {
+            this.value = value;
+            this.unit = unit;
+            this.isLowerBetter = isLowerBetter;
+        }
+    }
+
+    private BenchmarkComparison() {
+        // prevents instantiation
+    }
+}
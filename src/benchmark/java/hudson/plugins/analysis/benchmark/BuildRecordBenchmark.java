@@ -0,0 +1,122 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+
+import hudson.plugins.analysis.core.BuildHistory;
+import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.core.ResultAction;
+
+import hudson.util.XStream2;
+
+/**
+ * Benchmarks the deserialization of the build results of a job, i.e. the
+ * part of loading the build records at startup that is spent in the analysis
+ * plug-ins (including {@link BuildResult#readResolve()}).
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BuildRecordBenchmark {
+    private static final String ALIAS = "result";
+
+    /** Number of build records. */
+    @Param({"1000", "10000"})
+    private int records;
+
+    private final XStream2 xstream = new XStream2();
+    private String xml;
+
+    /**
+     * Creates the XML of the build records.
+     */
+    @Setup
+    public void createRecords() {
+        xstream.alias(ALIAS, RecordResult.class);
+        String pluginResult = xstream.toXML(Result.SUCCESS);
+        pluginResult = StringUtils.substringBeforeLast(StringUtils.substringAfter(pluginResult, ">"), "</");
+
+        StringBuilder builder = new StringBuilder("<list>");
+        for (int record = 0; record < records; record++) {
+            builder.append('<').append(ALIAS).append('>');
+            builder.append("<pluginResult>").append(pluginResult).append("</pluginResult>");
+            builder.append("<modules><string>module-1</string><string>module-2</string></modules>");
+            builder.append("<numberOfModules>2</numberOfModules>");
+            builder.append("<errors/>");
+            builder.append("<numberOfWarnings>").append(record).append("</numberOfWarnings>");
+            builder.append("<highWarnings>").append(record / 2).append("</highWarnings>");
+            builder.append("</").append(ALIAS).append('>');
+        }
+        xml = builder.append("</list>").toString();
+    }
+
+    /**
+     * Deserializes the build records.
+     *
+     * @return the number of warnings of all records
+     */
+    @Benchmark
+    public int load() {
+        int warnings = 0;
+        for (Object result : (List<?>)xstream.fromXML(xml)) {
+            warnings += ((BuildResult)result).getNumberOfAnnotations();
+        }
+        return warnings;
+    }
+
+    /**
+     * A build result that is only deserialized.
+     */
+    @SuppressWarnings("serial")
+    public static class RecordResult extends BuildResult {
+        /**
+         * Creates a new instance of {@link RecordResult}. Not used, the
+         * instances are created by XStream.
+         */
+        public RecordResult() {
+            super((AbstractBuild<?, ?>)null, (BuildHistory)null, (ParserResult)null, (String)null);
+        }
+
+        @Override
+        protected String getSerializationFileName() {
+            return "record.xml";
+        }
+
+        @Override
+        protected Class<? extends ResultAction<? extends BuildResult>> getResultActionType() {
+            return null;
+        }
+
+        @Override
+        public String getSummary() {
+            return StringUtils.EMPTY;
+        }
+
+        /** {@inheritDoc} */
+        public String getDisplayName() {
+            return "Records";
+        }
+    }
+}
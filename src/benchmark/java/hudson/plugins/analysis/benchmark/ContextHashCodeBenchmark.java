@@ -0,0 +1,95 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+import hudson.plugins.analysis.util.ContextHashCode;
+
+/**
+ * Benchmarks the creation of context hash codes with {@link ContextHashCode}:
+ * reading the source file for each warning versus using the lines of a file
+ * that has been read once.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContextHashCodeBenchmark {
+    /** Number of lines of the source file. */
+    @Param({"100", "1000", "10000"})
+    private int lines;
+
+    private File file;
+    private List<String> content;
+    private final ContextHashCode contextHashCode = new ContextHashCode();
+
+    /**
+     * Creates the source file.
+     *
+     * @throws IOException
+     *             if the file could not be created
+     */
+    @Setup
+    public void createFile() throws IOException {
+        content = Lists.newArrayList();
+        for (int line = 0; line < lines; line++) {
+            content.add("        int value" + line + " = compute(" + line + ", parameter); // comment");
+        }
+        file = File.createTempFile("benchmark", ".java");
+        FileUtils.writeLines(file, content);
+    }
+
+    /**
+     * Deletes the source file.
+     */
+    @TearDown
+    public void deleteFile() {
+        FileUtils.deleteQuietly(file);
+    }
+
+    /**
+     * Creates the hash code of a warning in the middle of the file by reading
+     * the file.
+     *
+     * @return the hash code
+     * @throws IOException
+     *             if the file could not be read
+     */
+    @Benchmark
+    public int fromFile() throws IOException {
+        return contextHashCode.create(file.getAbsolutePath(), lines / 2, null);
+    }
+
+    /**
+     * Creates the hash code of a warning in the middle of the file from the
+     * lines of the file.
+     *
+     * @return the hash code
+     */
+    @Benchmark
+    public int fromLines() {
+        return contextHashCode.create(content, lines / 2);
+    }
+}
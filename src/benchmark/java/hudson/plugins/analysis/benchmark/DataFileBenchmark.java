@@ -0,0 +1,102 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.XmlFile;
+
+import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Benchmarks writing and reading the data file of a build result with the
+ * {@link AnnotationStream}.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataFileBenchmark {
+    /** Number of warnings in the data file. */
+    @Param({"1000", "10000"})
+    private int size;
+
+    private File folder;
+    private FileAnnotation[] warnings;
+    private XmlFile dataFile;
+
+    /**
+     * Creates the warnings and writes the data file that will be read.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Setup
+    public void createDataFile() throws IOException {
+        List<FileAnnotation> annotations = new WorkloadGenerator(1).withWarnings(size).createWarnings();
+        warnings = annotations.toArray(new FileAnnotation[annotations.size()]);
+
+        folder = File.createTempFile("build", "");
+        FileUtils.deleteQuietly(folder);
+        if (!folder.mkdirs()) {
+            throw new IOException("Can't create " + folder);
+        }
+        dataFile = new XmlFile(new AnnotationStream(), new File(folder, "warnings.xml"));
+        dataFile.write(warnings);
+    }
+
+    /**
+     * Deletes the data file.
+     */
+    @TearDown
+    public void deleteDataFile() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    /**
+     * Writes the warnings to a data file.
+     *
+     * @return the data file
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Benchmark
+    public XmlFile store() throws IOException {
+        XmlFile file = new XmlFile(new AnnotationStream(), new File(folder, "store.xml"));
+        file.write(warnings);
+        return file;
+    }
+
+    /**
+     * Reads the warnings from the data file.
+     *
+     * @return the warnings
+     * @throws IOException
+     *             if the file could not be read
+     */
+    @Benchmark
+    public Object load() throws IOException {
+        return dataFile.read();
+    }
+}
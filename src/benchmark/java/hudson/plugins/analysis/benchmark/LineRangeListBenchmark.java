@@ -0,0 +1,92 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hudson.plugins.analysis.util.model.LineRange;
+import hudson.plugins.analysis.util.model.LineRangeList;
+
+/**
+ * Benchmarks the compact storage of line ranges in a {@link LineRangeList}.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LineRangeListBenchmark {
+    /** Number of line ranges. */
+    @Param({"1", "10", "100"})
+    private int size;
+
+    private LineRange[] ranges;
+    private LineRangeList list;
+
+    /**
+     * Creates the line ranges.
+     */
+    @Setup
+    public void createRanges() {
+        Random random = new Random(1);
+        ranges = new LineRange[size];
+        for (int i = 0; i < size; i++) {
+            int start = random.nextInt(100000);
+            ranges[i] = new LineRange(start, start + random.nextInt(10));
+        }
+        list = add();
+    }
+
+    /**
+     * Adds all line ranges to a new list.
+     *
+     * @return the list
+     */
+    @Benchmark
+    public LineRangeList add() {
+        LineRangeList result = new LineRangeList();
+        for (LineRange range : ranges) {
+            result.add(range);
+        }
+        result.trim();
+        return result;
+    }
+
+    /**
+     * Iterates over all elements of the list.
+     *
+     * @param blackhole
+     *            consumes the elements
+     */
+    @Benchmark
+    public void iterate(final Blackhole blackhole) {
+        for (LineRange range : list) {
+            blackhole.consume(range);
+        }
+    }
+
+    /**
+     * Checks whether the list contains the last element.
+     *
+     * @return <code>true</code>
+     */
+    @Benchmark
+    public boolean contains() {
+        return list.contains(ranges[size - 1]);
+    }
+}
@@ -0,0 +1,93 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+
+import hudson.plugins.analysis.util.ModuleDetector;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Benchmarks the guessing of module names by the {@link ModuleDetector} in a
+ * workspace with Maven, Ant and OSGi modules.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModuleDetectorBenchmark {
+    /** Number of files to guess the module name for. */
+    private static final int FILES = 1000;
+
+    /** Number of modules in the workspace. */
+    @Param({"10", "100"})
+    private int modules;
+
+    private File workspace;
+    private ModuleDetector detector;
+    private final List<String> fileNames = Lists.newArrayList();
+
+    /**
+     * Creates the workspace with the descriptors of the modules.
+     *
+     * @throws IOException
+     *             if the workspace could not be created
+     */
+    @Setup
+    public void createWorkspace() throws IOException {
+        workspace = File.createTempFile("workspace", "");
+        FileUtils.deleteQuietly(workspace);
+
+        WorkloadGenerator generator = new WorkloadGenerator(1).withWorkspace(workspace)
+                .withModules(modules).withFilesPerModule(1).withLinesPerFile(10).withWarnings(FILES);
+        generator.createWorkspace();
+        detector = new ModuleDetector(workspace);
+        for (FileAnnotation warning : generator.createWarnings()) {
+            fileNames.add(warning.getFileName());
+        }
+    }
+
+    /**
+     * Deletes the workspace.
+     */
+    @TearDown
+    public void deleteWorkspace() {
+        FileUtils.deleteQuietly(workspace);
+    }
+
+    /**
+     * Guesses the module names of all files.
+     *
+     * @param blackhole
+     *            consumes the module names
+     */
+    @Benchmark
+    public void guessModuleName(final Blackhole blackhole) {
+        for (String fileName : fileNames) {
+            blackhole.consume(detector.guessModuleName(fileName));
+        }
+    }
+}
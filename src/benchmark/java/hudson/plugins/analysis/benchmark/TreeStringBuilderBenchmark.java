@@ -0,0 +1,96 @@
+package hudson.plugins.analysis.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+import hudson.plugins.analysis.util.LinearScanTreeStringBuilder;
+import hudson.plugins.analysis.util.TreeStringBuilder;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Benchmarks the interning of file names and messages with a
+ * {@link TreeStringBuilder}. The former implementation that scans all edges
+ * of a node, see {@link LinearScanTreeStringBuilder}, serves as baseline.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreeStringBuilderBenchmark {
+    /** Number of strings to intern. */
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    private List<String> strings;
+
+    /**
+     * Creates the file names and messages of the warnings.
+     */
+    @Setup
+    public void createStrings() {
+        strings = Lists.newArrayList();
+        for (FileAnnotation warning : new WorkloadGenerator(1).withWarnings(size / 2).createWarnings()) {
+            strings.add(warning.getFileName());
+            strings.add(warning.getMessage());
+        }
+    }
+
+    /**
+     * Interns all strings in a new builder.
+     *
+     * @return the builder
+     */
+    @Benchmark
+    public TreeStringBuilder intern() {
+        TreeStringBuilder builder = new TreeStringBuilder();
+        for (String value : strings) {
+            builder.intern(value);
+        }
+        return builder;
+    }
+
+    /**
+     * Interns all strings in a new builder and removes the duplicates.
+     *
+     * @return the builder
+     */
+    @Benchmark
+    public TreeStringBuilder internAndDedup() {
+        TreeStringBuilder builder = intern();
+        builder.dedup();
+        return builder;
+    }
+
+    /**
+     * Interns all strings in a new builder of the former implementation.
+     *
+     * @return the builder
+     */
+    @Benchmark
+    public LinearScanTreeStringBuilder internLinearScan() {
+        LinearScanTreeStringBuilder builder = new LinearScanTreeStringBuilder();
+        for (String value : strings) {
+            builder.intern(value);
+        }
+        return builder;
+    }
+}
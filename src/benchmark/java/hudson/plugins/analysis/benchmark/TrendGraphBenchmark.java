@@ -0,0 +1,91 @@
+package hudson.plugins.analysis.benchmark;
+
+import static org.mockito.Mockito.*;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import org.jfree.chart.JFreeChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.model.AbstractBuild;
+
+import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.graph.CategoryBuildResultGraph;
+import hudson.plugins.analysis.graph.GraphConfiguration;
+import hudson.plugins.analysis.graph.PriorityGraph;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Benchmarks the creation of the data set and chart of a
+ * {@link CategoryBuildResultGraph} for a history of builds.
+ *
+ * @author Ulli Hafner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrendGraphBenchmark {
+    /** Number of builds in the history. */
+    @Param({"10", "100", "500"})
+    private int builds;
+
+    private ResultAction<BuildResult> action;
+    private GraphConfiguration configuration;
+    private final CategoryBuildResultGraph graph = new PriorityGraph();
+
+    /**
+     * Creates the history of builds.
+     */
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void createHistory() {
+        BuildResult previous = null;
+        for (int build = 0; build < builds; build++) {
+            BuildResult result = mock(BuildResult.class);
+            AbstractBuild<?, ?> owner = mock(AbstractBuild.class);
+            Calendar timestamp = new GregorianCalendar();
+            timestamp.add(Calendar.HOUR, (build - builds) * 6);
+            when(owner.getTimestamp()).thenReturn(timestamp);
+            doReturn(owner).when(result).getOwner();
+            for (Priority priority : Priority.values()) {
+                when(result.getNumberOfAnnotations(priority)).thenReturn(build * (priority.ordinal() + 1));
+            }
+            if (previous != null) {
+                when(result.hasPreviousResult()).thenReturn(true);
+                when(result.getPreviousResult()).thenReturn(previous);
+            }
+            previous = result;
+        }
+        action = mock(ResultAction.class);
+        when(action.getResult()).thenReturn(previous);
+
+        configuration = new GraphConfiguration(graph);
+        configuration.initializeFrom(500, 200);
+    }
+
+    /**
+     * Creates the trend graph.
+     *
+     * @return the chart
+     */
+    @Benchmark
+    public JFreeChart create() {
+        return graph.create(configuration, action, "benchmark");
+    }
+}
@@ -193,6 +193,7 @@ public abstract class AbstractProjectAction<T extends ResultAction<?>> implement
      * @return the trend graph
      */
     public Graph getTrendGraph(final StaplerRequest request, final StaplerResponse response) {
+        ResultWarmer.getInstance().recordView(getProject());
         GraphConfigurationView configuration = createUserConfiguration(request);
         if (configuration.hasMeaningfulGraph()) {
             return configuration.getGraphRenderer(getUrlName());
@@ -359,6 +360,29 @@ public abstract class AbstractProjectAction<T extends ResultAction<?>> implement
         return getLastAction() != null;
     }
 
+    /**
+     * Loads the annotations, the new and the fixed warnings of the last valid
+     * result and the results that are shown in the default trend graph, so
+     * that the next request of the project page does not need to read them.
+     *
+     * @see ResultWarmer
+     */
+    public void warmUp() {
+        ResultAction<?> action = getLastAction();
+        if (action == null) {
+            return;
+        }
+        BuildResult result = action.getResult();
+        result.getProject();
+        result.getNewWarnings();
+        result.getFixedWarnings();
+
+        GraphConfigurationView configuration = createDefaultConfiguration();
+        if (configuration.hasMeaningfulGraph()) {
+            configuration.loadResults(getUrlName());
+        }
+    }
+
     /**
      * Returns the last valid result action.
      *
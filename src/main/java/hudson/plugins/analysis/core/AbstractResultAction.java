@@ -84,7 +84,9 @@ public abstract class AbstractResultAction<T extends BuildResult> implements Sta
 
     /** {@inheritDoc} */
     public final HealthReport getBuildHealth() {
-        return new HealthReportBuilder(getHealthDescriptor()).computeHealth(getResult());
+        BuildResult result = getResult();
+
+        return new HealthReportBuilder(getHealthDescriptor()).computeHealth(result.getHistogram(), result);
     }
 
     /** {@inheritDoc} */
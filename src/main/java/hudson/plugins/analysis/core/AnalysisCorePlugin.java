@@ -2,6 +2,8 @@ package hudson.plugins.analysis.core;
 
 import hudson.Plugin;
 
+import hudson.plugins.analysis.util.AnalysisMetrics;
+
 /**
  * Provides unique keys for jelly scripts which can be accessed globally with
  * <code>${app.getPlugin('analysis-core')}</code>.
@@ -27,4 +29,34 @@ public class AnalysisCorePlugin extends Plugin {
         }
         return counter++;
     }
+
+    /**
+     * Registers the {@link AnalysisMetrics} in the platform MBean server.
+     *
+     * @throws Exception
+     *             if the plug-in could not be started
+     */
+    @Override
+    public void start() throws Exception {
+        super.start();
+
+        AnalysisMetrics.getInstance().register();
+    }
+
+    /**
+     * Writes all results that are still queued in the {@link PersistenceQueue},
+     * remembers the recently viewed jobs of the {@link ResultWarmer} and
+     * removes the {@link AnalysisMetrics} from the MBean server.
+     *
+     * @throws Exception
+     *             if the results could not be written
+     */
+    @Override
+    public void stop() throws Exception {
+        PersistenceQueue.getInstance().shutdown();
+        ResultWarmer.getInstance().shutdown();
+        AnalysisMetrics.getInstance().unregister();
+
+        super.stop();
+    }
 }
@@ -0,0 +1,348 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+import hudson.FilePath.FileCallable;
+
+import hudson.plugins.analysis.util.ContextHashCode;
+import hudson.plugins.analysis.util.PackageDetectors;
+import hudson.plugins.analysis.util.PhaseTimings;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.WorkspaceFile;
+
+import hudson.remoting.RemoteOutputStream;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Runs all steps of the analysis on the node of the workspace using a single
+ * remote call. The files are parsed with a {@link FilesParser} (this step
+ * also resolves relative paths and detects the modules). Afterwards, each
+ * source file that contains warnings is read only once in order to create the
+ * context hash codes of the warnings (see {@link AnnotationsClassifier}),
+ * to detect missing package names and to add the file to the source archive.
+ * Finally, the strings of the annotations are interned. The time spent in
+ * each stage is recorded in the {@link ParserResult#getTimings() timings} of
+ * the result.
+ * <p>
+ * If a build folder has been specified then the source files are streamed as
+ * a single archive to the master. The archive is created with the first
+ * source file, i.e. no archive is created if the pipeline is not invoked or if
+ * no source file could be read. Call {@link #extractSources()} after the
+ * pipeline has been invoked to copy the files into the build folder. Files
+ * that already have been extracted will not be copied again by
+ * {@link HealthAwareRecorder#copyFilesWithAnnotationsToBuildFolder}. Use
+ * {@link HealthAwareRecorder#analyze(hudson.model.AbstractBuild, FilesParser)}
+ * to run the pipeline in a publisher.
+ *
+ * @author Ulli Hafner
+ */
+public class AnalysisPipeline implements FileCallable<ParserResult> {
+    private static final long serialVersionUID = -2236425618924460245L;
+    /** Name of the source archive in the build folder. */
+    private static final String ARCHIVE_NAME = "workspace-files.zip";
+
+    /** The parser of the first stage. */
+    private final FilesParser parser;
+    /** The default encoding to be used when reading and parsing files. */
+    private final String defaultEncoding;
+    /** The archive on the master to write the source files to, might be <code>null</code>. */
+    private final RemoteOutputStream sourceArchive;
+    /** The archive file on the master. */
+    private final transient File archive;
+
+    /**
+     * Creates a new instance of {@link AnalysisPipeline} that does not copy
+     * the source files.
+     *
+     * @param parser
+     *            the parser to use
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     */
+    public AnalysisPipeline(final FilesParser parser, final String defaultEncoding) {
+        this.parser = parser;
+        this.defaultEncoding = defaultEncoding;
+        sourceArchive = null;
+        archive = null;
+    }
+
+    /**
+     * Creates a new instance of {@link AnalysisPipeline} that copies the source
+     * files with warnings to the specified build folder.
+     *
+     * @param parser
+     *            the parser to use
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param rootDir
+     *            the root folder of the build on the master
+     */
+    public AnalysisPipeline(final FilesParser parser, final String defaultEncoding, final File rootDir) {
+        this.parser = parser;
+        this.defaultEncoding = defaultEncoding;
+        archive = new File(rootDir, ARCHIVE_NAME);
+        sourceArchive = new RemoteOutputStream(new LazyFileOutputStream(archive));
+    }
+
+    /** {@inheritDoc} */
+    public ParserResult invoke(final File workspace, final VirtualChannel channel) throws IOException {
+        ZipOutputStream zip = null;
+        try {
+            ParserResult result = parser.invoke(workspace, channel);
+            PhaseTimings timings = result.getTimings();
+
+            Collection<FileAnnotation> annotations = result.getAnnotations();
+            Multimap<String, FileAnnotation> annotationsByFile = ArrayListMultimap.create();
+            for (FileAnnotation annotation : annotations) {
+                annotationsByFile.put(annotation.getFileName(), annotation);
+            }
+
+            int entries = 0;
+            for (String fileName : annotationsByFile.keySet()) {
+                long start = System.currentTimeMillis();
+                byte[] content = read(fileName);
+                timings.addSince("Reading sources", start);
+                if (content != null) {
+                    Collection<FileAnnotation> annotationsOfFile = annotationsByFile.get(fileName);
+
+                    start = System.currentTimeMillis();
+                    classify(content, annotationsOfFile);
+                    timings.addSince("Context hashing", start);
+
+                    start = System.currentTimeMillis();
+                    detectPackageNames(fileName, content, annotationsOfFile);
+                    timings.addSince("Package detection", start);
+
+                    if (sourceArchive != null) {
+                        start = System.currentTimeMillis();
+                        if (zip == null) {
+                            zip = new ZipOutputStream(new BufferedOutputStream(sourceArchive));
+                        }
+                        zip.putNextEntry(new ZipEntry(createEntryName(entries++, fileName)));
+                        zip.write(content);
+                        zip.closeEntry();
+                        timings.addSince("Packaging sources", start);
+                    }
+                }
+            }
+
+            long start = System.currentTimeMillis();
+            AbstractAnnotation.intern(annotations);
+            timings.addSince("Interning", start);
+
+            return result;
+        }
+        finally {
+            if (zip != null) {
+                zip.close();
+            }
+            else if (sourceArchive != null) {
+                sourceArchive.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the name of an entry of the source archive. The temporary names
+     * of two files might be equal, so the entries are numbered. The file
+     * name of an entry is the temporary name of the source file.
+     *
+     * @param index
+     *            the index of the entry
+     * @param fileName
+     *            the absolute file name
+     * @return the name of the entry
+     */
+    private String createEntryName(final int index, final String fileName) {
+        return index + "/" + new WorkspaceFile(fileName).getTempName();
+    }
+
+    /**
+     * Reads the content of the specified file.
+     *
+     * @param fileName
+     *            the absolute file name
+     * @return the content or <code>null</code> if the file could not be read
+     */
+    private byte[] read(final String fileName) {
+        try {
+            File file = new File(fileName);
+            if (file.canRead()) {
+                return FileUtils.readFileToByteArray(file);
+            }
+        }
+        catch (IOException exception) {
+            // ignore and skip this file
+        }
+        return null;
+    }
+
+    /**
+     * Creates the context hash codes of the annotations of a file.
+     *
+     * @param content
+     *            the content of the file
+     * @param annotations
+     *            the annotations of the file
+     */
+    private void classify(final byte[] content, final Collection<FileAnnotation> annotations) {
+        try {
+            @SuppressWarnings("unchecked")
+            List<String> lines = IOUtils.readLines(new ByteArrayInputStream(content), getEncoding());
+
+            ContextHashCode contextHashCode = new ContextHashCode();
+            for (FileAnnotation annotation : annotations) {
+                annotation.setContextHashCode(contextHashCode.create(lines, annotation.getPrimaryLineNumber()));
+            }
+        }
+        catch (IOException exception) {
+            // ignore and continue
+        }
+    }
+
+    private String getEncoding() {
+        if (StringUtils.isNotBlank(defaultEncoding)) {
+            return defaultEncoding;
+        }
+        return null;
+    }
+
+    /**
+     * Sets the package name of all annotations of a file that have no package
+     * name yet.
+     *
+     * @param fileName
+     *            the name of the file
+     * @param content
+     *            the content of the file
+     * @param annotations
+     *            the annotations of the file
+     */
+    private void detectPackageNames(final String fileName, final byte[] content, final Collection<FileAnnotation> annotations) {
+        String packageName = null;
+        for (FileAnnotation annotation : annotations) {
+            if (annotation instanceof AbstractAnnotation && !annotation.hasPackageName()) {
+                if (packageName == null) {
+                    packageName = PackageDetectors.detectPackageName(fileName, new ByteArrayInputStream(content));
+                }
+                ((AbstractAnnotation)annotation).setPackageName(packageName);
+            }
+        }
+    }
+
+    /**
+     * Extracts the source files that have been sent by this pipeline into the
+     * build folder. Afterwards, the archive is deleted.
+     *
+     * @throws IOException
+     *             if the files could not be extracted
+     */
+    public void extractSources() throws IOException {
+        if (archive == null || !archive.exists()) {
+            return;
+        }
+        File directory = new File(archive.getParentFile(), AbstractAnnotation.WORKSPACE_FILES);
+        if (!directory.exists() && !directory.mkdir()) {
+            throw new IOException("Can't create directory for workspace files that contain annotations: "
+                    + directory.getAbsolutePath());
+        }
+        ZipInputStream input = new ZipInputStream(new BufferedInputStream(new FileInputStream(archive)));
+        try {
+            ZipEntry entry = input.getNextEntry();
+            while (entry != null) {
+                File target = new File(directory, FilenameUtils.getName(entry.getName()));
+                if (!target.exists()) {
+                    OutputStream output = new FileOutputStream(target);
+                    try {
+                        IOUtils.copy(input, output);
+                    }
+                    finally {
+                        output.close();
+                    }
+                }
+                entry = input.getNextEntry();
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+            discardSources();
+        }
+    }
+
+    /**
+     * Deletes the source archive without extracting the files, e.g. if the
+     * pipeline failed.
+     */
+    public void discardSources() {
+        if (archive != null && archive.exists() && !archive.delete()) {
+            archive.deleteOnExit();
+        }
+    }
+
+    /**
+     * Output stream on the master that creates its file with the first byte
+     * written.
+     */
+    private static final class LazyFileOutputStream extends OutputStream {
+        private final File file;
+        private OutputStream output;
+
+        LazyFileOutputStream(final File file) {
+            super();
+
+            this.file = file;
+        }
+
+        private OutputStream open() throws IOException {
+            if (output == null) {
+                output = new FileOutputStream(file);
+            }
+            return output;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            open().write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            open().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (output != null) {
+                output.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (output != null) {
+                output.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package hudson.plugins.analysis.core;
+
+import hudson.Extension;
+
+import hudson.model.ManagementLink;
+
+import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.util.AnalysisMetrics;
+
+/**
+ * Shows the status of the background services of the static analysis
+ * plug-ins on the "Manage Hudson" page.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class AnalysisStatusPage extends ManagementLink {
+    /** {@inheritDoc} */
+    @Override
+    public String getIconFileName() {
+        return "/plugin/analysis-core/icons/TOTALS.png";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getUrlName() {
+        return "analysis-status";
+    }
+
+    /** {@inheritDoc} */
+    public String getDisplayName() {
+        return Messages.AnalysisStatus_DisplayName();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getDescription() {
+        return Messages.AnalysisStatus_Description();
+    }
+
+    /**
+     * Returns the queue that writes the results in the background.
+     *
+     * @return the persistence queue
+     */
+    public PersistenceQueue getPersistenceQueue() {
+        return PersistenceQueue.getInstance();
+    }
+
+    /**
+     * Returns the metrics of the cached results, load and render times.
+     *
+     * @return the metrics
+     */
+    public AnalysisMetrics getMetrics() {
+        return AnalysisMetrics.getInstance();
+    }
+}
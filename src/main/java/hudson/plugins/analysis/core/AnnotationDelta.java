@@ -0,0 +1,208 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Sets;
+import com.thoughtworks.xstream.XStream;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * The difference between the annotations of a build and the annotations of a
+ * base build. Applying the delta to the annotations of the base build
+ * reconstructs the annotations of the build. Annotations that are contained
+ * in both builds are taken from the base build. Besides the properties that
+ * are compared by {@link FileAnnotation#equals(Object)} these annotations
+ * need to have the same context hash code, origin and path name. Otherwise
+ * the annotation is part of the removed and the added annotations.
+ *
+ * @author Ulli Hafner
+ */
+public class AnnotationDelta implements Serializable {
+    private static final long serialVersionUID = -2468253546186393735L;
+    private static final FileAnnotation[] EMPTY = new FileAnnotation[0];
+
+    /**
+     * Computes the difference between the specified annotations.
+     *
+     * @param base
+     *            the annotations of the base build
+     * @param current
+     *            the annotations of the current build
+     * @return the difference
+     */
+    public static AnnotationDelta create(final Collection<FileAnnotation> base, final Collection<FileAnnotation> current) {
+        Set<Identity> baseAnnotations = Identity.of(base);
+        Set<Identity> currentAnnotations = Identity.of(current);
+
+        Set<FileAnnotation> added = Sets.newLinkedHashSet();
+        for (Identity annotation : currentAnnotations) {
+            if (!baseAnnotations.contains(annotation)) {
+                added.add(annotation.annotation);
+            }
+        }
+        Set<FileAnnotation> removed = Sets.newLinkedHashSet();
+        for (Identity annotation : baseAnnotations) {
+            if (!currentAnnotations.contains(annotation)) {
+                removed.add(annotation.annotation);
+            }
+        }
+        return new AnnotationDelta(added.toArray(EMPTY), removed.toArray(EMPTY));
+    }
+
+    /**
+     * Reads a delta from the specified file.
+     *
+     * @param file
+     *            the file with the delta
+     * @param xstream
+     *            the stream to use
+     * @return the delta
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public static AnnotationDelta read(final File file, final XStream xstream) throws IOException {
+        return (AnnotationDelta)GzipXmlAnnotationStore.readXml(file, xstream);
+    }
+
+    private final FileAnnotation[] added;
+    private final FileAnnotation[] removed;
+
+    /**
+     * Creates a new instance of {@link AnnotationDelta}.
+     *
+     * @param added
+     *            the annotations that are not part of the base build
+     * @param removed
+     *            the annotations of the base build that have been removed
+     */
+    public AnnotationDelta(final FileAnnotation[] added, final FileAnnotation[] removed) {
+        this.added = added;
+        this.removed = removed;
+    }
+
+    /**
+     * Writes this delta to the specified file.
+     *
+     * @param file
+     *            the file to write
+     * @param xstream
+     *            the stream to use
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void write(final File file, final XStream xstream) throws IOException {
+        GzipXmlAnnotationStore.writeXml(file, xstream, this);
+    }
+
+    /**
+     * Reconstructs the annotations of the build from the annotations of the
+     * base build. The added annotations and the annotations of the base build
+     * might have been created in different sessions, so added annotations
+     * with a key that is already in use get a new key. The new keys are
+     * derived from the largest key, so the links to the annotations remain
+     * the same whenever the delta is applied.
+     *
+     * @param base
+     *            the annotations of the base build
+     * @return the annotations of the build
+     */
+    public FileAnnotation[] apply(final Collection<FileAnnotation> base) {
+        Set<Identity> annotations = Identity.of(base);
+        for (FileAnnotation annotation : removed) {
+            annotations.remove(new Identity(annotation));
+        }
+        Set<Long> keys = Sets.newHashSet();
+        long maximumKey = 0;
+        for (Identity annotation : annotations) {
+            keys.add(annotation.annotation.getKey());
+            maximumKey = Math.max(maximumKey, annotation.annotation.getKey());
+        }
+        for (FileAnnotation annotation : added) {
+            maximumKey = Math.max(maximumKey, annotation.getKey());
+        }
+        for (FileAnnotation annotation : added) {
+            if (annotations.add(new Identity(annotation)) && !keys.add(annotation.getKey())
+                    && annotation instanceof AbstractAnnotation) {
+                maximumKey++;
+                ((AbstractAnnotation)annotation).setKey(maximumKey);
+                keys.add(maximumKey);
+            }
+        }
+        FileAnnotation[] result = new FileAnnotation[annotations.size()];
+        int index = 0;
+        for (Identity annotation : annotations) {
+            result[index++] = annotation.annotation;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of annotations that are not part of the base build.
+     *
+     * @return the number of added annotations
+     */
+    public int getNumberOfAddedAnnotations() {
+        return added.length;
+    }
+
+    /**
+     * Returns the number of annotations of the base build that have been
+     * removed.
+     *
+     * @return the number of removed annotations
+     */
+    public int getNumberOfRemovedAnnotations() {
+        return removed.length;
+    }
+
+    /**
+     * Wraps an annotation so that annotations are equal only if all persisted
+     * properties that are used to compare warnings of different builds are
+     * equal.
+     */
+    private static final class Identity {
+        private final FileAnnotation annotation;
+
+        static Set<Identity> of(final Collection<FileAnnotation> annotations) {
+            Set<Identity> identities = new LinkedHashSet<Identity>();
+            for (FileAnnotation annotation : annotations) {
+                identities.add(new Identity(annotation));
+            }
+            return identities;
+        }
+
+        Identity(final FileAnnotation annotation) {
+            this.annotation = annotation;
+        }
+
+        @Override
+        public int hashCode() {
+            long contextHashCode = annotation.getContextHashCode();
+            return 31 * annotation.hashCode() + (int)(contextHashCode ^ contextHashCode >>> 32);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Identity)) {
+                return false;
+            }
+            FileAnnotation other = ((Identity)obj).annotation;
+            return annotation.equals(other)
+                    && annotation.getContextHashCode() == other.getContextHashCode()
+                    && StringUtils.equals(annotation.getOrigin(), other.getOrigin())
+                    && StringUtils.equals(annotation.getPathName(), other.getPathName());
+        }
+    }
+}
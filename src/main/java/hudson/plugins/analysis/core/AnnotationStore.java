@@ -0,0 +1,248 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.collect.Lists;
+import com.thoughtworks.xstream.XStream;
+
+import hudson.ExtensionPoint;
+
+import hudson.model.Hudson;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Stores the annotations of a build result in a data file. The store that is
+ * used to write new results is selected globally with the system property
+ * <code>hudson.plugins.analysis.core.AnnotationStore.format</code> (the
+ * {@link #getId() ID} of the store, default <code>xml</code>). Results that
+ * have been written with a different store are still readable: the data file
+ * of each store is looked up when a result is loaded, see
+ * {@link #find(File, String)}. If the selected store is not
+ * {@link #isLossless() lossless}, then a warning is logged once.
+ * <p>
+ * Additional stores can be registered with the {@link hudson.Extension}
+ * annotation.
+ *
+ * @author Ulli Hafner
+ */
+public abstract class AnnotationStore implements ExtensionPoint {
+    /** Name of the system property that selects the store for new results. */
+    public static final String FORMAT_PROPERTY = AnnotationStore.class.getName() + ".format";
+    private static final Logger LOGGER = Logger.getLogger(AnnotationStore.class.getName());
+    /** The ID of the lossy store that has been reported as selected. */
+    private static volatile String reportedLossyStore;
+
+    /**
+     * Returns all available stores.
+     *
+     * @return the available stores
+     */
+    public static List<AnnotationStore> all() {
+        Hudson hudson = Hudson.getInstance();
+        if (hudson == null) {
+            return Arrays.<AnnotationStore>asList(new XmlAnnotationStore(), new GzipXmlAnnotationStore(),
+                    new ColumnarAnnotationStore());
+        }
+        return hudson.getExtensionList(AnnotationStore.class);
+    }
+
+    /**
+     * Returns the store that is used to write new results.
+     *
+     * @return the selected store
+     */
+    public static AnnotationStore getDefault() {
+        AnnotationStore store = getStore(System.getProperty(FORMAT_PROPERTY, XmlAnnotationStore.ID));
+        if (!store.isLossless() && !store.getId().equals(reportedLossyStore)) {
+            reportedLossyStore = store.getId();
+            LOGGER.log(Level.WARNING, "The selected annotation store '" + store.getId()
+                    + "' is lossy: the warnings of new results are read back without their concrete type, "
+                    + "additional line ranges and the properties of their subclasses.");
+        }
+        return store;
+    }
+
+    /**
+     * Returns the store with the specified ID. If there is no such store then
+     * the XML store is returned.
+     *
+     * @param id
+     *            the ID of the store
+     * @return the store
+     */
+    public static AnnotationStore getStore(final String id) {
+        for (AnnotationStore store : all()) {
+            if (store.getId().equals(id)) {
+                return store;
+            }
+        }
+        return new XmlAnnotationStore();
+    }
+
+    /**
+     * Finds the store that has written the data file with the specified base
+     * name in the specified folder. The {@link #getDefault() default} store is
+     * checked first.
+     *
+     * @param folder
+     *            the folder of the data file
+     * @param baseName
+     *            the base name of the data file
+     * @return the store whose data file exists or the default store if there
+     *         is no data file at all
+     */
+    public static AnnotationStore find(final File folder, final String baseName) {
+        AnnotationStore selected = getDefault();
+        List<AnnotationStore> candidates = Lists.newArrayList(selected);
+        candidates.addAll(all());
+        for (AnnotationStore store : candidates) {
+            if (store.getFile(folder, baseName).exists()) {
+                return store;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the ID of this store.
+     *
+     * @return the ID
+     */
+    public abstract String getId();
+
+    /**
+     * Returns the name of the data file for the specified base name.
+     *
+     * @param baseName
+     *            the base name of the data file, as provided by
+     *            {@link BuildResult#getSerializationFileName()}
+     * @return the file name
+     */
+    public abstract String getFileName(String baseName);
+
+    /**
+     * Returns the data file for the specified base name.
+     *
+     * @param folder
+     *            the folder of the data file
+     * @param baseName
+     *            the base name of the data file
+     * @return the data file
+     */
+    public File getFile(final File folder, final String baseName) {
+        return new File(folder, getFileName(baseName));
+    }
+
+    /**
+     * Returns whether this store preserves all properties and the concrete
+     * types of the annotations. Results are only migrated from lossless
+     * stores.
+     *
+     * @return <code>true</code> if the annotations are stored without losses
+     */
+    public boolean isLossless() {
+        return true;
+    }
+
+    /**
+     * Writes the annotations to the specified file.
+     *
+     * @param file
+     *            the data file
+     * @param xstream
+     *            the stream to use for XML based formats
+     * @param annotations
+     *            the annotations to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public abstract void write(File file, XStream xstream, FileAnnotation[] annotations) throws IOException;
+
+    /**
+     * Reads all annotations of the specified file.
+     *
+     * @param file
+     *            the data file
+     * @param xstream
+     *            the stream to use for XML based formats
+     * @return the annotations
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public abstract FileAnnotation[] read(File file, XStream xstream) throws IOException;
+
+    /**
+     * Encodes the annotations in the format of this store. The annotations of
+     * results with several modules are stored as encoded shards, see
+     * {@link ModuleShards}. This default implementation writes the
+     * annotations to a temporary file.
+     *
+     * @param xstream
+     *            the stream to use for XML based formats
+     * @param annotations
+     *            the annotations to encode
+     * @return the encoded annotations
+     * @throws IOException
+     *             if the annotations could not be encoded
+     */
+    public byte[] encode(final XStream xstream, final FileAnnotation[] annotations) throws IOException {
+        File temporary = File.createTempFile("annotations", "." + getId());
+        try {
+            write(temporary, xstream, annotations);
+            return FileUtils.readFileToByteArray(temporary);
+        }
+        finally {
+            FileUtils.deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Decodes annotations that have been encoded with
+     * {@link #encode(XStream, FileAnnotation[])}. This default implementation
+     * reads the annotations from a temporary file.
+     *
+     * @param content
+     *            the encoded annotations
+     * @param xstream
+     *            the stream to use for XML based formats
+     * @return the annotations
+     * @throws IOException
+     *             if the annotations could not be decoded
+     */
+    public FileAnnotation[] decode(final byte[] content, final XStream xstream) throws IOException {
+        File temporary = File.createTempFile("annotations", "." + getId());
+        try {
+            FileUtils.writeByteArrayToFile(temporary, content);
+            return read(temporary, xstream);
+        }
+        finally {
+            FileUtils.deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Replaces the specified file with the temporary file.
+     *
+     * @param temporary
+     *            the completely written temporary file
+     * @param file
+     *            the file to replace
+     * @throws IOException
+     *             if the file could not be replaced
+     */
+    protected static void replace(final File temporary, final File file) throws IOException {
+        if (!temporary.renameTo(file)) {
+            if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+                throw new IOException("Can't rename " + temporary + " to " + file);
+            }
+        }
+    }
+}
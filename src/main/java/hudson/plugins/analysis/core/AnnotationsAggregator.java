@@ -1,6 +1,12 @@
 package hudson.plugins.analysis.core;
 
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 
@@ -12,14 +18,27 @@ import hudson.matrix.MatrixBuild;
 import hudson.model.Action;
 import hudson.model.BuildListener;
 
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+import hudson.util.DaemonThreadFactory;
+
 /**
  * Aggregates {@link ResultAction}s of {@link MatrixRun}s into
- * {@link MatrixBuild}.
+ * {@link MatrixBuild}. The annotations of the first run that reports
+ * annotations are used as annotations of the matrix build. Runs without
+ * annotations contribute their modules only, their data files are not loaded.
+ * The annotations of the selected run are loaded in the background while the
+ * remaining runs are still executed.
  *
  * @author Ulli Hafner
  */
 public abstract class AnnotationsAggregator extends MatrixAggregator {
+    /** Loads the annotations of the selected runs of all matrix builds. */
+    private static final ExecutorService LOADER = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
     private final ParserResult totals = new ParserResult();
+    /** The annotations of the selected run, <code>null</code> if no run with annotations has been found yet. */
+    private Future<Set<FileAnnotation>> selectedAnnotations;
     private final HealthDescriptor healthDescriptor;
     private final String defaultEncoding;
     /**
@@ -58,21 +77,39 @@ public abstract class AnnotationsAggregator extends MatrixAggregator {
 
     @Override
     public boolean endRun(final MatrixRun run) throws InterruptedException, IOException {
-        if (totals.hasNoAnnotations() && hasResult(run)) {
-            BuildResult result = getResult(run);
-            totals.addAnnotations(result.getAnnotations());
+        if (selectedAnnotations == null && hasResult(run)) {
+            final BuildResult result = getResult(run);
             totals.addModules(result.getModules());
+            if (result.getNumberOfAnnotations() > 0) {
+                selectedAnnotations = LOADER.submit(new Callable<Set<FileAnnotation>>() {
+                    public Set<FileAnnotation> call() {
+                        return result.getAnnotations();
+                    }
+                });
+            }
         }
         return true;
     }
 
     @Override
     public boolean endBuild() throws InterruptedException, IOException {
+        if (selectedAnnotations != null) {
+            totals.addAnnotations(getSelectedAnnotations());
+        }
         build.addAction(createAction(healthDescriptor, defaultEncoding, totals));
 
         return true;
     }
 
+    private Set<FileAnnotation> getSelectedAnnotations() throws InterruptedException, IOException {
+        try {
+            return selectedAnnotations.get();
+        }
+        catch (ExecutionException exception) {
+            throw new IOException("Can't load the annotations of the matrix run: " + exception.getCause()); // NOPMD
+        }
+    }
+
     /**
      * Returns whether the specified run has a result to aggregate.
      *
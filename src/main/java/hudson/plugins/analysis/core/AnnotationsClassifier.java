@@ -39,6 +39,7 @@ public class AnnotationsClassifier implements FileCallable<ParserResult> {
 
     /** {@inheritDoc} */
     public ParserResult invoke(final File workspace, final VirtualChannel channel) throws IOException {
+        long start = System.currentTimeMillis();
         ContextHashCode contextHashCode = new ContextHashCode();
         for (FileAnnotation annotation : result.getAnnotations()) {
             try {
@@ -49,6 +50,8 @@ public class AnnotationsClassifier implements FileCallable<ParserResult> {
                 // ignore and continue
             }
         }
+        result.getTimings().addSince("Context hashing", start);
+
         return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,356 @@
+package hudson.plugins.analysis.core;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Api;
+import hudson.model.ModelObject;
+
+import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Compares the warnings of two arbitrary builds, e.g., two builds of the same
+ * job or the builds of two jobs that build different branches. The warnings
+ * are matched by a merge join of the {@link WarningFingerprints} of both
+ * builds, so the counts are available without loading any annotations. Only
+ * the warnings of the requested page of a list are resolved from the results.
+ * <p>
+ * Comparing a build with its reference build yields the same number of new
+ * and fixed warnings as {@link BuildResult#getNumberOfNewWarnings()} and
+ * {@link BuildResult#getNumberOfFixedWarnings()}, see
+ * {@link AnnotationDifferencer}, with the following exceptions:
+ * <ul>
+ * <li>A warning without a source code context that moved to another line is
+ * unchanged here, but new and fixed for the differencer.</li>
+ * <li>A warning with another message or type at an unchanged source code
+ * context is new and fixed here, but unchanged for the differencer.</li>
+ * <li>Equal warnings of a build are counted separately here, but only once by
+ * the differencer.</li>
+ * </ul>
+ *
+ * @author Ulli Hafner
+ */
+@ExportedBean
+public class BuildComparison implements ModelObject {
+    /** Default number of warnings per page. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /** Maximum number of warnings per page. */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Compares the specified results.
+     *
+     * @param from
+     *            the result to compare with, e.g. the result of an older build
+     * @param to
+     *            the result to compare, e.g. the result of the current build
+     * @return the comparison
+     */
+    public static BuildComparison compare(final BuildResult from, final BuildResult to) {
+        return new BuildComparison(from, to, from.getFingerprints(), to.getFingerprints());
+    }
+
+    private final BuildResult from;
+    private final BuildResult to;
+    /** Fingerprints of the warnings that are only part of the second build. */
+    private final long[] newWarnings;
+    /** Fingerprints of the warnings that are only part of the first build. */
+    private final long[] fixedWarnings;
+    /** Fingerprints of the warnings that are part of both builds. */
+    private final long[] unchangedWarnings;
+
+    private int start;
+    private int count = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Creates a new instance of {@link BuildComparison}.
+     *
+     * @param from
+     *            the result to compare with
+     * @param to
+     *            the result to compare
+     * @param fromFingerprints
+     *            the fingerprints of the result to compare with
+     * @param toFingerprints
+     *            the fingerprints of the result to compare
+     */
+    BuildComparison(final BuildResult from, final BuildResult to,
+            final WarningFingerprints fromFingerprints, final WarningFingerprints toFingerprints) {
+        this.from = from;
+        this.to = to;
+
+        long[] added = new long[toFingerprints.size()];
+        long[] removed = new long[fromFingerprints.size()];
+        long[] unchanged = new long[Math.min(added.length, removed.length)];
+        int addedCount = 0;
+        int removedCount = 0;
+        int unchangedCount = 0;
+
+        int i = 0;
+        int j = 0;
+        while (i < fromFingerprints.size() && j < toFingerprints.size()) {
+            long left = fromFingerprints.get(i);
+            long right = toFingerprints.get(j);
+            if (left < right) {
+                removed[removedCount++] = left;
+                i++;
+            }
+            else if (left > right) {
+                added[addedCount++] = right;
+                j++;
+            }
+            else {
+                unchanged[unchangedCount++] = right;
+                i++;
+                j++;
+            }
+        }
+        while (i < fromFingerprints.size()) {
+            removed[removedCount++] = fromFingerprints.get(i++);
+        }
+        while (j < toFingerprints.size()) {
+            added[addedCount++] = toFingerprints.get(j++);
+        }
+
+        newWarnings = Arrays.copyOf(added, addedCount);
+        fixedWarnings = Arrays.copyOf(removed, removedCount);
+        unchangedWarnings = Arrays.copyOf(unchanged, unchangedCount);
+    }
+
+    /**
+     * Selects the page of the lists of warnings.
+     *
+     * @param first
+     *            the index of the first warning of the page
+     * @param size
+     *            the number of warnings of the page, at most
+     *            {@link #MAX_PAGE_SIZE}
+     * @return this comparison
+     */
+    public BuildComparison setPage(final int first, final int size) {
+        start = Math.max(0, first);
+        count = Math.min(MAX_PAGE_SIZE, Math.max(0, size));
+        return this;
+    }
+
+    /**
+     * Returns the index of the first warning of the selected page.
+     *
+     * @return the index of the first warning
+     */
+    @Exported
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the number of warnings per page.
+     *
+     * @return the number of warnings per page
+     */
+    @Exported
+    public int getCount() {
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public String getDisplayName() {
+        return Messages.BuildComparison_DisplayName(from.getOwner().getFullDisplayName(),
+                to.getOwner().getFullDisplayName());
+    }
+
+    /**
+     * Returns the build that is compared with.
+     *
+     * @return the first build
+     */
+    public AbstractBuild<?, ?> getFrom() {
+        return from.getOwner();
+    }
+
+    /**
+     * Returns the build that is compared.
+     *
+     * @return the second build
+     */
+    public AbstractBuild<?, ?> getTo() {
+        return to.getOwner();
+    }
+
+    /**
+     * Returns the number of the build that is compared with.
+     *
+     * @return the number of the first build
+     */
+    @Exported
+    public int getFromBuild() {
+        return from.getOwner().getNumber();
+    }
+
+    /**
+     * Returns the number of the build that is compared.
+     *
+     * @return the number of the second build
+     */
+    @Exported
+    public int getToBuild() {
+        return to.getOwner().getNumber();
+    }
+
+    /**
+     * Returns the number of warnings that are only part of the second build.
+     *
+     * @return the number of new warnings
+     */
+    @Exported
+    public int getNumberOfNewWarnings() {
+        return newWarnings.length;
+    }
+
+    /**
+     * Returns the number of warnings that are only part of the first build.
+     *
+     * @return the number of fixed warnings
+     */
+    @Exported
+    public int getNumberOfFixedWarnings() {
+        return fixedWarnings.length;
+    }
+
+    /**
+     * Returns the number of warnings that are part of both builds.
+     *
+     * @return the number of unchanged warnings
+     */
+    @Exported
+    public int getNumberOfUnchangedWarnings() {
+        return unchangedWarnings.length;
+    }
+
+    /**
+     * Returns the selected page of the warnings that are only part of the
+     * second build.
+     *
+     * @return the new warnings of the page
+     */
+    @Exported
+    public List<FileAnnotation> getNewWarnings() {
+        return resolve(to, newWarnings);
+    }
+
+    /**
+     * Returns the selected page of the warnings that are only part of the
+     * first build.
+     *
+     * @return the fixed warnings of the page
+     */
+    @Exported
+    public List<FileAnnotation> getFixedWarnings() {
+        return resolve(from, fixedWarnings);
+    }
+
+    /**
+     * Returns the selected page of the warnings that are part of both builds.
+     *
+     * @return the unchanged warnings of the page
+     */
+    @Exported
+    public List<FileAnnotation> getUnchangedWarnings() {
+        return resolve(to, unchangedWarnings);
+    }
+
+    /**
+     * Returns the relative link to the page of this comparison that starts
+     * at the specified warning.
+     *
+     * @param first
+     *            the index of the first warning of the page
+     * @return the link
+     */
+    public String getPageLink(final int first) {
+        try {
+            return String.format("?job=%s&build=%d&start=%d&count=%d",
+                    URLEncoder.encode(from.getOwner().getProject().getFullName(), "UTF-8"),
+                    getFromBuild(), Math.max(0, first), count);
+        }
+        catch (UnsupportedEncodingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Returns whether there are more warnings than fit on the selected page.
+     *
+     * @return <code>true</code> if there is a next page
+     */
+    public boolean hasNextPage() {
+        return start + count < Math.max(newWarnings.length, Math.max(fixedWarnings.length, unchangedWarnings.length));
+    }
+
+    /**
+     * Returns whether there are warnings before the selected page.
+     *
+     * @return <code>true</code> if there is a previous page
+     */
+    public boolean hasPreviousPage() {
+        return start > 0;
+    }
+
+    /**
+     * Resolves the warnings of the selected page. Warnings of compacted
+     * results are not available anymore and are skipped.
+     *
+     * @param result
+     *            the result that contains the warnings
+     * @param fingerprints
+     *            all fingerprints of the list
+     * @return the warnings of the page in the order of their fingerprints
+     */
+    private List<FileAnnotation> resolve(final BuildResult result, final long[] fingerprints) {
+        int end = (int)Math.min((long)start + count, fingerprints.length);
+        if (start >= end || result.isCompacted()) {
+            return Lists.newArrayList();
+        }
+        Set<Long> page = Sets.newHashSet();
+        for (int i = start; i < end; i++) {
+            page.add(fingerprints[i]);
+        }
+        ListMultimap<Long, FileAnnotation> matches = ArrayListMultimap.create();
+        for (FileAnnotation annotation : result.getContainer().getAnnotations()) {
+            long fingerprint = WarningLifecycle.getFingerprint(annotation);
+            if (page.contains(fingerprint)) {
+                matches.put(fingerprint, annotation);
+            }
+        }
+        List<FileAnnotation> warnings = Lists.newArrayList();
+        for (int i = start; i < end; i++) {
+            List<FileAnnotation> candidates = matches.get(fingerprints[i]);
+            if (!candidates.isEmpty()) {
+                warnings.add(candidates.remove(0));
+            }
+        }
+        return warnings;
+    }
+
+    /**
+     * Gets the remote API for this comparison.
+     *
+     * @return the remote API
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+}
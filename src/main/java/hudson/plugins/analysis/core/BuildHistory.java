@@ -83,7 +83,7 @@ public class BuildHistory {
     public AnnotationContainer getReferenceAnnotations() {
         ResultAction<? extends BuildResult> action = getReferenceAction();
         if (action != null) {
-            return action.getResult().getContainer();
+            return action.getResult().getCompleteContainer();
         }
         return new DefaultAnnotationContainer();
     }
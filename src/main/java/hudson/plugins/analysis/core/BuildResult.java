@@ -3,9 +3,12 @@ package hudson.plugins.analysis.core; // NOPMD
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -15,14 +18,15 @@ import java.util.logging.Logger;
 
 import hudson.model.Hudson;
 
-import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.apache.commons.lang.time.DateUtils;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
+import com.google.common.collect.Lists;
 import com.thoughtworks.xstream.XStream;
 
 import hudson.XmlFile;
@@ -30,20 +34,31 @@ import hudson.XmlFile;
 import hudson.model.ModelObject;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
 import hudson.model.Api;
 import hudson.model.Hudson;
+import hudson.model.Item;
 
 import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.util.AnalysisMetrics;
+import hudson.plugins.analysis.util.AnalysisMetrics.Timer;
 import hudson.plugins.analysis.util.HtmlPrinter;
+import hudson.plugins.analysis.util.PhaseTimings;
 import hudson.plugins.analysis.util.PluginLogger;
 import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.AnnotationIndex;
 import hudson.plugins.analysis.util.model.AnnotationProvider;
+import hudson.plugins.analysis.util.model.AnnotationQuery;
 import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.AnnotationTable;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.JavaProject;
 import hudson.plugins.analysis.util.model.MavenModule;
 import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.views.AbstractAnnotationsDetail;
 import hudson.plugins.analysis.views.DetailFactory;
+import hudson.plugins.analysis.views.ErrorDetail;
+import hudson.plugins.analysis.views.QueryDetail;
 
 /**
  * A base class for build results that is capable of storing a reference to the
@@ -63,6 +78,31 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     private static final String UNSTABLE = "yellow.png";
     private static final String FAILED = "red.png";
     private static final String SUCCESS = "blue.png";
+    /** Prefix of the links to the details of a module. */
+    private static final String MODULE_LINK = "module.";
+    /** Link to the comparison with another build, see {@link #compareWith(BuildResult)}. */
+    private static final String COMPARE_LINK = "compare";
+    /** Link to the warnings that match a query, see {@link #query(AnnotationQuery)}. */
+    private static final String QUERY_LINK = "query";
+
+    /**
+     * Minimum number of annotations of a loaded result that are stored outside
+     * of the Java heap. A value of 0 (the default) disables the off heap
+     * storage. Annotations that are stored off heap provide their primary line
+     * range only, so they are read again when the warnings of two builds are
+     * compared, see {@link #getCompleteContainer()}.
+     */
+    private static final int OFF_HEAP_THRESHOLD = Integer.getInteger(BuildResult.class.getName() + ".offHeapThreshold", 0);
+
+    /**
+     * Maximum number of delta encoded results that are stored in a row before
+     * the next result is stored completely again. A delta encoded result
+     * stores only the differences to the result of its reference build, see
+     * {@link AnnotationDelta}. A value of 0 (the default) disables the delta
+     * encoding. Delta encoding requires a lossless {@link AnnotationStore} and
+     * is not used if the off heap storage is enabled.
+     */
+    private static final int MAX_DELTA_CHAIN_LENGTH = Integer.getInteger(BuildResult.class.getName() + ".maxDeltaChainLength", 0);
 
     private transient Object projectLock = new Object();
 
@@ -89,6 +129,8 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     /** The project containing the annotations. */
     @edu.umd.cs.findbugs.annotations.SuppressWarnings("Se")
     private transient WeakReference<JavaProject> project;
+    /** Determines whether the annotations of the loaded project are stored off heap. */
+    private transient volatile boolean offHeap;
     /** All new warnings in the current build. */
     @edu.umd.cs.findbugs.annotations.SuppressWarnings("Se")
     private transient WeakReference<Collection<FileAnnotation>> newWarningsReference;
@@ -97,6 +139,20 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     private transient WeakReference<Collection<FileAnnotation>> fixedWarningsReference;
     /** The build history for the results of this plug-in. */
     private transient BuildHistory history;
+    /** The index of the warnings for queries, see {@link #query(AnnotationQuery)}. */
+    private transient SoftReference<AnnotationIndex> indexReference;
+    /** The index of the warnings and fixed warnings for queries with a state. */
+    private transient SoftReference<AnnotationIndex> stateIndexReference;
+    /** The time spent in the phases of the analysis. */
+    private PhaseTimings timings;
+    /** The number of the build the annotations are delta encoded against, 0 if the annotations are stored completely. */
+    private int deltaBase;
+    /** The number of delta encoded results that need to be applied to the last completely stored result. */
+    private int deltaChainLength;
+    /** Determines whether the annotations of this result are stored grouped by module only, see {@link ModuleShards}. */
+    private boolean sharded;
+    /** Determines whether the annotations of this result have been removed by the {@link ResultCompactor}. */
+    private boolean compacted;
 
     /** The number of warnings in this build. */
     private int numberOfWarnings;
@@ -104,6 +160,10 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     private int numberOfNewWarnings;
     /** The number of fixed warnings in this build. */
     private int numberOfFixedWarnings;
+    /** The number of new warnings per priority, <code>null</code> for results of an older release. */
+    private PriorityHistogram newHistogram;
+    /** The number of fixed warnings per priority, <code>null</code> for results of an older release. */
+    private PriorityHistogram fixedHistogram;
 
     /** Difference between this and the previous build. */
     private int delta;
@@ -235,7 +295,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return <code>true</code> if only stable builds should be used
      */
     public boolean useOnlyStableBuildsAsReference() {
-        return history.useOnlyStableBuildsAsReference();
+        return getHistory().useOnlyStableBuildsAsReference();
     }
 
     /**
@@ -261,43 +321,133 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         numberOfModules = modules.size();
         errors = new ArrayList<String>(result.getErrorMessages());
         numberOfWarnings = result.getNumberOfAnnotations();
+        timings = new PhaseTimings();
+        timings.addAll(result.getTimings());
+
+        long start = System.currentTimeMillis();
         AnnotationContainer referenceResult = history.getReferenceAnnotations();
+        timings.addSince("Loading reference build", start);
 
         delta = result.getNumberOfAnnotations() - referenceResult.getNumberOfAnnotations();
         lowDelta = computeDelta(result, referenceResult, Priority.LOW);
         normalDelta = computeDelta(result, referenceResult, Priority.NORMAL);
         highDelta = computeDelta(result, referenceResult, Priority.HIGH);
 
+        start = System.currentTimeMillis();
         Set<FileAnnotation> allWarnings = result.getAnnotations();
 
         Set<FileAnnotation> newWarnings = AnnotationDifferencer.getNewAnnotations(allWarnings, referenceResult.getAnnotations());
         numberOfNewWarnings = newWarnings.size();
+        newHistogram = new PriorityHistogram(newWarnings);
         newWarningsReference = new WeakReference<Collection<FileAnnotation>>(newWarnings);
 
         Set<FileAnnotation> fixedWarnings = AnnotationDifferencer.getFixedAnnotations(allWarnings, referenceResult.getAnnotations());
         numberOfFixedWarnings = fixedWarnings.size();
+        fixedHistogram = new PriorityHistogram(fixedWarnings);
         fixedWarningsReference = new WeakReference<Collection<FileAnnotation>>(fixedWarnings);
+        timings.addSince("Computing new and fixed", start);
 
         highWarnings = result.getNumberOfAnnotations(Priority.HIGH);
         normalWarnings = result.getNumberOfAnnotations(Priority.NORMAL);
         lowWarnings = result.getNumberOfAnnotations(Priority.LOW);
 
+        start = System.currentTimeMillis();
         JavaProject container = new JavaProject();
         container.addAnnotations(result.getAnnotations());
+        timings.addSince("Building the container", start);
 
         project = new WeakReference<JavaProject>(container);
 
         computeZeroWarningsHighScore(build, result);
 
         defineReferenceBuild(history);
+
+        start = System.currentTimeMillis();
+        updateLifecycle(allWarnings, newWarnings, fixedWarnings);
+        timings.addSince("Updating the warning lifecycle", start);
+    }
+
+    /**
+     * Records the new and fixed warnings of this build in the
+     * {@link WarningLifecycle} of the job and writes the index in the
+     * background. Fixed warnings of deleted builds are removed from the index.
+     *
+     * @param allWarnings
+     *            all warnings of this build
+     * @param newWarnings
+     *            the new warnings of this build
+     * @param fixedWarnings
+     *            the fixed warnings of this build
+     */
+    private void updateLifecycle(final Collection<FileAnnotation> allWarnings,
+            final Collection<FileAnnotation> newWarnings, final Collection<FileAnnotation> fixedWarnings) {
+        final WarningLifecycle lifecycle = getLifecycle();
+        lifecycle.update(owner.getNumber(), referenceBuild, allWarnings, newWarnings, fixedWarnings);
+        AbstractBuild<?, ?> oldestBuild = owner.getProject().getFirstBuild();
+        if (oldestBuild != null) {
+            lifecycle.prune(oldestBuild.getNumber());
+        }
+        PersistenceQueue.getInstance().submit(lifecycle.getFile(),
+                String.format("%s (%d warnings)", lifecycle.getFile().getAbsolutePath(), lifecycle.size()), new Runnable() {
+            public void run() {
+                try {
+                    lifecycle.save();
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException("Failed to write the warning lifecycle of the job.", exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the index of the first and last builds of the warnings of the
+     * job that owns this result.
+     *
+     * @return the warning lifecycle of the job
+     */
+    public WarningLifecycle getLifecycle() {
+        return WarningLifecycle.get(new File(getOwner().getProject().getRootDir(),
+                WarningLifecycle.getFileName(getSerializationFileName())));
+    }
+
+    /**
+     * Returns the time spent in the phases of the analysis that created this
+     * result.
+     *
+     * @return the timings, empty for results that have been created by an
+     *         older release
+     */
+    @Exported
+    public PhaseTimings getTimings() {
+        if (timings == null) {
+            timings = new PhaseTimings();
+        }
+        return timings;
     }
 
     /**
-     * Returns the build history.
+     * Sets the time spent in the phases of the analysis that created this
+     * result.
+     *
+     * @param timings
+     *            the timings
+     */
+    @SuppressWarnings("hiding")
+    public void setTimings(final PhaseTimings timings) {
+        this.timings = timings;
+    }
+
+    /**
+     * Returns the build history. The history of a deserialized result is
+     * created on first use.
      *
      * @return the history
      */
     public BuildHistory getHistory() {
+        if (history == null) {
+            history = createHistory(owner);
+        }
         return history;
     }
 
@@ -339,8 +489,8 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      *            the current result
      */
     private void computeZeroWarningsHighScore(final AbstractBuild<?, ?> build, final ParserResult currentResult) {
-        if (history.hasPreviousResult()) {
-            BuildResult previous = history.getPreviousResult();
+        if (getHistory().hasPreviousResult()) {
+            BuildResult previous = getHistory().getPreviousResult();
             if (currentResult.hasNoAnnotations()) {
                 if (previous.hasNoAnnotations()) {
                     zeroWarningsSinceBuild = previous.getZeroWarningsSinceBuild();
@@ -382,7 +532,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return <code>true</code> if at least one module has an error.
      */
     public boolean hasError() {
-        return !errors.isEmpty();
+        return errors != null && !errors.isEmpty();
     }
 
     /**
@@ -391,6 +541,9 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the error messages
      */
     public List<String> getErrors() {
+        if (errors == null) {
+            return Collections.emptyList();
+        }
         return errors;
     }
 
@@ -407,18 +560,6 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
             pluginResult = Result.SUCCESS;
             resetSuccessfulState();
         }
-        if (projectLock == null) {
-            projectLock = new Object();
-        }
-        if (history == null) {
-            history = createHistory(owner);
-        }
-        if (modules == null) {
-            modules = new HashSet<String>();
-        }
-        if (errors == null) {
-            errors = new ArrayList<String>();
-        }
         try {
             if (low != null) {
                 lowWarnings = Integer.valueOf(low);
@@ -442,6 +583,9 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the modules
      */
     public Collection<String> getModules() {
+        if (modules == null) {
+            return Collections.emptySet();
+        }
         return modules;
     }
 
@@ -469,7 +613,10 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the thresholds
      */
     public Thresholds getThresholds() {
-        return (Thresholds)ObjectUtils.defaultIfNull(thresholds, new Thresholds());
+        if (thresholds == null) {
+            thresholds = new Thresholds();
+        }
+        return thresholds;
     }
 
     /**
@@ -485,7 +632,11 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     }
 
     /**
-     * Returns the serialization file.
+     * Returns the serialization file in the XML format. The annotations are
+     * stored in this file only if they have been written with the
+     * {@link XmlAnnotationStore} and are neither delta encoded nor stored
+     * grouped by module. Use {@link #getAnnotationFile()} to get the file that
+     * actually contains the annotations.
      *
      * @return the serialization file.
      */
@@ -493,6 +644,38 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         return new XmlFile(getXStream(), new File(getOwner().getRootDir(), getSerializationFileName()));
     }
 
+    /**
+     * Returns the file that contains the annotations of this result. Depending
+     * on how the annotations have been written, this is the file with the
+     * differences to the delta base build, the file with the annotations
+     * grouped by module (see {@link ModuleShards}), or the data file of the
+     * {@link #getAnnotationStore() store} of this result.
+     *
+     * @return the file with the annotations
+     */
+    public File getAnnotationFile() {
+        if (isDeltaEncoded()) {
+            return getDeltaFile();
+        }
+        if (sharded) {
+            return getModuleShards().getFile();
+        }
+        return getFile(getAnnotationStore());
+    }
+
+    /**
+     * Returns the store that contains the annotations of this result.
+     *
+     * @return the store of the annotations
+     */
+    public final AnnotationStore getAnnotationStore() {
+        return AnnotationStore.find(getOwner().getRootDir(), getSerializationFileName());
+    }
+
+    private File getFile(final AnnotationStore store) {
+        return store.getFile(getOwner().getRootDir(), getSerializationFileName());
+    }
+
     /**
      * Returns the {@link XStream} to use.
      *
@@ -628,19 +811,484 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
 
     /**
      * Serializes the annotations of the specified project and writes them to
-     * the file specified by method {@link #getDataFile()}.
+     * the data file of the {@link AnnotationStore#getDefault() selected}
+     * {@link AnnotationStore}. The file is written in the background by the
+     * {@link PersistenceQueue}.
      *
      * @param annotations
      *            the annotations to store
      */
     protected void serializeAnnotations(final Collection<FileAnnotation> annotations) {
+        long start = System.currentTimeMillis();
+        FileAnnotation[] values = annotations.toArray(new FileAnnotation[annotations.size()]);
+        BuildResult base = findDeltaBase();
+        if (base == null) {
+            deltaBase = 0;
+            deltaChainLength = 0;
+            writeCompletely(values, null);
+        }
+        else {
+            writeDelta(base, values);
+        }
+        writeFingerprints(WarningFingerprints.create(Arrays.asList(values)));
+        getTimings().addSince("Serialization", start);
+    }
+
+    /**
+     * Writes the specified fingerprints in the background.
+     *
+     * @param fingerprints
+     *            the fingerprints of the annotations of this result
+     */
+    private void writeFingerprints(final WarningFingerprints fingerprints) {
+        final File file = getFingerprintsFile();
+        PersistenceQueue.getInstance().submit(file,
+                String.format("%s (%d fingerprints)", file.getAbsolutePath(), fingerprints.size()), new Runnable() {
+            public void run() {
+                try {
+                    fingerprints.write(file);
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException("Failed to serialize the fingerprints of the build.", exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the sorted fingerprints of the annotations of this result. The
+     * fingerprints of results that have been created by an older release are
+     * computed from the annotations and stored on first use.
+     *
+     * @return the fingerprints
+     */
+    public WarningFingerprints getFingerprints() {
+        File file = getFingerprintsFile();
+        PersistenceQueue.getInstance().awaitCompletion(file);
+        if (file.exists()) {
+            try {
+                return WarningFingerprints.read(file);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to read fingerprints " + file, exception);
+            }
+        }
+        if (compacted) {
+            return WarningFingerprints.create(Collections.<FileAnnotation>emptyList());
+        }
+        WarningFingerprints fingerprints = WarningFingerprints.create(getContainer().getAnnotations());
+        writeFingerprints(fingerprints);
+        return fingerprints;
+    }
+
+    private File getFingerprintsFile() {
+        return new File(getOwner().getRootDir(), WarningFingerprints.getFileName(getSerializationFileName()));
+    }
+
+    /**
+     * Returns the warnings of this result that match the specified query. The
+     * index of the warnings is kept as long as there is enough memory. If the
+     * query uses the <code>state</code> of the warnings, then the fixed
+     * warnings are queried as well.
+     *
+     * @param query
+     *            the query
+     * @return the matching warnings, sorted
+     */
+    public List<FileAnnotation> query(final AnnotationQuery query) {
+        return getIndex(query.uses(AnnotationIndex.STATE)).select(query);
+    }
+
+    /**
+     * Returns the specified warnings that match the specified query. The new
+     * and fixed warnings of this result define the <code>state</code> of
+     * the warnings. The query is evaluated on the index of all warnings of
+     * this result, see {@link #query(AnnotationQuery)}.
+     *
+     * @param annotations
+     *            the warnings to filter, e.g. the warnings of a detail page
+     * @param query
+     *            the query
+     * @return the matching warnings in the order of the specified warnings
+     */
+    public List<FileAnnotation> query(final Collection<FileAnnotation> annotations, final AnnotationQuery query) {
+        Set<FileAnnotation> matching = new HashSet<FileAnnotation>(query(query));
+        List<FileAnnotation> selected = Lists.newArrayList();
+        for (FileAnnotation annotation : annotations) {
+            if (matching.contains(annotation)) {
+                selected.add(annotation);
+            }
+        }
+        return selected;
+    }
+
+    private AnnotationIndex getIndex(final boolean withState) {
+        if (withState) {
+            AnnotationIndex stateIndex = stateIndexReference == null ? null : stateIndexReference.get();
+            if (stateIndex == null) {
+                stateIndex = getIndex(false).withState(getNewWarnings(), getFixedWarnings());
+                stateIndexReference = new SoftReference<AnnotationIndex>(stateIndex);
+            }
+            return stateIndex;
+        }
+        AnnotationIndex index = indexReference == null ? null : indexReference.get();
+        if (index == null) {
+            index = new AnnotationIndex(getContainer().getSortedAnnotations());
+            indexReference = new SoftReference<AnnotationIndex>(index);
+        }
+        return index;
+    }
+
+    private Object createQueryDetail(final String query) {
+        AnnotationQuery parsed;
         try {
-            Collection<FileAnnotation> files = annotations;
-            getDataFile().write(files.toArray(new FileAnnotation[files.size()]));
+            parsed = AnnotationQuery.parse(query);
         }
-        catch (IOException exception) {
-            LOGGER.log(Level.SEVERE, "Failed to serialize the annotations of the build.", exception);
+        catch (IllegalArgumentException exception) {
+            return new ErrorDetail(getOwner(), Collections.singletonList(exception.getMessage()));
         }
+        QueryDetail detail = new QueryDetail(getOwner(), DetailFactory.create(getResultActionType()), query(parsed),
+                parsed.toString(), getDefaultEncoding(), getDisplayName());
+        detail.setResult(this);
+        return detail;
+    }
+
+    /**
+     * Compares the warnings of this result with the warnings of the specified
+     * result. The results might belong to different jobs.
+     *
+     * @param other
+     *            the result to compare with, e.g. the result of an older build
+     * @return the comparison, the warnings that are only part of this result
+     *         are the new warnings
+     */
+    public BuildComparison compareWith(final BuildResult other) {
+        return BuildComparison.compare(other, this);
+    }
+
+    /**
+     * Creates the comparison of this result with the result of the build that
+     * is selected by the parameters of the specified request.
+     *
+     * @param request
+     *            the request with the parameters <code>build</code> (the
+     *            number of the build, default is the reference build),
+     *            <code>job</code> (the full name of the job, default is the job
+     *            of this result), and <code>start</code> and
+     *            <code>count</code> (the page of the lists of warnings)
+     * @return the comparison or an error page if there is no such result
+     */
+    private Object createComparison(final StaplerRequest request) {
+        String job = request.getParameter("job");
+        AbstractProject<?, ?> project = getOwner().getProject();
+        if (StringUtils.isNotBlank(job)) {
+            project = Hudson.getInstance().getItemByFullName(job, AbstractProject.class);
+            if (project != null && !project.hasPermission(Item.READ)) {
+                project = null; // jobs without read permission are reported as unknown
+            }
+        }
+        int number = NumberUtils.toInt(request.getParameter("build"), referenceBuild);
+        AbstractBuild<?, ?> build = project == null ? null : project.getBuildByNumber(number);
+        BuildResult other = build == null ? null : getResult(build);
+        if (other == null) {
+            return new ErrorDetail(getOwner(), Collections.singletonList(
+                    Messages.BuildComparison_UnknownBuild(number, StringUtils.defaultIfEmpty(job, getOwner().getProject().getFullName()))));
+        }
+        return compareWith(other).setPage(NumberUtils.toInt(request.getParameter("start"), 0),
+                NumberUtils.toInt(request.getParameter("count"), BuildComparison.DEFAULT_PAGE_SIZE));
+    }
+
+    /**
+     * Writes all annotations with the selected {@link AnnotationStore} in the
+     * background. If the annotations belong to more than one module, then they
+     * are written grouped by module, see {@link ModuleShards}. Otherwise, they
+     * are written to the data file of the store.
+     *
+     * @param values
+     *            the annotations to store
+     * @param obsolete
+     *            the data file to delete after the annotations have been
+     *            written, might be <code>null</code>
+     */
+    private void writeCompletely(final FileAnnotation[] values, final File obsolete) {
+        Set<String> moduleNames = new HashSet<String>();
+        for (FileAnnotation annotation : values) {
+            moduleNames.add(annotation.getModuleName());
+        }
+        sharded = moduleNames.size() > 1;
+        if (sharded) {
+            writeShards(values, obsolete);
+        }
+        else {
+            write(values, obsolete);
+        }
+    }
+
+    /**
+     * Writes the annotations grouped by module in the background, see
+     * {@link ModuleShards}. The shards are the only copy of the annotations.
+     *
+     * @param values
+     *            the annotations to store
+     * @param obsolete
+     *            the data file to delete after the annotations have been
+     *            written, might be <code>null</code>
+     */
+    private void writeShards(final FileAnnotation[] values, final File obsolete) {
+        final ModuleShards shards = getModuleShards();
+        final XStream xstream = getXStream();
+        PersistenceQueue.getInstance().submit(shards.getFile(),
+                String.format("%s (%d warnings)", shards.getFile().getAbsolutePath(), values.length), values, new Runnable() {
+            public void run() {
+                try {
+                    shards.write(xstream, values);
+                    if (obsolete != null && !obsolete.delete()) {
+                        LOGGER.log(Level.WARNING, "Failed to delete obsolete data file " + obsolete);
+                    }
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException("Failed to serialize the module shards of the build.", exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the result the annotations of this build should be delta
+     * encoded against.
+     *
+     * @return the result of the reference build or <code>null</code> if the
+     *         annotations should be stored completely
+     */
+    private BuildResult findDeltaBase() {
+        if (MAX_DELTA_CHAIN_LENGTH <= 0 || OFF_HEAP_THRESHOLD > 0 || !AnnotationStore.getDefault().isLossless()) {
+            return null;
+        }
+        AbstractBuild<?, ?> reference = getHistory().getReferenceBuild();
+        if (reference == null) {
+            return null;
+        }
+        BuildResult base = getResult(reference);
+        if (base == null || base.deltaChainLength >= MAX_DELTA_CHAIN_LENGTH) {
+            return null;
+        }
+        return base;
+    }
+
+    private BuildResult getResult(final AbstractBuild<?, ?> build) {
+        ResultAction<? extends BuildResult> action = build.getAction(getResultActionType());
+        if (action == null) {
+            return null;
+        }
+        return action.getResult();
+    }
+
+    /**
+     * Writes the differences between the specified annotations and the
+     * annotations of the specified base result in the background.
+     *
+     * @param base
+     *            the result to delta encode against
+     * @param values
+     *            the annotations to store
+     */
+    private void writeDelta(final BuildResult base, final FileAnnotation[] values) {
+        final AnnotationDelta delta = AnnotationDelta.create(base.getProject().getAnnotations(), Arrays.asList(values));
+        deltaBase = base.getOwner().getNumber();
+        deltaChainLength = base.deltaChainLength + 1;
+        sharded = false;
+
+        submitDelta(delta);
+    }
+
+    /**
+     * Writes the specified differences in the background.
+     *
+     * @param delta
+     *            the differences to the base build
+     */
+    private void submitDelta(final AnnotationDelta delta) {
+        final File deltaFile = getDeltaFile();
+        final XStream xstream = getXStream();
+        PersistenceQueue.getInstance().submit(deltaFile,
+                String.format("%s (%d added and %d removed warnings relative to build %d)", deltaFile.getAbsolutePath(),
+                        delta.getNumberOfAddedAnnotations(), delta.getNumberOfRemovedAnnotations(), deltaBase), delta, new Runnable() {
+            public void run() {
+                try {
+                    delta.write(deltaFile, xstream);
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException("Failed to serialize the annotations of the build.", exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reconstructs the annotations of this build from the annotations of the
+     * base build and the stored differences.
+     *
+     * @param deltaFile
+     *            the file with the differences
+     * @return the annotations of this build
+     * @throws IOException
+     *             if the differences could not be read or the base build
+     *             does not exist anymore
+     */
+    private FileAnnotation[] readDelta(final File deltaFile) throws IOException {
+        return applyDelta(AnnotationDelta.read(deltaFile, getXStream()));
+    }
+
+    /**
+     * Reconstructs the annotations of this build from the annotations of the
+     * base build and the specified differences.
+     *
+     * @param delta
+     *            the differences
+     * @return the annotations of this build
+     * @throws IOException
+     *             if the base build does not exist anymore
+     */
+    private FileAnnotation[] applyDelta(final AnnotationDelta delta) throws IOException {
+        AbstractBuild<?, ?> build = getOwner().getProject().getBuildByNumber(deltaBase);
+        BuildResult base = build == null ? null : getResult(build);
+        if (base == null) {
+            throw new IOException("The base build " + deltaBase + " of the delta encoded result " + getDeltaFile() + " has been deleted");
+        }
+        return delta.apply(base.getCompleteContainer().getAnnotations());
+    }
+
+    /**
+     * Returns whether the annotations of this build are stored as differences
+     * to the annotations of another build.
+     *
+     * @return <code>true</code> if the annotations are delta encoded
+     */
+    public boolean isDeltaEncoded() {
+        return deltaBase > 0;
+    }
+
+    /**
+     * Returns the number of the build the annotations of this build are delta
+     * encoded against.
+     *
+     * @return the number of the base build, 0 if the annotations are stored
+     *         completely
+     */
+    public int getDeltaBase() {
+        return deltaBase;
+    }
+
+    /**
+     * Stores the annotations of this delta encoded result completely, so that
+     * the result does not depend on its base build anymore. The data file is
+     * written in the background by the {@link PersistenceQueue}.
+     *
+     * @throws IOException
+     *             if the build could not be saved
+     */
+    public void materialize() throws IOException {
+        if (!isDeltaEncoded()) {
+            return;
+        }
+        Set<FileAnnotation> annotations = getProject().getAnnotations();
+        writeCompletely(annotations.toArray(new FileAnnotation[annotations.size()]), getDeltaFile());
+        deltaBase = 0;
+        deltaChainLength = 0;
+        getOwner().save();
+    }
+
+    /**
+     * Removes the annotations of this result. The number of warnings, new
+     * warnings and fixed warnings that are shown in the trend graphs and
+     * health reports are still available afterwards, the details of the
+     * warnings are not.
+     *
+     * @return <code>true</code> if the result has been compacted,
+     *         <code>false</code> if the result already has been compacted
+     *         before
+     * @throws IOException
+     *             if the build could not be saved
+     */
+    public boolean compact() throws IOException {
+        if (compacted) {
+            return false;
+        }
+        getFingerprints(); // comparisons with this build are still possible afterwards
+        PersistenceQueue.getInstance().awaitCompletion(getFingerprintsFile());
+
+        List<File> dataFiles = Lists.newArrayList(getDeltaFile(), getModuleShards().getFile());
+        for (AnnotationStore store : AnnotationStore.all()) {
+            dataFiles.add(getFile(store));
+        }
+        for (File dataFile : dataFiles) {
+            PersistenceQueue.getInstance().awaitCompletion(dataFile);
+            if (dataFile.exists() && !dataFile.delete()) {
+                LOGGER.log(Level.WARNING, "Failed to delete data file " + dataFile);
+            }
+        }
+        synchronized (projectLock) {
+            project = null; // NOPMD
+        }
+        newWarningsReference = null; // NOPMD
+        fixedWarningsReference = null; // NOPMD
+        indexReference = null; // NOPMD
+        stateIndexReference = null; // NOPMD
+        compacted = true;
+        deltaBase = 0;
+        deltaChainLength = 0;
+        getOwner().save();
+
+        return true;
+    }
+
+    /**
+     * Returns whether the annotations of this result have been removed by the
+     * retention policy of the {@link ResultCompactor}.
+     *
+     * @return <code>true</code> if only the number of warnings is available
+     */
+    public boolean isCompacted() {
+        return compacted;
+    }
+
+    private File getDeltaFile() {
+        return new File(getOwner().getRootDir(), getSerializationFileName() + ".delta");
+    }
+
+    private ModuleShards getModuleShards() {
+        return new ModuleShards(new File(getOwner().getRootDir(), ModuleShards.getFileName(getSerializationFileName())),
+                AnnotationStore.getDefault());
+    }
+
+    /**
+     * Writes the annotations in the background to the data file of the
+     * selected {@link AnnotationStore}.
+     *
+     * @param values
+     *            the annotations to store
+     * @param obsolete
+     *            the data file to delete after the annotations have been
+     *            written, might be <code>null</code>
+     */
+    private void write(final FileAnnotation[] values, final File obsolete) {
+        final AnnotationStore store = AnnotationStore.getDefault();
+        final File dataFile = getFile(store);
+        final XStream xstream = getXStream();
+        PersistenceQueue.getInstance().submit(dataFile,
+                String.format("%s (%d warnings)", dataFile.getAbsolutePath(), values.length), values, new Runnable() {
+            public void run() {
+                try {
+                    store.write(dataFile, xstream, values);
+                    if (obsolete != null && !obsolete.delete()) {
+                        LOGGER.log(Level.WARNING, "Failed to delete migrated data file " + obsolete);
+                    }
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException("Failed to serialize the annotations of the build.", exception);
+                }
+            }
+        });
     }
 
     /**
@@ -781,6 +1429,43 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         }
     }
 
+    /**
+     * Returns the number of warnings of this build per priority.
+     *
+     * @return the number of warnings per priority
+     */
+    public PriorityHistogram getHistogram() {
+        return new PriorityHistogram(highWarnings, normalWarnings, lowWarnings);
+    }
+
+    /**
+     * Returns the number of new warnings of this build per priority. The
+     * histogram of a result that has been created by an older release is
+     * computed from the new warnings on first use.
+     *
+     * @return the number of new warnings per priority
+     */
+    public PriorityHistogram getNewHistogram() {
+        if (newHistogram == null) {
+            newHistogram = new PriorityHistogram(getNewWarnings());
+        }
+        return newHistogram;
+    }
+
+    /**
+     * Returns the number of fixed warnings of this build per priority. The
+     * histogram of a result that has been created by an older release is
+     * computed from the fixed warnings on first use.
+     *
+     * @return the number of fixed warnings per priority
+     */
+    public PriorityHistogram getFixedHistogram() {
+        if (fixedHistogram == null) {
+            fixedHistogram = new PriorityHistogram(getFixedWarnings());
+        }
+        return fixedHistogram;
+    }
+
     /**
      * Gets the number of fixed warnings.
      *
@@ -891,6 +1576,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
             if (result == null) {
                 return loadResult();
             }
+            AnalysisMetrics.getInstance().count(AnalysisMetrics.PROJECT_CACHE_HITS, 1);
             return result;
         }
     }
@@ -902,24 +1588,191 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the loaded result
      */
     private JavaProject loadResult() {
+        if (compacted) {
+            JavaProject empty = new JavaProject();
+            project = new WeakReference<JavaProject>(empty);
+
+            return empty;
+        }
+        AnalysisMetrics metrics = AnalysisMetrics.getInstance();
+        metrics.count(AnalysisMetrics.PROJECT_CACHE_MISSES, 1);
+        Timer timer = metrics.getTimer(AnalysisMetrics.LOAD_RESULT);
+        long start = timer.start();
+
+        AnnotationStore store = getAnnotationStore();
+        File dataFile = getAnnotationFile();
         JavaProject result;
         try {
             JavaProject newProject = new JavaProject();
-            FileAnnotation[] annotations = (FileAnnotation[])getDataFile().read();
-            newProject.addAnnotations(annotations);
+            PersistenceQueue.getInstance().awaitCompletion(dataFile);
+            FileAnnotation[] annotations = recover(dataFile);
+            if (annotations != null) {
+                LOGGER.log(Level.WARNING, "Recovered data file " + dataFile + " of build " + getOwner().getNumber()
+                        + " that has not been written completely before Hudson has been stopped");
+            }
+            else {
+                annotations = readAnnotations(store, dataFile);
+                if (!isDeltaEncoded() && !sharded) {
+                    migrate(store, dataFile, annotations);
+                }
+            }
+            metrics.count(AnalysisMetrics.BYTES_READ, dataFile.length());
+            metrics.addResident(newProject, annotations.length);
+            offHeap = OFF_HEAP_THRESHOLD > 0 && annotations.length >= OFF_HEAP_THRESHOLD;
+            if (offHeap) {
+                newProject.addAnnotations(createOffHeapTable(annotations).getAnnotations());
+            }
+            else {
+                newProject.addAnnotations(annotations);
+            }
 
-            LOGGER.log(Level.FINE, "Loaded data file " + getDataFile() + " for build " + getOwner().getNumber());
+            LOGGER.log(Level.FINE, "Loaded data file " + dataFile + " for build " + getOwner().getNumber());
             result = newProject;
         }
         catch (IOException exception) {
-            LOGGER.log(Level.WARNING, "Failed to load " + getDataFile(), exception);
+            if (PersistenceQueue.getInstance().isLost(dataFile)) {
+                LOGGER.log(Level.SEVERE, "The data file " + dataFile + " has not been written completely before Hudson has been stopped");
+            }
+            LOGGER.log(Level.WARNING, "Failed to load " + dataFile, exception);
             result = new JavaProject();
         }
+        finally {
+            timer.stop(start);
+        }
         project = new WeakReference<JavaProject>(result);
 
         return result;
     }
 
+    /**
+     * Reads the annotations of this result from the specified data file.
+     *
+     * @param store
+     *            the store that has written the data file
+     * @param dataFile
+     *            the data file
+     * @return the annotations
+     * @throws IOException
+     *             if the data file could not be read
+     */
+    private FileAnnotation[] readAnnotations(final AnnotationStore store, final File dataFile) throws IOException {
+        if (isDeltaEncoded()) {
+            return readDelta(dataFile);
+        }
+        if (sharded) {
+            return getModuleShards().readAll(getXStream());
+        }
+        return store.read(dataFile, getXStream());
+    }
+
+    /**
+     * Returns a container with the annotations of this result as complete
+     * objects. Annotations that are stored off heap provide the properties of
+     * an {@link AnnotationTable} only and are equal by identity, so they can't
+     * be compared with the annotations of other builds. In this case the
+     * annotations are read again from the data file, the container is not
+     * cached.
+     *
+     * @return the container with the complete annotations
+     */
+    public AnnotationContainer getCompleteContainer() {
+        JavaProject loaded = getProject();
+        if (!offHeap || compacted) {
+            return loaded;
+        }
+        AnnotationStore store = getAnnotationStore();
+        File dataFile = getAnnotationFile();
+        JavaProject complete = new JavaProject();
+        try {
+            PersistenceQueue.getInstance().awaitCompletion(dataFile);
+            complete.addAnnotations(readAnnotations(store, dataFile));
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Failed to load " + dataFile, exception);
+        }
+        return complete;
+    }
+
+    /**
+     * Recovers the annotations of the specified data file if the task that
+     * should have written the file has been lost, see
+     * {@link PersistenceQueue#recover(File, ClassLoader)}. The data file is
+     * written again.
+     *
+     * @param dataFile
+     *            the data file
+     * @return the recovered annotations or <code>null</code> if the data file
+     *         has been written completely
+     * @throws IOException
+     *             if the base build of a recovered delta does not exist
+     *             anymore
+     */
+    private FileAnnotation[] recover(final File dataFile) throws IOException {
+        Object payload = PersistenceQueue.getInstance().recover(dataFile, getClass().getClassLoader());
+        if (payload instanceof AnnotationDelta) {
+            AnnotationDelta delta = (AnnotationDelta)payload;
+            submitDelta(delta);
+            return applyDelta(delta);
+        }
+        if (payload instanceof FileAnnotation[]) {
+            FileAnnotation[] values = (FileAnnotation[])payload;
+            if (sharded) {
+                writeShards(values, null);
+            }
+            else {
+                write(values, null);
+            }
+            return values;
+        }
+        return null;
+    }
+
+    /**
+     * Migrates the loaded annotations to the selected {@link AnnotationStore}
+     * if they have been read from the data file of another store. Annotations
+     * are migrated from and to lossless stores only: the data file is deleted
+     * after the migration, so migrating to a lossy store would remove
+     * properties of the annotations permanently.
+     *
+     * @param store
+     *            the store that has written the data file
+     * @param dataFile
+     *            the data file
+     * @param annotations
+     *            the loaded annotations
+     */
+    private void migrate(final AnnotationStore store, final File dataFile, final FileAnnotation[] annotations) {
+        AnnotationStore selected = AnnotationStore.getDefault();
+        if (store.getId().equals(selected.getId()) || !store.isLossless() || !selected.isLossless()
+                || !dataFile.exists()) {
+            return;
+        }
+        LOGGER.log(Level.INFO, String.format("Migrating data file %s of build %d to the %s format",
+                dataFile, getOwner().getNumber(), selected.getId()));
+        write(annotations, dataFile);
+    }
+
+    /**
+     * Copies the specified annotations into an {@link AnnotationTable} that
+     * stores its columns outside of the Java heap. The table lives as long as
+     * one of its annotations is referenced, i.e. it is freed together with the
+     * weakly referenced project.
+     *
+     * @param annotations
+     *            the annotations to copy
+     * @return the table
+     */
+    private AnnotationTable createOffHeapTable(final FileAnnotation[] annotations) {
+        AnnotationTable table = new AnnotationTable(Arrays.asList(annotations));
+        long heapUsage = table.getHeapUsage();
+        table.moveOffHeap();
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, String.format("Moved %d annotations of build %d off heap: heap %d -> %d bytes, off heap %d bytes",
+                    table.size(), getOwner().getNumber(), heapUsage, table.getHeapUsage(), table.getOffHeapUsage()));
+        }
+        return table;
+    }
+
     /**
      * Returns the new warnings of this build.
      *
@@ -934,6 +1787,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         if (result == null) {
             return loadNewWarnings();
         }
+        AnalysisMetrics.getInstance().count(AnalysisMetrics.DIFFERENCE_CACHE_HITS, 1);
         return result;
     }
 
@@ -945,7 +1799,19 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the new warnings
      */
     private Collection<FileAnnotation> loadNewWarnings() {
-        Collection<FileAnnotation> difference = history.getNewWarnings(getProject().getAnnotations());
+        AnalysisMetrics metrics = AnalysisMetrics.getInstance();
+        metrics.count(AnalysisMetrics.DIFFERENCE_CACHE_MISSES, 1);
+        Timer timer = metrics.getTimer(AnalysisMetrics.NEW_WARNINGS);
+        long start = timer.start();
+
+        Collection<FileAnnotation> difference;
+        if (compacted) {
+            difference = Collections.emptyList();
+        }
+        else {
+            difference = getHistory().getNewWarnings(getCompleteContainer().getAnnotations());
+        }
+        timer.stop(start);
         newWarningsReference = new WeakReference<Collection<FileAnnotation>>(difference);
 
         return difference;
@@ -964,6 +1830,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         if (result == null) {
             return loadFixedWarnings();
         }
+        AnalysisMetrics.getInstance().count(AnalysisMetrics.DIFFERENCE_CACHE_HITS, 1);
         return result;
     }
 
@@ -975,7 +1842,19 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the fixed warnings
      */
     private Collection<FileAnnotation> loadFixedWarnings() {
-        Collection<FileAnnotation> difference = history.getFixedWarnings(getProject().getAnnotations());
+        AnalysisMetrics metrics = AnalysisMetrics.getInstance();
+        metrics.count(AnalysisMetrics.DIFFERENCE_CACHE_MISSES, 1);
+        Timer timer = metrics.getTimer(AnalysisMetrics.FIXED_WARNINGS);
+        long start = timer.start();
+
+        Collection<FileAnnotation> difference;
+        if (compacted) {
+            difference = Collections.emptyList();
+        }
+        else {
+            difference = getHistory().getFixedWarnings(getCompleteContainer().getAnnotations());
+        }
+        timer.stop(start);
         fixedWarningsReference = new WeakReference<Collection<FileAnnotation>>(difference);
 
         return difference;
@@ -1000,8 +1879,28 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the dynamic result of the analysis (detail page).
      */
     public Object getDynamic(final String link, final StaplerRequest request, final StaplerResponse response) {
-        return DetailFactory.create(getResultActionType()).createTrendDetails(link, getOwner(), getContainer(), getFixedWarnings(),
-                getNewWarnings(), getErrors(), getDefaultEncoding(), getDisplayName());
+        if (COMPARE_LINK.equals(link)) {
+            return createComparison(request);
+        }
+        if (QUERY_LINK.equals(link)) {
+            return createQueryDetail(request.getParameter("q"));
+        }
+        if (compacted) {
+            return new ErrorDetail(getOwner(), Collections.singletonList(Messages.BuildResult_Compacted()));
+        }
+        Object detail;
+        if (link.startsWith(MODULE_LINK)) {
+            detail = DetailFactory.create(getResultActionType()).createDetails(link, getOwner(),
+                    getModuleContainer(StringUtils.substringAfter(link, MODULE_LINK)), getDefaultEncoding(), getDisplayName());
+        }
+        else {
+            detail = DetailFactory.create(getResultActionType()).createTrendDetails(link, getOwner(), getContainer(),
+                    getFixedWarnings(), getNewWarnings(), getErrors(), getDefaultEncoding(), getDisplayName());
+        }
+        if (detail instanceof AbstractAnnotationsDetail) {
+            ((AbstractAnnotationsDetail)detail).setResult(this);
+        }
+        return detail;
     }
 
     /**
@@ -1032,6 +1931,50 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         return getProject();
     }
 
+    /**
+     * Returns a container with the annotations of the module with the
+     * specified hash code. If the annotations of this result are not in memory
+     * then only the annotations of the selected module are read, provided
+     * that the annotations have been written grouped by module.
+     *
+     * @param hashCode
+     *            the hash code of the module name, as given in the link
+     * @return a container that contains at least the annotations of the
+     *         module
+     */
+    private AnnotationContainer getModuleContainer(final String hashCode) {
+        synchronized (projectLock) {
+            JavaProject loaded = project == null ? null : project.get();
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+        ModuleShards shards = getModuleShards();
+        PersistenceQueue.getInstance().awaitCompletion(shards.getFile());
+        if (shards.exists()) {
+            Timer timer = AnalysisMetrics.getInstance().getTimer(AnalysisMetrics.LOAD_MODULE);
+            long start = timer.start();
+            try {
+                FileAnnotation[] annotations = shards.read(getXStream(), Integer.parseInt(hashCode));
+                if (annotations != null) {
+                    JavaProject module = new JavaProject();
+                    module.addAnnotations(annotations);
+                    return module;
+                }
+            }
+            catch (NumberFormatException exception) {
+                // let the detail factory report the invalid link
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to load module shard of " + shards.getFile(), exception);
+            }
+            finally {
+                timer.stop(start);
+            }
+        }
+        return getContainer();
+    }
+
     /**
      * Gets the remote API for this build result.
      *
@@ -1104,17 +2047,17 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         BuildResultEvaluator resultEvaluator = new BuildResultEvaluator(url);
         Result buildResult;
         StringBuilder messages = new StringBuilder();
-        if (history.isEmpty() || !canComputeNew) {
+        if (getHistory().isEmpty() || !canComputeNew) {
             logger.log("Ignore new warnings since this is the first valid build");
-            buildResult = resultEvaluator.evaluateBuildResult(messages, thresholds, getAnnotations());
+            buildResult = resultEvaluator.evaluateBuildResult(messages, thresholds, getHistogram());
         }
         else if (useDeltaValues) {
-            buildResult = resultEvaluator.evaluateBuildResult(messages, thresholds, getAnnotations(),
+            buildResult = resultEvaluator.evaluateBuildResult(messages, thresholds, getHistogram(),
                     getDelta(), getHighDelta(), getNormalDelta(), getLowDelta());
         }
         else {
             buildResult = resultEvaluator.evaluateBuildResult(messages, thresholds,
-                    getAnnotations(), getNewWarnings());
+                    getHistogram(), getNewHistogram());
         }
         reason = messages.toString();
 
@@ -1137,8 +2080,8 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         pluginResult = result;
         owner.setResult(result);
 
-        if (history.hasPreviousResult()) {
-            BuildResult previous = history.getPreviousResult();
+        if (getHistory().hasPreviousResult()) {
+            BuildResult previous = getHistory().getPreviousResult();
             if (isSuccessful()) {
                 if (previous.isSuccessful() && previous.isSuccessfulTouched()) {
                     successfulSinceBuild = previous.getSuccessfulSinceBuild();
@@ -1198,7 +2141,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return <code>true</code> if there is a previous result available
      */
     public boolean hasPreviousResult() {
-        return history.hasPreviousResult();
+        return getHistory().hasPreviousResult();
     }
 
     /**
@@ -1207,7 +2150,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the previous build result
      */
     public BuildResult getPreviousResult() {
-        return history.getPreviousResult();
+        return getHistory().getPreviousResult();
     }
 
     /**
@@ -43,10 +43,28 @@ public class BuildResultEvaluator {
      */
     public Result evaluateBuildResult(final StringBuilder logger, final Thresholds t,
             final Collection<? extends FileAnnotation> allAnnotations) {
-        if (checkAllWarningsForFailure(logger, t, allAnnotations)) {
+        return evaluateBuildResult(logger, t, new PriorityHistogram(allAnnotations));
+    }
+
+    /**
+     * Evaluates the build result using the number of annotations per
+     * priority. The build is marked as unstable or failed if one of the
+     * thresholds has been exceeded.
+     *
+     * @param logger
+     *            logs the results
+     * @param t
+     *            the thresholds
+     * @param totals
+     *            the number of all annotations
+     * @return the build result
+     */
+    public Result evaluateBuildResult(final StringBuilder logger, final Thresholds t,
+            final PriorityHistogram totals) {
+        if (checkAllWarningsForFailure(logger, t, totals)) {
             return Result.FAILURE;
         }
-        if (checkAllWarningsForUnstable(logger, t, allAnnotations)) {
+        if (checkAllWarningsForUnstable(logger, t, totals)) {
             return Result.UNSTABLE;
         }
 
@@ -76,13 +94,41 @@ public class BuildResultEvaluator {
     public Result evaluateBuildResult(final StringBuilder logger, final Thresholds t,
             final Collection<? extends FileAnnotation> allAnnotations,
             final int delta, final int highDelta, final int normalDelta, final int lowDelta) {
-        if (checkAllWarningsForFailure(logger, t, allAnnotations)) {
+        return evaluateBuildResult(logger, t, new PriorityHistogram(allAnnotations),
+                delta, highDelta, normalDelta, lowDelta);
+    }
+
+    /**
+     * Evaluates the build result using the number of annotations per
+     * priority. The build is marked as unstable or failed if one of the
+     * thresholds has been exceeded.
+     *
+     * @param logger
+     *            logs the results
+     * @param t
+     *            the thresholds
+     * @param totals
+     *            the number of all annotations
+     * @param delta
+     *            delta between this build and reference build
+     * @param highDelta
+     *            delta between this build and reference build (priority high)
+     * @param normalDelta
+     *            delta between this build and reference build (priority normal)
+     * @param lowDelta
+     *            delta between this build and reference build (priority low)
+     * @return the build result
+     */
+    public Result evaluateBuildResult(final StringBuilder logger, final Thresholds t,
+            final PriorityHistogram totals,
+            final int delta, final int highDelta, final int normalDelta, final int lowDelta) {
+        if (checkAllWarningsForFailure(logger, t, totals)) {
             return Result.FAILURE;
         }
         if (checkFailedNew(logger, delta, highDelta, normalDelta, lowDelta, t)) {
             return Result.FAILURE;
         }
-        if (checkAllWarningsForUnstable(logger, t, allAnnotations)) {
+        if (checkAllWarningsForUnstable(logger, t, totals)) {
             return Result.UNSTABLE;
         }
         if (checkUnstableNew(logger, delta, highDelta, normalDelta, lowDelta, t)) {
@@ -109,17 +155,38 @@ public class BuildResultEvaluator {
     public Result evaluateBuildResult(final StringBuilder logger, final Thresholds t,
             final Collection<? extends FileAnnotation> allAnnotations,
             final Collection<FileAnnotation> newAnnotations) {
-        if (checkAllWarningsForFailure(logger, t, allAnnotations)) {
+        return evaluateBuildResult(logger, t, new PriorityHistogram(allAnnotations),
+                new PriorityHistogram(newAnnotations));
+    }
+
+    /**
+     * Evaluates the build result using the number of annotations per
+     * priority. The build is marked as unstable or failed if one of the
+     * thresholds has been exceeded.
+     *
+     * @param logger
+     *            logs the results
+     * @param t
+     *            the thresholds
+     * @param totals
+     *            the number of all annotations
+     * @param newWarnings
+     *            the number of new annotations
+     * @return the build result
+     */
+    public Result evaluateBuildResult(final StringBuilder logger, final Thresholds t,
+            final PriorityHistogram totals, final PriorityHistogram newWarnings) {
+        if (checkAllWarningsForFailure(logger, t, totals)) {
             return Result.FAILURE;
         }
-        if (check(logger, newAnnotations, t.failedNewAll,
+        if (check(logger, newWarnings, t.failedNewAll,
                 t.failedNewHigh, t.failedNewNormal, t.failedNewLow, false)) {
             return Result.FAILURE;
         }
-        if (checkAllWarningsForUnstable(logger, t, allAnnotations)) {
+        if (checkAllWarningsForUnstable(logger, t, totals)) {
             return Result.UNSTABLE;
         }
-        if (check(logger, newAnnotations, t.unstableNewAll,
+        if (check(logger, newWarnings, t.unstableNewAll,
                 t.unstableNewHigh, t.unstableNewNormal, t.unstableNewLow, false)) {
             return Result.UNSTABLE;
         }
@@ -128,14 +195,14 @@ public class BuildResultEvaluator {
     }
 
     private boolean checkAllWarningsForUnstable(final StringBuilder logger, final Thresholds t,
-            final Collection<? extends FileAnnotation> allAnnotations) {
-        return check(logger, allAnnotations, t.unstableTotalAll,
+            final PriorityHistogram totals) {
+        return check(logger, totals, t.unstableTotalAll,
                 t.unstableTotalHigh, t.unstableTotalNormal, t.unstableTotalLow, true);
     }
 
     private boolean checkAllWarningsForFailure(final StringBuilder logger, final Thresholds t,
-            final Collection<? extends FileAnnotation> allAnnotations) {
-        return check(logger, allAnnotations, t.failedTotalAll,
+            final PriorityHistogram totals) {
+        return check(logger, totals, t.failedTotalAll,
                 t.failedTotalHigh, t.failedTotalNormal, t.failedTotalLow, true);
     }
 
@@ -146,7 +213,7 @@ public class BuildResultEvaluator {
         return Result.SUCCESS;
     }
 
-    private boolean check(final StringBuilder logger, final Collection<? extends FileAnnotation> annotations,
+    private boolean check(final StringBuilder logger, final PriorityHistogram annotations,
             final String all, final String high, final String normal, final String low, final boolean isTotals) {
         if (checkThresholds(logger, annotations, all, isTotals, Priority.HIGH, Priority.NORMAL, Priority.LOW)) {
             return true;
@@ -195,9 +262,9 @@ public class BuildResultEvaluator {
         return false;
     }
 
-    private boolean checkThresholds(final StringBuilder logger, final Collection<? extends FileAnnotation> allAnnotations,
+    private boolean checkThresholds(final StringBuilder logger, final PriorityHistogram annotations,
             final String threshold, final boolean isTotals, final Priority... priorities) {
-        return checkThresholds(logger, countAnnotations(allAnnotations, priorities), threshold, isTotals, priorities);
+        return checkThresholds(logger, annotations.getNumberOfAnnotations(priorities), threshold, isTotals, priorities);
     }
 
     private boolean checkThresholds(final StringBuilder logger, final int annotationCount,
@@ -274,26 +341,6 @@ public class BuildResultEvaluator {
         return url + "/" + priority.name();
     }
 
-    /**
-     * Extracts the relevant annotations from the specified collection of
-     * annotations. A annotation is relevant, if its priority is greater or
-     * equal than the minimum priority of the health descriptor.
-     *
-     * @param annotations
-     *            the annotations to consider
-     * @param priorities
-     *            the priorities to count
-     * @return the number of relevant annotations
-     */
-    private int countAnnotations(final Collection<? extends FileAnnotation> annotations, final Priority... priorities) {
-        ParserResult result = new ParserResult(annotations);
-        int annotationCount = 0;
-        for (Priority priority : priorities) {
-            annotationCount += result.getNumberOfAnnotations(priority);
-        }
-        return annotationCount;
-    }
-
     /**
      * Returns whether the new annotation count exceeds the user defined threshold
      * and the build should be set to unstable.
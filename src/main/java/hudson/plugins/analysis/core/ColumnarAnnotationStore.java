@@ -0,0 +1,133 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
+
+import com.thoughtworks.xstream.XStream;
+
+import hudson.Extension;
+import hudson.util.IOException2;
+
+import hudson.plugins.analysis.util.model.AnnotationTable;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Stores the annotations in the binary columnar format of an
+ * {@link AnnotationTable}. A small header with the number of annotations per
+ * priority precedes the compressed table.
+ * <p>
+ * Note that this format is lossy: like an {@link AnnotationTable} it keeps
+ * only the primary line range of each annotation and the loaded annotations
+ * are read-only rows of the table rather than instances of the original
+ * classes. Results written in this format are therefore never migrated to
+ * another store.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class ColumnarAnnotationStore extends AnnotationStore {
+    /** ID of this store. */
+    public static final String ID = "binary";
+    /** Identifies a data file of this store: "ACT1". */
+    private static final int MAGIC = 0x41435431;
+
+    /** {@inheritDoc} */
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getFileName(final String baseName) {
+        return baseName + ".bin";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isLossless() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(final File file, final XStream xstream, final FileAnnotation[] annotations) throws IOException {
+        AnnotationTable table = new AnnotationTable(Arrays.asList(annotations));
+        table.trim();
+
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream header = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            header.writeInt(MAGIC);
+            int[] histogram = table.getPriorityHistogram();
+            header.writeInt(histogram.length);
+            for (int count : histogram) {
+                header.writeInt(count);
+            }
+            header.flush();
+
+            GZIPOutputStream compressed = new GZIPOutputStream(header);
+            ObjectOutputStream stream = new ObjectOutputStream(compressed);
+            stream.writeObject(table);
+            stream.flush();
+            compressed.finish();
+        }
+        finally {
+            header.close();
+        }
+        replace(temporary, file);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public FileAnnotation[] read(final File file, final XStream xstream) throws IOException {
+        AnnotationTable table = readTable(file);
+        FileAnnotation[] annotations = new FileAnnotation[table.size()];
+        for (int row = 0; row < annotations.length; row++) {
+            annotations[row] = table.getAnnotationAt(row);
+        }
+        return annotations;
+    }
+
+    private AnnotationTable readTable(final File file) throws IOException {
+        DataInputStream header = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            readHeader(header, file);
+            ObjectInputStream stream = new ClassLoaderObjectInputStream(getClass().getClassLoader(),
+                    new GZIPInputStream(header));
+            return (AnnotationTable)stream.readObject();
+        }
+        catch (ClassNotFoundException exception) {
+            throw new IOException2(exception);
+        }
+        catch (ClassCastException exception) {
+            throw new IOException2(exception);
+        }
+        finally {
+            header.close();
+        }
+    }
+
+    private void readHeader(final DataInputStream stream, final File file) throws IOException {
+        if (stream.readInt() != MAGIC) {
+            throw new IOException("Not a columnar data file: " + file);
+        }
+        int priorities = stream.readInt();
+        for (int i = 0; i < priorities; i++) {
+            stream.readInt();
+        }
+    }
+}
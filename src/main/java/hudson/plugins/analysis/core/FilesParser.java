@@ -1,8 +1,13 @@
 package hudson.plugins.analysis.core;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 
 import org.apache.commons.lang.ObjectUtils;
@@ -50,6 +55,9 @@ public class FilesParser implements FileCallable<ParserResult> {
 
     private final boolean canResolveRelativePaths;
 
+    /** Identifies the parser and its configuration in the {@link ParseCache}, <code>null</code> if not cacheable. */
+    private transient String parserId;
+
     private FilesParser(final String filePattern, final AnnotationParser parser,
             final boolean isMavenBuild, final String moduleName) {
         this.filePattern = filePattern;
@@ -200,7 +208,9 @@ public class FilesParser implements FileCallable<ParserResult> {
 
     private void parserCollectionOfFiles(final File workspace, final ParserResult result) throws InterruptedException {
         log("Finding all files that match the pattern " + filePattern);
+        long start = System.currentTimeMillis();
         String[] fileNames = new FileFinder(filePattern).find(workspace);
+        result.getTimings().addSince("Finding files", start);
 
         if (fileNames.length == 0) {
             if (isMavenBuild) {
@@ -237,7 +247,9 @@ public class FilesParser implements FileCallable<ParserResult> {
      */
     private void parseFiles(final File workspace, final String[] fileNames,
             final ParserResult result) throws InterruptedException {
+        long start = System.currentTimeMillis();
         ModuleDetector detector = createModuleDetector(workspace);
+        result.getTimings().addSince("Module detection", start);
 
         for (String fileName : fileNames) {
             File file = new File(fileName);
@@ -246,7 +258,9 @@ public class FilesParser implements FileCallable<ParserResult> {
                 file = new File(workspace, fileName);
             }
 
+            long detectionStart = System.currentTimeMillis();
             String module = getModuleName(detector, file);
+            result.getTimings().addSince("Module detection", detectionStart);
 
             if (!file.canRead()) {
                 String message = Messages.FilesParser_Error_NoPermission(module, file);
@@ -265,6 +279,9 @@ public class FilesParser implements FileCallable<ParserResult> {
 
             result.addModule(module);
         }
+        if (ParseCache.getInstance().isEnabled()) {
+            log("Parse cache statistics: " + ParseCache.getInstance().getStatistics());
+        }
     }
 
     private ModuleDetector createModuleDetector(final File workspace) {
@@ -303,11 +320,26 @@ public class FilesParser implements FileCallable<ParserResult> {
     private void parseFile(final File file, final String module, final ParserResult result)
             throws InterruptedException {
         try {
-            Collection<FileAnnotation> annotations = parser.parse(file, module);
-            result.addAnnotations(annotations);
+            Collection<FileAnnotation> annotations = getCachedAnnotations(file, module, result);
+            if (annotations == null) {
+                long start = System.currentTimeMillis();
+                annotations = parser.parse(file, module);
+                result.getTimings().addSince("Parsing", start);
+                result.getTimings().count("Parsed files", 1);
+                if (parserId != null) {
+                    ParseCache.getInstance().put(parserId, file, module, annotations);
+                }
+
+                log("Successfully parsed file " + file + " of module " + module + " with "
+                        + annotations.size() + " warnings.");
+            }
+            else {
+                result.getTimings().count("Cached files", 1);
 
-            log("Successfully parsed file " + file + " of module " + module + " with "
-                    + annotations.size() + " warnings.");
+                log("Skipped parsing of unchanged file " + file + " of module " + module + ", reused "
+                        + annotations.size() + " warnings.");
+            }
+            result.addAnnotations(annotations);
         }
         catch (InvocationTargetException exception) {
             String errorMessage = Messages.FilesParser_Error_Exception(file)
@@ -320,6 +352,63 @@ public class FilesParser implements FileCallable<ParserResult> {
         }
     }
 
+    /**
+     * Returns the annotations of the specified file if the file has not been
+     * changed since it has been parsed the last time with the same parser.
+     *
+     * @param file
+     *            the file to parse
+     * @param module
+     *            the associated module
+     * @param result
+     *            the result of the parser
+     * @return the cached annotations or <code>null</code> if the file needs
+     *         to be parsed
+     */
+    private Collection<FileAnnotation> getCachedAnnotations(final File file, final String module, final ParserResult result) {
+        ParseCache cache = ParseCache.getInstance();
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        if (parserId == null) {
+            parserId = createParserId();
+            if (parserId == null) {
+                return null;
+            }
+        }
+        long start = System.currentTimeMillis();
+        Collection<FileAnnotation> annotations = cache.get(parserId, file, module, parser.getClass().getClassLoader());
+        if (annotations != null) {
+            result.getTimings().addSince("Parse cache", start);
+        }
+        return annotations;
+    }
+
+    /**
+     * Creates the ID of the parser: the class name and a digest of the
+     * serialized parser, so that changes of the configuration of a parser
+     * invalidate the cached results.
+     *
+     * @return the ID or <code>null</code> if the parser can't be serialized
+     */
+    private String createParserId() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream stream = new ObjectOutputStream(bytes);
+            stream.writeObject(parser);
+            stream.close();
+
+            byte[] digest = MessageDigest.getInstance("MD5").digest(bytes.toByteArray());
+            return parser.getClass().getName() + ":" + new BigInteger(1, digest).toString(16);
+        }
+        catch (IOException exception) {
+            return null;
+        }
+        catch (NoSuchAlgorithmException exception) {
+            return null;
+        }
+    }
+
     /**
      * Creates a new instance of {@link FilesParser}.
      *
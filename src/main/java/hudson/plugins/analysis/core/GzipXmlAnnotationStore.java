@@ -0,0 +1,140 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+
+import hudson.Extension;
+import hudson.util.IOException2;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Stores the annotations as gzip compressed XML. The XML content is the same
+ * as in the {@link XmlAnnotationStore}, the files are usually 10 to 20 times
+ * smaller.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class GzipXmlAnnotationStore extends AnnotationStore {
+    /** ID of this store. */
+    public static final String ID = "gzip";
+    private static final String ENCODING = "UTF-8";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getFileName(final String baseName) {
+        return baseName + ".gz";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(final File file, final XStream xstream, final FileAnnotation[] annotations) throws IOException {
+        writeXml(file, xstream, annotations);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public FileAnnotation[] read(final File file, final XStream xstream) throws IOException {
+        return (FileAnnotation[])readXml(file, xstream);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public byte[] encode(final XStream xstream, final FileAnnotation[] annotations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeXml(bytes, xstream, annotations);
+        return bytes.toByteArray();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public FileAnnotation[] decode(final byte[] content, final XStream xstream) throws IOException {
+        return (FileAnnotation[])readXml(new ByteArrayInputStream(content), xstream);
+    }
+
+    /**
+     * Writes the specified object as gzip compressed XML to the specified
+     * file. The file is replaced after the object has been written
+     * completely.
+     *
+     * @param file
+     *            the file to write
+     * @param xstream
+     *            the stream to use
+     * @param value
+     *            the object to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    static void writeXml(final File file, final XStream xstream, final Object value) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        writeXml(new FileOutputStream(temporary), xstream, value);
+        replace(temporary, file);
+    }
+
+    private static void writeXml(final OutputStream output, final XStream xstream, final Object value) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(output), ENCODING));
+        try {
+            writer.write("<?xml version='1.0' encoding='" + ENCODING + "'?>\n");
+            xstream.toXML(value, writer);
+        }
+        catch (XStreamException exception) {
+            throw new IOException2(exception);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Reads an object from the specified file with gzip compressed XML.
+     *
+     * @param file
+     *            the file to read
+     * @param xstream
+     *            the stream to use
+     * @return the object
+     * @throws IOException
+     *             if the file could not be read
+     */
+    static Object readXml(final File file, final XStream xstream) throws IOException {
+        return readXml(new FileInputStream(file), xstream);
+    }
+
+    private static Object readXml(final InputStream input, final XStream xstream) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(input), ENCODING));
+        try {
+            return xstream.fromXML(reader);
+        }
+        catch (XStreamException exception) {
+            throw new IOException2(exception);
+        }
+        finally {
+            reader.close();
+        }
+    }
+}
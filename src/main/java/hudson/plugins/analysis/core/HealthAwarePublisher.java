@@ -7,6 +7,7 @@ import hudson.Launcher;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
+import hudson.plugins.analysis.util.PhaseTimings;
 import hudson.plugins.analysis.util.PluginLogger;
 
 import hudson.tasks.BuildStep;
@@ -143,7 +144,12 @@ public abstract class HealthAwarePublisher extends HealthAwareRecorder {
             final PluginLogger logger) throws IOException, InterruptedException {
         BuildResult result;
         try {
+            long start = System.currentTimeMillis();
             result = perform(build, logger);
+            PhaseTimings analysisTimings = result.getTimings();
+            logger.getTimings().addAll(analysisTimings);
+            logger.getTimings().add("Other analysis steps",
+                    Math.max(0, System.currentTimeMillis() - start - analysisTimings.getTotalDuration()));
             AbstractBuild<?, ?> referenceBuild = result.getHistory().getReferenceBuild();
             if (referenceBuild != null) {
                 logger.log("Computing warning deltas based on reference build " + referenceBuild.getDisplayName());
@@ -156,12 +162,17 @@ public abstract class HealthAwarePublisher extends HealthAwareRecorder {
         }
 
         if (isThresholdEnabled()) {
+            logger.startPhase("Evaluating thresholds");
             updateBuildResult(result, logger);
         }
 
+        logger.startPhase("Copying sources");
         copyFilesWithAnnotationsToBuildFolder(build.getRootDir(), launcher.getChannel(),
                 result.getAnnotations());
 
+        logger.logTimings();
+        result.setTimings(logger.getTimings());
+
         return true;
     }
 
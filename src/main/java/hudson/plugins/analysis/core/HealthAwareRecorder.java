@@ -361,6 +361,45 @@ public abstract class HealthAwareRecorder extends Recorder implements HealthDesc
         return (PluginDescriptor)super.getDescriptor();
     }
 
+    /**
+     * Parses the files of the workspace with the specified parser using a
+     * single remote call, see {@link AnalysisPipeline}. Besides parsing, the
+     * pipeline creates the context hash codes of the warnings and copies the
+     * files with warnings to the build folder. Subclasses can call this method
+     * in {@link HealthAwarePublisher#perform(AbstractBuild, PluginLogger)}
+     * instead of invoking a {@link FilesParser} and an
+     * {@link AnnotationsClassifier} one after the other.
+     *
+     * @param build
+     *            the build
+     * @param parser
+     *            the parser to use
+     * @return the parsed and classified annotations
+     * @throws IOException
+     *             if the files could not be read
+     * @throws InterruptedException
+     *             if the user cancels the processing
+     */
+    protected ParserResult analyze(final AbstractBuild<?, ?> build, final FilesParser parser)
+            throws IOException, InterruptedException {
+        AnalysisPipeline pipeline = new AnalysisPipeline(parser, getDefaultEncoding(), build.getRootDir());
+        boolean isComplete = false;
+        try {
+            ParserResult result = build.getWorkspace().act(pipeline);
+            isComplete = true;
+
+            return result;
+        }
+        finally {
+            if (isComplete) {
+                pipeline.extractSources();
+            }
+            else {
+                pipeline.discardSources();
+            }
+        }
+    }
+
     /**
      * Copies all files with annotations from the workspace to the build folder.
      *
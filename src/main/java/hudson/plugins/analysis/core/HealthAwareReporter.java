@@ -337,7 +337,10 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
         });
         logger.logLines(resultLog);
 
+        logger.getTimings().addAll(result.getTimings());
+        logger.startPhase("Copying sources");
         copyFilesWithAnnotationsToBuildFolder(logger, build.getRootDir(), result.getAnnotations());
+        logger.logTimings();
 
         return true;
     }
@@ -5,7 +5,6 @@ import java.io.Serializable;
 import hudson.model.HealthReport;
 
 import hudson.plugins.analysis.util.model.AnnotationProvider;
-import hudson.plugins.analysis.util.model.Priority;
 
 /**
  * Creates a health report for integer values based on healthy and unhealthy
@@ -42,12 +41,24 @@ public class HealthReportBuilder implements Serializable {
      * @return the healthiness of a build
      */
     public HealthReport computeHealth(final AnnotationProvider result) {
-        int numberOfAnnotations = 0;
-        for (Priority priority : Priority.collectPrioritiesFrom(healthDescriptor.getMinimumPriority())) {
-            numberOfAnnotations += result.getNumberOfAnnotations(priority);
-        }
+        return computeHealth(new PriorityHistogram(result), result);
+    }
 
-        return computeHealth(numberOfAnnotations, result);
+    /**
+     * Computes the healthiness of a build based on the specified number of
+     * annotations per priority. The computation takes only annotations of the
+     * minimum priority of the health descriptor or a higher priority into
+     * account. The annotations of the result are not loaded.
+     *
+     * @param histogram
+     *            the number of annotations of the current build per priority
+     * @param result
+     *            annotations of the current build, used to create the
+     *            description of the report
+     * @return the healthiness of a build
+     */
+    public HealthReport computeHealth(final PriorityHistogram histogram, final AnnotationProvider result) {
+        return computeHealth(histogram.getNumberOfAnnotationsFrom(healthDescriptor.getMinimumPriority()), result);
     }
 
     /**
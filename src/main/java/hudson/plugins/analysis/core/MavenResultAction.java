@@ -2,6 +2,8 @@ package hudson.plugins.analysis.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,6 +50,13 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
     private transient Set<MavenModule> modules = Sets.newHashSet();
     private final transient String pluginName;
 
+    /** Annotations of all aggregated modules, the module results are appended incrementally. */
+    private transient ParserResult aggregatedAnnotations;
+    /** The module results that are part of {@link #aggregatedAnnotations}. */
+    private transient Set<BuildResult> aggregatedResults;
+    /** The last module result that has not been published in the aggregated result yet. */
+    private transient T pendingResult;
+
     /**
      * Creates a new instance of {@link MavenResultAction}.
      *
@@ -102,20 +111,107 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
      * @param newBuild
      *            Newly completed build.
      */
-    public void update(final Map<MavenModule, List<MavenBuild>> moduleBuilds, final MavenBuild newBuild) {
+    public synchronized void update(final Map<MavenModule, List<MavenBuild>> moduleBuilds, final MavenBuild newBuild) {
         MavenResultAction<T> additionalAction = newBuild.getAction(getIndividualActionType());
         MavenModule project = newBuild.getProject();
         if (additionalAction != null && !getModules().contains(project)) {
-            T existingResult = delegate.getResult();
             T additionalResult = additionalAction.getResult();
 
             if (newBuild.getResult().isBetterThan(Result.FAILURE) || additionalResult.getPluginResult().isWorseOrEqualTo(Result.FAILURE)) {
                 getModules().add(project);
-                setResult(createAggregatedResult(existingResult, additionalResult));
+                append(additionalResult);
+                pendingResult = additionalResult;
 
                 copySourceFilesToModuleBuildFolder(newBuild);
             }
         }
+        if (pendingResult != null && isModuleSetComplete(moduleBuilds, newBuild)) {
+            publishPendingResult();
+            try {
+                getOwner().save();
+            }
+            catch (IOException exception) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, "Can't save the aggregated result: ", exception);
+            }
+        }
+    }
+
+    /**
+     * Appends the annotations of the specified module result to the aggregated
+     * annotations. Only the annotations of the new module are copied, the
+     * annotations of the already aggregated modules are reused.
+     *
+     * @param additionalResult
+     *            the module result to append
+     */
+    private void append(final T additionalResult) {
+        if (aggregatedAnnotations == null) {
+            aggregatedAnnotations = new ParserResult();
+            aggregatedResults = Collections.newSetFromMap(new IdentityHashMap<BuildResult, Boolean>());
+
+            T existingResult = delegate.getResult();
+            if (existingResult != null) {
+                appendResult(existingResult);
+            }
+        }
+        appendResult(additionalResult);
+    }
+
+    private void appendResult(final BuildResult result) {
+        aggregatedAnnotations.addAnnotations(result.getAnnotations());
+        aggregatedAnnotations.addModules(result.getModules());
+        aggregatedAnnotations.addErrors(result.getErrors());
+        aggregatedResults.add(result);
+    }
+
+    /**
+     * Returns whether all module builds of the module set are completed.
+     *
+     * @param moduleBuilds
+     *            the builds of all modules
+     * @param newBuild
+     *            the newly completed build
+     * @return <code>true</code> if no other module is building anymore
+     */
+    private boolean isModuleSetComplete(final Map<MavenModule, List<MavenBuild>> moduleBuilds, final MavenBuild newBuild) {
+        for (List<MavenBuild> builds : moduleBuilds.values()) {
+            for (MavenBuild build : builds) {
+                if (build != newBuild && build.isBuilding()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the aggregated result of all modules that have been appended so
+     * far. The new and fixed warnings are computed only once for all modules
+     * that have been completed since the last publication. The published
+     * result is part of the aggregated annotations, so the next publication
+     * reuses these annotations as well.
+     */
+    private synchronized void publishPendingResult() {
+        if (pendingResult != null) {
+            T additionalResult = pendingResult;
+            pendingResult = null;
+
+            T publishedResult = createAggregatedResult(delegate.getResult(), additionalResult);
+            aggregatedResults.add(publishedResult);
+            setResult(publishedResult);
+        }
+    }
+
+    /**
+     * Returns the delegate after the pending module results have been
+     * published.
+     *
+     * @return the delegate
+     */
+    private AbstractResultAction<T> getDelegate() {
+        publishPendingResult();
+
+        return delegate;
     }
 
     private void copySourceFilesToModuleBuildFolder(final MavenBuild newBuild) {
@@ -141,7 +237,11 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
     }
 
     /**
-     * Aggregates the results in a new instance of {@link ParserResult}.
+     * Aggregates the results in an instance of {@link ParserResult}. If the
+     * additional result already has been appended by
+     * {@link #update(Map, MavenBuild)} then the incrementally aggregated
+     * annotations of all appended modules are returned, otherwise a new
+     * instance is created.
      *
      * @param existingResult
      *            an already existing result, might be <code>null</code> for the
@@ -152,7 +252,11 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
      * @return the aggregated result
      */
     protected ParserResult aggregate(@CheckForNull final T existingResult, final T additionalResult) {
-        ParserResult aggregatedAnnotations = new ParserResult();
+        if (aggregatedResults != null && aggregatedResults.contains(additionalResult)) {
+            return aggregatedAnnotations;
+        }
+
+        ParserResult aggregatedAnnotations = new ParserResult(); // NOPMD
 
         List<BuildResult> results = Lists.newArrayList();
         if (existingResult != null) {
@@ -231,7 +335,7 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
 
     /** {@inheritDoc} */
     public String getIconFileName() {
-        return delegate.getIconFileName();
+        return getDelegate().getIconFileName();
     }
 
     /** {@inheritDoc} */
@@ -250,7 +354,7 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
     }
 
     public T getResult() {
-        return delegate.getResult();
+        return getDelegate().getResult();
     }
 
     /**
@@ -268,7 +372,7 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
      * @return the health of this action
      */
     public final HealthReport getBuildHealth() {
-        return delegate.getBuildHealth();
+        return getDelegate().getBuildHealth();
     }
 
     public ToolTipProvider getToolTipProvider() {
@@ -280,7 +384,7 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
     }
 
     public final Object getTarget() {
-        return delegate.getTarget();
+        return getDelegate().getTarget();
     }
 
     /**
@@ -291,11 +395,11 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
      * @return the tooltip for the specified items
      */
     public String getTooltip(final int numberOfItems) {
-        return delegate.getTooltip(numberOfItems);
+        return getDelegate().getTooltip(numberOfItems);
     }
 
     public boolean isSuccessful() {
-        return delegate.isSuccessful();
+        return getDelegate().isSuccessful();
     }
 
     public AbstractHealthDescriptor getHealthDescriptor() {
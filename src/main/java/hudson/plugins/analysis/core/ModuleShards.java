@@ -0,0 +1,343 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.thoughtworks.xstream.XStream;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.IOException2;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Stores the annotations of a build result grouped by module in a single
+ * file, so that the annotations of one module can be read without reading
+ * the annotations of all other modules. The file starts with an index that
+ * contains the name, hash code, number of annotations and the position of
+ * each shard. Each shard contains the annotations of one module as gzip
+ * compressed XML. The shards are encoded in parallel.
+ * <p>
+ * The annotations of results with several modules are stored in the shard
+ * file only, so {@link #readAll(XStream)} reads all shards if all annotations
+ * are required.
+ * <p>
+ * The shards are encoded with the selected {@link AnnotationStore}, the ID of
+ * the store is part of the index. Shard files that have been written before
+ * the store has been part of the index contain gzip compressed XML.
+ *
+ * @author Ulli Hafner
+ */
+public final class ModuleShards {
+    /** Identifies a shard file: "AMS2". */
+    private static final int MAGIC = 0x414d5332;
+    /** Identifies a shard file with gzip compressed XML shards: "AMS1". */
+    private static final int MAGIC_GZIP = 0x414d5331;
+    /** Size of the magic number and the length of the index. */
+    private static final int HEADER_SIZE = 8;
+    /** Encodes the shards of a result. */
+    private static final ExecutorService ENCODER = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()), new DaemonThreadFactory());
+
+    /**
+     * Returns the name of the shard file for the specified base name.
+     *
+     * @param baseName
+     *            the base name of the data file, as provided by
+     *            {@link BuildResult#getSerializationFileName()}
+     * @return the file name
+     */
+    public static String getFileName(final String baseName) {
+        return baseName + ".modules";
+    }
+
+    private final File file;
+    /** The store that encodes new shards. */
+    private final AnnotationStore store;
+
+    /**
+     * Creates a new instance of {@link ModuleShards}.
+     *
+     * @param file
+     *            the shard file
+     * @param store
+     *            the store that encodes the shards when the file is written,
+     *            existing files are read with the store that has written them
+     */
+    public ModuleShards(final File file, final AnnotationStore store) {
+        this.file = file;
+        this.store = store;
+    }
+
+    /**
+     * Returns the shard file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns whether the shard file exists.
+     *
+     * @return <code>true</code> if the file exists
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Writes the annotations grouped by module to the shard file.
+     *
+     * @param xstream
+     *            the stream to use
+     * @param annotations
+     *            the annotations to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void write(final XStream xstream, final FileAnnotation[] annotations) throws IOException {
+        Map<String, List<FileAnnotation>> modules = Maps.newTreeMap();
+        for (FileAnnotation annotation : annotations) {
+            String moduleName = annotation.getModuleName();
+            if (!modules.containsKey(moduleName)) {
+                modules.put(moduleName, Lists.<FileAnnotation>newArrayList());
+            }
+            modules.get(moduleName).add(annotation);
+        }
+
+        List<Future<byte[]>> encoded = Lists.newArrayList();
+        for (final List<FileAnnotation> module : modules.values()) {
+            encoded.add(ENCODER.submit(new Callable<byte[]>() {
+                public byte[] call() throws IOException {
+                    return store.encode(xstream, module.toArray(new FileAnnotation[module.size()]));
+                }
+            }));
+        }
+        List<byte[]> shards = Lists.newArrayList();
+        for (Future<byte[]> shard : encoded) {
+            shards.add(get(shard));
+        }
+
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        index.writeUTF(store.getId());
+        index.writeInt(modules.size());
+        long offset = 0;
+        int position = 0;
+        for (Map.Entry<String, List<FileAnnotation>> module : modules.entrySet()) {
+            int length = shards.get(position++).length;
+            index.writeUTF(module.getKey());
+            index.writeInt(module.getValue().size());
+            index.writeLong(offset);
+            index.writeInt(length);
+            offset += length;
+        }
+        index.close();
+
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeInt(indexBytes.size());
+            indexBytes.writeTo(stream);
+            for (byte[] shard : shards) {
+                stream.write(shard);
+            }
+        }
+        finally {
+            stream.close();
+        }
+        AnnotationStore.replace(temporary, file);
+    }
+
+    private byte[] get(final Future<byte[]> shard) throws IOException {
+        try {
+            return shard.get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException2(exception);
+        }
+        catch (ExecutionException exception) {
+            throw new IOException2(exception.getCause());
+        }
+    }
+
+    /**
+     * Reads the index of the shard file.
+     *
+     * @return the shards of the file, mapped by the hash code of the module
+     *         name
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public Map<Integer, Shard> readIndex() throws IOException {
+        Map<Integer, Shard> index = Maps.newHashMap();
+        for (Shard shard : readShards()) {
+            index.put(shard.getModuleName().hashCode(), shard);
+        }
+        return index;
+    }
+
+    private List<Shard> readShards() throws IOException {
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            int magic = stream.readInt();
+            if (magic != MAGIC && magic != MAGIC_GZIP) {
+                throw new IOException("Not a module shard file: " + file);
+            }
+            long start = HEADER_SIZE + stream.readInt();
+            AnnotationStore encoding;
+            if (magic == MAGIC) {
+                encoding = AnnotationStore.getStore(stream.readUTF());
+            }
+            else {
+                encoding = new GzipXmlAnnotationStore();
+            }
+            int size = stream.readInt();
+            List<Shard> shards = Lists.newArrayListWithCapacity(size);
+            for (int i = 0; i < size; i++) {
+                String moduleName = stream.readUTF();
+                shards.add(new Shard(moduleName, stream.readInt(), start + stream.readLong(), stream.readInt(), encoding));
+            }
+            return shards;
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the annotations of the module with the specified hash code.
+     *
+     * @param xstream
+     *            the stream to use
+     * @param hashCode
+     *            the hash code of the module name
+     * @return the annotations of the module or <code>null</code> if there is
+     *         no such module
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public FileAnnotation[] read(final XStream xstream, final int hashCode) throws IOException {
+        Shard shard = readIndex().get(hashCode);
+        if (shard == null) {
+            return null;
+        }
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            return read(xstream, input, shard);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads the annotations of all modules.
+     *
+     * @param xstream
+     *            the stream to use
+     * @return the annotations
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public FileAnnotation[] readAll(final XStream xstream) throws IOException {
+        List<FileAnnotation> annotations = Lists.newArrayList();
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            for (Shard shard : readShards()) {
+                annotations.addAll(Arrays.asList(read(xstream, input, shard)));
+            }
+        }
+        finally {
+            input.close();
+        }
+        return annotations.toArray(new FileAnnotation[annotations.size()]);
+    }
+
+    private FileAnnotation[] read(final XStream xstream, final RandomAccessFile input, final Shard shard) throws IOException {
+        byte[] content = new byte[shard.getLength()];
+        input.seek(shard.getOffset());
+        input.readFully(content);
+
+        return shard.store.decode(content, xstream);
+    }
+
+    /**
+     * An entry of the index of a shard file.
+     */
+    public static final class Shard {
+        private final String moduleName;
+        private final int numberOfAnnotations;
+        private final long offset;
+        private final int length;
+        /** The store that has encoded the shard. */
+        private final AnnotationStore store;
+
+        Shard(final String moduleName, final int numberOfAnnotations, final long offset, final int length,
+                final AnnotationStore store) {
+            this.moduleName = moduleName;
+            this.numberOfAnnotations = numberOfAnnotations;
+            this.offset = offset;
+            this.length = length;
+            this.store = store;
+        }
+
+        /**
+         * Returns the name of the module.
+         *
+         * @return the module name
+         */
+        public String getModuleName() {
+            return moduleName;
+        }
+
+        /**
+         * Returns the number of annotations of the module.
+         *
+         * @return the number of annotations
+         */
+        public int getNumberOfAnnotations() {
+            return numberOfAnnotations;
+        }
+
+        /**
+         * Returns the position of the shard in the file.
+         *
+         * @return the offset in bytes
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the size of the shard.
+         *
+         * @return the length in bytes
+         */
+        public int getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package hudson.plugins.analysis.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Caches the annotations of parsed report files on the node that parses the
+ * files. Incremental builds often leave most report files untouched; such
+ * files are not parsed again if the path, size and modification time of the
+ * file, the module name and the configuration of the parser are the same as in
+ * a previous build. The annotations are stored in a compressed serialized
+ * form, so each build gets its own copies of the cached annotations.
+ * <p>
+ * The total size of the cache is limited by the system property
+ * <code>hudson.plugins.analysis.core.ParseCache.maxSize</code> (in bytes,
+ * default 64 MB). If the limit is exceeded, the least recently used entries
+ * are removed. A size of 0 disables the cache.
+ *
+ * @author Ulli Hafner
+ */
+public final class ParseCache {
+    private static final int DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+    private static final ParseCache INSTANCE = new ParseCache(
+            Long.getLong(ParseCache.class.getName() + ".maxSize", DEFAULT_MAX_SIZE));
+
+    /**
+     * Returns the cache of this JVM.
+     *
+     * @return the shared cache
+     */
+    public static ParseCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** Maximum total size of the cached entries in bytes. */
+    private final long maxSize;
+    /** Cached entries in access order. */
+    private final Map<Key, byte[]> entries = new LinkedHashMap<Key, byte[]>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a new instance of {@link ParseCache}.
+     *
+     * @param maxSize
+     *            maximum total size of the cached entries in bytes, 0 disables
+     *            the cache
+     */
+    ParseCache(final long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns whether this cache is enabled.
+     *
+     * @return <code>true</code> if this cache stores results
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Returns a copy of the cached annotations of the specified file.
+     *
+     * @param parserId
+     *            identifies the parser and its configuration
+     * @param file
+     *            the report file
+     * @param module
+     *            the module of the file
+     * @param classLoader
+     *            the class loader to resolve the classes of the annotations
+     * @return the annotations or <code>null</code> if the file is not cached
+     *         or has been changed since it has been cached
+     */
+    public Collection<FileAnnotation> get(final String parserId, final File file, final String module,
+            final ClassLoader classLoader) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Key key = new Key(parserId, file, module);
+        byte[] payload;
+        synchronized (this) {
+            payload = entries.get(key);
+            if (payload == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        try {
+            return decode(payload, classLoader);
+        }
+        catch (IOException exception) {
+            remove(key);
+        }
+        catch (ClassNotFoundException exception) {
+            remove(key);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the annotations of the specified file.
+     *
+     * @param parserId
+     *            identifies the parser and its configuration
+     * @param file
+     *            the report file
+     * @param module
+     *            the module of the file
+     * @param annotations
+     *            the annotations of the file
+     */
+    public void put(final String parserId, final File file, final String module,
+            final Collection<FileAnnotation> annotations) {
+        if (!isEnabled()) {
+            return;
+        }
+        byte[] payload;
+        try {
+            payload = encode(annotations);
+        }
+        catch (IOException exception) {
+            return; // annotations that can't be serialized are not cached
+        }
+        if (payload.length > maxSize) {
+            return;
+        }
+        Key key = new Key(parserId, file, module);
+        synchronized (this) {
+            byte[] previous = entries.put(key, payload);
+            if (previous != null) {
+                size -= previous.length;
+            }
+            size += payload.length;
+
+            Iterator<byte[]> eldest = entries.values().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                size -= eldest.next().length;
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private synchronized void remove(final Key key) {
+        byte[] payload = entries.remove(key);
+        if (payload != null) {
+            size -= payload.length;
+        }
+    }
+
+    /**
+     * Returns the number of cache hits.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of cache misses.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries that have been removed because the cache
+     * has been full.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of cached files.
+     *
+     * @return the number of entries
+     */
+    public synchronized int getNumberOfEntries() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total size of the cached entries.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a summary of the statistics of this cache.
+     *
+     * @return the statistics
+     */
+    public synchronized String getStatistics() {
+        return String.format("%d hits, %d misses, %d evictions, %d entries, %d of %d KB used",
+                hits, misses, evictions, entries.size(), size / 1024, maxSize / 1024);
+    }
+
+    private static byte[] encode(final Collection<FileAnnotation> annotations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream stream = new ObjectOutputStream(new GZIPOutputStream(bytes));
+        try {
+            stream.writeObject(new ArrayList<FileAnnotation>(annotations));
+        }
+        finally {
+            stream.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<FileAnnotation> decode(final byte[] payload, final ClassLoader classLoader)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream stream = new ClassLoaderObjectInputStream(classLoader,
+                new GZIPInputStream(new ByteArrayInputStream(payload)));
+        try {
+            return (Collection<FileAnnotation>)stream.readObject();
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Identifies a report file in a given state.
+     */
+    private static final class Key {
+        private final String parserId;
+        private final String path;
+        private final String module;
+        private final long length;
+        private final long lastModified;
+
+        Key(final String parserId, final File file, final String module) {
+            this.parserId = parserId;
+            this.module = module;
+            path = file.getAbsolutePath();
+            length = file.length();
+            lastModified = file.lastModified();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = path.hashCode();
+            result = 31 * result + parserId.hashCode();
+            result = 31 * result + (module == null ? 0 : module.hashCode());
+            result = 31 * result + (int)(length ^ (length >>> 32));
+            result = 31 * result + (int)(lastModified ^ (lastModified >>> 32));
+            return result;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return path.equals(other.path) && parserId.equals(other.parserId)
+                    && (module == null ? other.module == null : module.equals(other.module))
+                    && length == other.length && lastModified == other.lastModified;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package hudson.plugins.analysis.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,8 +17,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
 import org.apache.commons.lang.StringUtils;
 
 import com.google.common.collect.HashMultimap;
@@ -25,14 +33,24 @@ import com.google.common.collect.Multimap;
 import edu.umd.cs.findbugs.annotations.SuppressWarnings;
 import hudson.FilePath;
 
+import hudson.model.Hudson;
+
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.util.FileFinder;
+import hudson.plugins.analysis.util.PhaseTimings;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
 /**
  * Stores the collection of parsed annotations and associated error messages.
  * This class is not thread safe.
+ * <p>
+ * When serialized (e.g., when sent from a slave to the master) the annotations
+ * are written as a compressed payload: the strings of the annotations are
+ * interned first, so that equal file names, modules, packages and messages are
+ * written only once. The payload is decoded on first access of the
+ * annotations. The cache of workspace file names is not serialized.
  *
  * @author Ulli Hafner
  */
@@ -41,9 +59,11 @@ public class ParserResult implements Serializable {
     private static final Logger LOGGER = Logger.getLogger(ParserResult.class.getName());
     private static final String SLASH = "/";
 
-    /** The parsed annotations. */
+    /** The parsed annotations, <code>null</code> if not yet decoded from {@link #encodedAnnotations}. */
     @SuppressWarnings("Se")
-    private final Set<FileAnnotation> annotations = new HashSet<FileAnnotation>();
+    private transient Set<FileAnnotation> annotations = new HashSet<FileAnnotation>();
+    /** The serialized and compressed annotations, <code>null</code> if already decoded. */
+    private transient byte[] encodedAnnotations;
     /** The collection of error messages. */
     @SuppressWarnings("Se")
     private final List<String> errorMessages = new ArrayList<String>();
@@ -56,12 +76,13 @@ public class ParserResult implements Serializable {
     /** The workspace. */
     private final Workspace workspace;
     /** A mapping of relative file names to absolute file names. */
-    @SuppressWarnings("Se")
-    private final Multimap<String, String> fileNameCache = HashMultimap.create();
+    private transient Multimap<String, String> fileNameCache;
     /** The log messages. @since 1.20 **/
     private String logMessage;
     /** Total number of modules. @since 1.31 **/
     private int numberOfModules;
+    /** The time spent in the phases that created this result. */
+    private PhaseTimings timings = new PhaseTimings();
 
     /**
      * Creates a new instance of {@link ParserResult}.
@@ -117,6 +138,7 @@ public class ParserResult implements Serializable {
         addAnnotations(additionalProject.getAnnotations());
         addErrors(additionalProject.getErrorMessages());
         addModules(additionalProject.getModules());
+        getTimings().addAll(additionalProject.getTimings());
     }
 
     /**
@@ -126,8 +148,10 @@ public class ParserResult implements Serializable {
      */
     // TODO: this method is quite dump: when used on a slave then for each file a remote call is initiated
     private void expandRelativePaths(final FileAnnotation annotation) {
+        long start = System.currentTimeMillis();
         try {
             if (hasRelativeFileName(annotation)) {
+                getTimings().count("Relative paths", 1);
                 Workspace remoteFile = workspace.child(annotation.getFileName());
                 if (remoteFile.exists()) {
                     annotation.setFileName(remoteFile.getPath());
@@ -143,6 +167,7 @@ public class ParserResult implements Serializable {
         catch (InterruptedException exception) {
             // ignore
         }
+        getTimings().addSince("Path resolution", start);
     }
 
     /**
@@ -157,7 +182,8 @@ public class ParserResult implements Serializable {
      *             If the user cancels this action
      */
     private void findFileByScanningAllWorkspaceFiles(final FileAnnotation annotation) throws IOException, InterruptedException {
-        if (fileNameCache.isEmpty()) {
+        if (fileNameCache == null) {
+            fileNameCache = HashMultimap.create();
             populateFileNameCache();
         }
 
@@ -199,6 +225,7 @@ public class ParserResult implements Serializable {
     private void populateFileNameCache() throws IOException, InterruptedException {
         LOGGER.log(Level.FINE, "Building cache of all workspace files to obtain absolute filenames for all warnings: " + workspace.getPath());
 
+        getTimings().count("Workspace scans", 1);
         String[] allFiles = workspace.findFiles("**/*");
         for (String file : allFiles) {
             fileNameCache.put(FilenameUtils.getName(file), FilenameUtils.separatorsToUnix(file));
@@ -223,10 +250,10 @@ public class ParserResult implements Serializable {
      * @param annotation the annotation to add
      */
     public final void addAnnotation(final FileAnnotation annotation) {
-        if (!annotations.contains(annotation)) {
+        if (!getAnnotationSet().contains(annotation)) {
             expandRelativePaths(annotation);
 
-            annotations.add(annotation);
+            getAnnotationSet().add(annotation);
             Integer count = annotationCountByPriority.get(annotation.getPriority());
             annotationCountByPriority.put(annotation.getPriority(), count + 1);
         }
@@ -298,7 +325,29 @@ public class ParserResult implements Serializable {
      * @return the annotations of this result
      */
     public Set<FileAnnotation> getAnnotations() {
-        return ImmutableSet.copyOf(annotations);
+        return ImmutableSet.copyOf(getAnnotationSet());
+    }
+
+    /**
+     * Returns the annotations of this result. If the annotations have been
+     * received in encoded form, then they are decoded now.
+     *
+     * @return the annotations
+     */
+    private Set<FileAnnotation> getAnnotationSet() {
+        if (annotations == null) {
+            try {
+                annotations = decode(encodedAnnotations);
+                encodedAnnotations = null;
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException("Can't decode the annotations of the parser result.", exception);
+            }
+            catch (ClassNotFoundException exception) {
+                throw new IllegalStateException("Can't decode the annotations of the parser result.", exception);
+            }
+        }
+        return annotations;
     }
 
     /**
@@ -307,7 +356,11 @@ public class ParserResult implements Serializable {
      * @return total number of annotations for this object
      */
     public int getNumberOfAnnotations() {
-        return annotations.size();
+        int size = 0;
+        for (Integer count : annotationCountByPriority.values()) {
+            size += count;
+        }
+        return size;
     }
 
     /**
@@ -329,7 +382,7 @@ public class ParserResult implements Serializable {
      * @return <code>true</code> if this objects has annotations.
      */
     public boolean hasAnnotations() {
-        return !annotations.isEmpty();
+        return getNumberOfAnnotations() > 0;
     }
 
     /**
@@ -408,6 +461,18 @@ public class ParserResult implements Serializable {
         return getNumberOfAnnotations() + " annotations";
     }
 
+    /**
+     * Returns the time spent in the phases that created this result.
+     *
+     * @return the timings
+     */
+    public PhaseTimings getTimings() {
+        if (timings == null) {
+            timings = new PhaseTimings();
+        }
+        return timings;
+    }
+
     /**
      * Sets the log messages of the parsing process.
      *
@@ -428,6 +493,110 @@ public class ParserResult implements Serializable {
         return StringUtils.defaultString(logMessage);
     }
 
+    /**
+     * Writes this result. The annotations are written as compressed payload.
+     *
+     * @param output
+     *            the stream to write to
+     * @throws IOException
+     *             if the result could not be written
+     */
+    private void writeObject(final ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+
+        byte[] payload;
+        if (annotations == null) {
+            payload = encodedAnnotations;
+        }
+        else {
+            payload = encode(annotations);
+        }
+        output.writeInt(payload.length);
+        output.write(payload);
+    }
+
+    /**
+     * Reads this result. The annotations will be decoded on first access.
+     *
+     * @param input
+     *            the stream to read from
+     * @throws IOException
+     *             if the result could not be read
+     * @throws ClassNotFoundException
+     *             if a class of the result could not be found
+     */
+    private void readObject(final ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+
+        encodedAnnotations = new byte[input.readInt()];
+        input.readFully(encodedAnnotations);
+        annotations = null;
+    }
+
+    /**
+     * Encodes the specified annotations: the strings of the annotations are
+     * interned and the serialized annotations are compressed.
+     *
+     * @param values
+     *            the annotations to encode
+     * @return the encoded annotations
+     * @throws IOException
+     *             if the annotations could not be serialized
+     */
+    private static byte[] encode(final Set<FileAnnotation> values) throws IOException {
+        FileAnnotation[] interned = AbstractAnnotation.intern(values).toArray(new FileAnnotation[values.size()]);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream stream = new ObjectOutputStream(new GZIPOutputStream(bytes));
+        try {
+            stream.writeObject(interned);
+        }
+        finally {
+            stream.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the specified annotations.
+     *
+     * @param payload
+     *            the encoded annotations
+     * @return the annotations
+     * @throws IOException
+     *             if the annotations could not be read
+     * @throws ClassNotFoundException
+     *             if the class of an annotation could not be found
+     */
+    private static Set<FileAnnotation> decode(final byte[] payload) throws IOException, ClassNotFoundException {
+        ObjectInputStream stream = new ClassLoaderObjectInputStream(getClassLoader(),
+                new GZIPInputStream(new ByteArrayInputStream(payload)));
+        try {
+            return new HashSet<FileAnnotation>(Arrays.asList((FileAnnotation[])stream.readObject()));
+        }
+        finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Returns the class loader that is able to load the annotations of all
+     * plug-ins.
+     *
+     * @return the class loader
+     */
+    private static ClassLoader getClassLoader() {
+        Hudson hudson = Hudson.getInstance();
+        if (hudson != null) {
+            return hudson.getPluginManager().uberClassLoader;
+        }
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        if (contextClassLoader != null) {
+            return contextClassLoader;
+        }
+        return ParserResult.class.getClassLoader();
+    }
+
     /**
      * Facade for the remote workspace.
      */
@@ -0,0 +1,414 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import hudson.util.DaemonThreadFactory;
+
+/**
+ * Writes the results of the analysis in the background, so that the executor
+ * of a build is released before all result files have been written. The queue
+ * is bounded: if the queue is full then the submitting thread writes the
+ * result by itself.
+ * <p>
+ * For each submitted task a marker file is created next to the target file.
+ * The marker is deleted as soon as the task is finished. When Hudson is
+ * stopped then all queued tasks are completed before the plug-in is stopped.
+ * A marker that still exists when a result is loaded shows that the task has
+ * been lost (e.g., because the master has been killed). Tasks that write files
+ * that can't be recreated from other files are submitted with a payload: the
+ * payload is written synchronously to the marker using Java serialization, so
+ * that the file can be written again with the {@link #recover(File, ClassLoader)
+ * recovered} payload.
+ * <p>
+ * The size of the queue and the number of threads can be configured using the
+ * system properties {@code hudson.plugins.analysis.core.PersistenceQueue.capacity}
+ * and {@code hudson.plugins.analysis.core.PersistenceQueue.threads}. Setting
+ * the number of threads to 0 disables the background processing. Setting the
+ * system property {@code hudson.plugins.analysis.core.PersistenceQueue.journal}
+ * to <code>false</code> skips writing the payloads: then the files of lost
+ * tasks are lost, too.
+ *
+ * @author Ulli Hafner
+ */
+public final class PersistenceQueue {
+    private static final Logger LOGGER = Logger.getLogger(PersistenceQueue.class.getName());
+    private static final String PREFIX = PersistenceQueue.class.getName();
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final int SHUTDOWN_TIMEOUT = 10;
+    private static final boolean JOURNAL = !"false".equals(System.getProperty(PREFIX + ".journal"));
+
+    private static final PersistenceQueue INSTANCE = new PersistenceQueue(
+            Integer.getInteger(PREFIX + ".threads", 2), Integer.getInteger(PREFIX + ".capacity", 16));
+
+    /**
+     * Returns the queue that is shared by all build results.
+     *
+     * @return the shared queue
+     */
+    public static PersistenceQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /** The executor of the tasks, <code>null</code> if tasks are run synchronously. */
+    private final ThreadPoolExecutor executor;
+    /** The tasks that are not yet finished, mapped by their target file. */
+    private final Map<File, Task> tasks = Maps.newLinkedHashMap();
+    /** Number of tasks that have been completed. */
+    private long completedTasks;
+
+    /**
+     * Creates a new instance of {@link PersistenceQueue}.
+     *
+     * @param threads
+     *            the number of threads, 0 runs all tasks synchronously
+     * @param capacity
+     *            the maximum number of queued tasks
+     */
+    PersistenceQueue(final int threads, final int capacity) {
+        if (threads > 0) {
+            executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                    new ArrayBlockingQueue<Runnable>(Math.max(1, capacity)), new DaemonThreadFactory(), new RunInCaller());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Submits a new task that writes the specified file. If there is already
+     * a task for the same file then this task will be finished first.
+     *
+     * @param target
+     *            the file that will be written by the task
+     * @param description
+     *            the description of the task
+     * @param writer
+     *            the task that writes the file
+     */
+    public void submit(final File target, final String description, final Runnable writer) {
+        submit(target, description, null, writer);
+    }
+
+    /**
+     * Submits a new task that writes the specified file. If there is already
+     * a task for the same file then this task will be finished first. Before
+     * the task is queued, the specified payload is stored, so that the file
+     * can be written again if the task is lost, see
+     * {@link #recover(File, ClassLoader)}.
+     *
+     * @param target
+     *            the file that will be written by the task
+     * @param description
+     *            the description of the task
+     * @param payload
+     *            the data that is written by the task, might be
+     *            <code>null</code> if the file can be recreated otherwise
+     * @param writer
+     *            the task that writes the file
+     */
+    public void submit(final File target, final String description, final Serializable payload, final Runnable writer) {
+        Task task = new Task(target, description, writer);
+        if (executor == null) {
+            task.run();
+        }
+        else {
+            awaitCompletion(target);
+            markPending(target, payload);
+            synchronized (tasks) {
+                tasks.put(target, task);
+            }
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * Waits until the task that writes the specified file is finished. If the
+     * task has not been started yet, then it is run by the calling thread.
+     *
+     * @param target
+     *            the file to wait for
+     */
+    public void awaitCompletion(final File target) {
+        Task task;
+        synchronized (tasks) {
+            task = tasks.get(target);
+        }
+        if (task != null) {
+            task.run();
+            try {
+                task.get();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException exception) {
+                // already logged by the task
+            }
+        }
+    }
+
+    /**
+     * Returns whether the specified file has not been written completely by a
+     * task of a previous Hudson session.
+     *
+     * @param target
+     *            the file to check
+     * @return <code>true</code> if the task that should have written the file
+     *         has been lost
+     */
+    public boolean isLost(final File target) {
+        synchronized (tasks) {
+            if (tasks.containsKey(target)) {
+                return false;
+            }
+        }
+        return getMarker(target).exists();
+    }
+
+    /**
+     * Returns the payload of the lost task that should have written the
+     * specified file.
+     *
+     * @param target
+     *            the file to recover
+     * @param classLoader
+     *            the class loader to resolve the classes of the payload with
+     * @return the payload or <code>null</code> if the task has not been lost
+     *         or has been submitted without payload
+     * @see #isLost(File)
+     */
+    public Object recover(final File target, final ClassLoader classLoader) {
+        File marker = getMarker(target);
+        if (!isLost(target) || marker.length() == 0) {
+            return null;
+        }
+        ObjectInputStream input = null;
+        try {
+            input = new PayloadInputStream(new BufferedInputStream(new FileInputStream(marker)), classLoader);
+            return input.readObject();
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't read payload of lost task: " + marker, exception);
+        }
+        catch (ClassNotFoundException exception) {
+            LOGGER.log(Level.WARNING, "Can't read payload of lost task: " + marker, exception);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the descriptions of all tasks that are not finished yet.
+     *
+     * @return the descriptions of the pending tasks
+     */
+    public List<String> getPendingTasks() {
+        List<String> descriptions = Lists.newArrayList();
+        synchronized (tasks) {
+            for (Task task : tasks.values()) {
+                descriptions.add(task.getDescription());
+            }
+        }
+        return descriptions;
+    }
+
+    /**
+     * Returns the number of tasks that are not finished yet.
+     *
+     * @return the number of pending tasks
+     */
+    public int getNumberOfPendingTasks() {
+        synchronized (tasks) {
+            return tasks.size();
+        }
+    }
+
+    /**
+     * Returns the number of tasks that have been completed since Hudson has
+     * been started.
+     *
+     * @return the number of completed tasks
+     */
+    public long getNumberOfCompletedTasks() {
+        synchronized (tasks) {
+            return completedTasks;
+        }
+    }
+
+    /**
+     * Returns whether the tasks are run in the background.
+     *
+     * @return <code>true</code> if the tasks are run in the background,
+     *         <code>false</code> if the tasks are run synchronously
+     */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Completes all queued tasks. Afterwards, new tasks will be run by the
+     * submitting thread.
+     *
+     * @throws InterruptedException
+     *             if the current thread has been interrupted while waiting
+     */
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MINUTES)) {
+                LOGGER.log(Level.SEVERE, "Not all analysis results have been written: " + getPendingTasks());
+            }
+        }
+    }
+
+    private void markPending(final File target, final Serializable payload) {
+        File marker = getMarker(target);
+        try {
+            if (payload != null && JOURNAL) {
+                ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(marker)));
+                try {
+                    output.writeObject(payload);
+                }
+                finally {
+                    output.close();
+                }
+            }
+            else if (!marker.createNewFile()) {
+                LOGGER.log(Level.FINE, "Marker of pending task already exists: " + target);
+            }
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't create marker of pending task: " + target, exception);
+        }
+    }
+
+    private File getMarker(final File target) {
+        return new File(target.getParentFile(), target.getName() + PENDING_SUFFIX);
+    }
+
+    /**
+     * Writes a file and removes the task from the queue afterwards.
+     */
+    private final class Task extends FutureTask<Void> {
+        private final File target;
+        private final String description;
+
+        Task(final File target, final String description, final Runnable writer) {
+            super(writer, null);
+
+            this.target = target;
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Deletes the marker of this task after the file has been written.
+         * The marker is deleted before the task is completed, so that a
+         * waiting thread can't submit a new task for the same file in the
+         * meantime. If a new task for the file has been submitted anyway,
+         * then the marker belongs to the new task and is kept.
+         *
+         * @param result
+         *            the result of the task
+         */
+        @Override
+        protected void set(final Void result) {
+            synchronized (tasks) {
+                Task current = tasks.get(target);
+                if (current == null || current == this) {
+                    File marker = getMarker(target);
+                    if (marker.exists() && !marker.delete()) {
+                        LOGGER.log(Level.WARNING, "Can't delete marker of pending task: " + marker);
+                    }
+                    tasks.remove(target);
+                }
+            }
+            super.set(result);
+        }
+
+        @Override
+        protected void done() {
+            synchronized (tasks) {
+                if (tasks.get(target) == this) {
+                    tasks.remove(target);
+                }
+                completedTasks++;
+            }
+            try {
+                get();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException exception) {
+                LOGGER.log(Level.SEVERE, "Failed to write " + target, exception.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reads a payload with the class loader of the plug-in that has submitted
+     * the task.
+     */
+    private static final class PayloadInputStream extends ObjectInputStream {
+        private final ClassLoader classLoader;
+
+        PayloadInputStream(final InputStream input, final ClassLoader classLoader) throws IOException {
+            super(input);
+
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass description) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(description.getName(), false, classLoader);
+            }
+            catch (ClassNotFoundException exception) {
+                return super.resolveClass(description);
+            }
+        }
+    }
+
+    /**
+     * Runs a task in the submitting thread if the queue is full or the
+     * executor is shut down.
+     */
+    private static final class RunInCaller implements RejectedExecutionHandler {
+        /** {@inheritDoc} */
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor rejectingExecutor) {
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package hudson.plugins.analysis.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import hudson.plugins.analysis.util.model.AnnotationProvider;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * The number of annotations per priority. Histograms are persisted with a
+ * {@link BuildResult} so that thresholds and the health of a build can be
+ * evaluated without loading the annotations.
+ *
+ * @author Ulli Hafner
+ */
+public class PriorityHistogram implements Serializable {
+    /** Unique identifier of this class. */
+    private static final long serialVersionUID = -6320472315742829214L;
+    /** An empty histogram. */
+    public static final PriorityHistogram EMPTY = new PriorityHistogram(0, 0, 0);
+
+    private final int high;
+    private final int normal;
+    private final int low;
+
+    /**
+     * Creates a new instance of {@link PriorityHistogram}.
+     *
+     * @param high
+     *            the number of annotations with priority high
+     * @param normal
+     *            the number of annotations with priority normal
+     * @param low
+     *            the number of annotations with priority low
+     */
+    public PriorityHistogram(final int high, final int normal, final int low) {
+        this.high = high;
+        this.normal = normal;
+        this.low = low;
+    }
+
+    /**
+     * Creates a new instance of {@link PriorityHistogram} for the specified
+     * annotations. Equal annotations are counted only once.
+     *
+     * @param annotations
+     *            the annotations to count
+     */
+    public PriorityHistogram(final Collection<? extends FileAnnotation> annotations) {
+        int[] counts = new int[Priority.values().length];
+        Set<? extends FileAnnotation> distinct;
+        if (annotations instanceof Set) {
+            distinct = (Set<? extends FileAnnotation>)annotations;
+        }
+        else {
+            distinct = new HashSet<FileAnnotation>(annotations);
+        }
+        for (FileAnnotation annotation : distinct) {
+            counts[annotation.getPriority().ordinal()]++;
+        }
+        high = counts[Priority.HIGH.ordinal()];
+        normal = counts[Priority.NORMAL.ordinal()];
+        low = counts[Priority.LOW.ordinal()];
+    }
+
+    /**
+     * Creates a new instance of {@link PriorityHistogram} with the counts of
+     * the specified provider.
+     *
+     * @param provider
+     *            the provider of the counts
+     */
+    public PriorityHistogram(final AnnotationProvider provider) {
+        this(provider.getNumberOfAnnotations(Priority.HIGH),
+                provider.getNumberOfAnnotations(Priority.NORMAL),
+                provider.getNumberOfAnnotations(Priority.LOW));
+    }
+
+    /**
+     * Returns the total number of annotations.
+     *
+     * @return the number of annotations
+     */
+    public int getNumberOfAnnotations() {
+        return high + normal + low;
+    }
+
+    /**
+     * Returns the number of annotations with the specified priorities.
+     *
+     * @param priorities
+     *            the priorities to count
+     * @return the number of annotations
+     */
+    public int getNumberOfAnnotations(final Priority... priorities) {
+        int count = 0;
+        for (Priority priority : priorities) {
+            if (priority == Priority.HIGH) {
+                count += high;
+            }
+            else if (priority == Priority.NORMAL) {
+                count += normal;
+            }
+            else {
+                count += low;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of annotations with the specified priority or a
+     * higher one.
+     *
+     * @param minimumPriority
+     *            the minimum priority to count
+     * @return the number of annotations
+     */
+    public int getNumberOfAnnotationsFrom(final Priority minimumPriority) {
+        Collection<Priority> priorities = Priority.collectPrioritiesFrom(minimumPriority);
+        return getNumberOfAnnotations(priorities.toArray(new Priority[priorities.size()]));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new int[] {high, normal, low});
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PriorityHistogram)) {
+            return false;
+        }
+        PriorityHistogram other = (PriorityHistogram)obj;
+        return high == other.high && normal == other.normal && low == other.low;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format("high=%d, normal=%d, low=%d", high, normal, low);
+    }
+}
@@ -0,0 +1,287 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.time.DateUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import hudson.Extension;
+import hudson.Util;
+
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Hudson;
+import hudson.model.listeners.RunListener;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+
+/**
+ * Removes the details of old build results in the background. The retention
+ * policy is defined by the system properties
+ * <code>hudson.plugins.analysis.core.ResultCompactor.keepBuilds</code> (the
+ * number of most recent builds of a job that keep their details) and
+ * <code>hudson.plugins.analysis.core.ResultCompactor.keepDays</code> (the
+ * number of days a build keeps its details). A build keeps its details if
+ * one of the configured limits applies. The last completed build and its
+ * reference build always keep their details. If both values are 0 (the
+ * default) then no results are compacted.
+ * <p>
+ * A compacted result keeps the number of warnings that are shown in the trend
+ * graphs and health reports, see {@link BuildResult#compact()}. The copies of
+ * the workspace files are removed as well. Results that are delta encoded
+ * against a deleted build are stored completely before the build is deleted.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class ResultCompactor extends AsyncPeriodicWork {
+    private static final Logger LOGGER = Logger.getLogger(ResultCompactor.class.getName());
+    private static final String PREFIX = ResultCompactor.class.getName();
+
+    private static final int KEEP_BUILDS = Integer.getInteger(PREFIX + ".keepBuilds", 0);
+    private static final int KEEP_DAYS = Integer.getInteger(PREFIX + ".keepDays", 0);
+    private static final long PERIOD = 6 * DateUtils.MILLIS_PER_HOUR;
+
+    private final int keepBuilds;
+    private final int keepDays;
+
+    /**
+     * Creates a new instance of {@link ResultCompactor} with the retention
+     * policy of the system properties.
+     */
+    public ResultCompactor() {
+        this(KEEP_BUILDS, KEEP_DAYS);
+    }
+
+    /**
+     * Creates a new instance of {@link ResultCompactor}.
+     *
+     * @param keepBuilds
+     *            the number of most recent builds that keep their details, 0
+     *            to ignore the number of builds
+     * @param keepDays
+     *            the number of days a build keeps its details, 0 to ignore
+     *            the age of builds
+     */
+    public ResultCompactor(final int keepBuilds, final int keepDays) {
+        super("Static analysis result compaction");
+
+        this.keepBuilds = keepBuilds;
+        this.keepDays = keepDays;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getRecurrencePeriod() {
+        return PERIOD;
+    }
+
+    /**
+     * Returns whether a retention policy has been configured.
+     *
+     * @return <code>true</code> if old results are compacted
+     */
+    public boolean isEnabled() {
+        return keepBuilds > 0 || keepDays > 0;
+    }
+
+    /**
+     * Returns whether the specified build keeps its details.
+     *
+     * @param index
+     *            the position of the build in the history of its job, 0 is
+     *            the most recent build
+     * @param timestamp
+     *            the start time of the build
+     * @param now
+     *            the current time
+     * @return <code>true</code> if the build keeps its details,
+     *         <code>false</code> if the details can be removed
+     */
+    public boolean isRetained(final int index, final long timestamp, final long now) {
+        if (!isEnabled()) {
+            return true;
+        }
+        return keepBuilds > 0 && index < keepBuilds
+                || keepDays > 0 && now - timestamp < keepDays * DateUtils.MILLIS_PER_DAY;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+        if (!isEnabled()) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        int priority = thread.getPriority();
+        thread.setPriority(Thread.MIN_PRIORITY);
+        try {
+            long start = System.currentTimeMillis();
+            int compacted = 0;
+            for (AbstractProject<?, ?> job : Hudson.getInstance().getAllItems(AbstractProject.class)) {
+                compacted += compact(job);
+                if (thread.isInterrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            LOGGER.log(Level.INFO, String.format("Compacted %d static analysis results in %d ms",
+                    compacted, System.currentTimeMillis() - start));
+        }
+        finally {
+            thread.setPriority(priority);
+        }
+    }
+
+    /**
+     * Compacts the results of the old builds of the specified job. Results of
+     * retained builds that are delta encoded against a build that will be
+     * compacted are stored completely before.
+     *
+     * @param job
+     *            the job
+     * @return the number of compacted results
+     */
+    private int compact(final AbstractProject<?, ?> job) {
+        List<AbstractBuild<?, ?>> expired = getExpiredBuilds(job.getBuilds(), System.currentTimeMillis());
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        Set<Integer> expiredNumbers = Sets.newHashSet();
+        for (AbstractBuild<?, ?> build : expired) {
+            expiredNumbers.add(build.getNumber());
+        }
+        List<BuildResult> retained = Lists.newArrayList();
+        for (AbstractBuild<?, ?> build : job.getBuilds()) {
+            if (!expiredNumbers.contains(build.getNumber())) {
+                retained.addAll(getResults(build));
+            }
+        }
+
+        for (BuildResult result : retained) {
+            if (result.isDeltaEncoded() && expiredNumbers.contains(result.getDeltaBase())) {
+                try {
+                    result.materialize();
+                }
+                catch (IOException exception) {
+                    LOGGER.log(Level.WARNING, "Failed to store the result " + result + " completely, skipping compaction of "
+                            + job.getName(), exception);
+                    return 0;
+                }
+            }
+        }
+
+        int compacted = 0;
+        for (AbstractBuild<?, ?> build : expired) {
+            try {
+                for (BuildResult result : getResults(build)) {
+                    if (result.compact()) {
+                        compacted++;
+                    }
+                }
+                File workspaceFiles = new File(build.getRootDir(), AbstractAnnotation.WORKSPACE_FILES);
+                if (workspaceFiles.exists()) {
+                    Util.deleteRecursive(workspaceFiles);
+                }
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to compact the results of " + build, exception);
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Returns the builds whose details can be removed. The last completed
+     * build and its reference build keep their details regardless of the
+     * retention policy: the next build is compared with these builds.
+     *
+     * @param builds
+     *            the builds of a job, the most recent build first
+     * @param now
+     *            the current time
+     * @return the builds whose details can be removed
+     */
+    List<AbstractBuild<?, ?>> getExpiredBuilds(final List<? extends AbstractBuild<?, ?>> builds, final long now) {
+        Set<Integer> pinned = Sets.newHashSet();
+        for (AbstractBuild<?, ?> build : builds) {
+            if (!build.isBuilding()) {
+                pinned.add(build.getNumber());
+                for (BuildResult result : getResults(build)) {
+                    AbstractBuild<?, ?> reference = result.getHistory().getReferenceBuild();
+                    if (reference != null) {
+                        pinned.add(reference.getNumber());
+                    }
+                }
+                break;
+            }
+        }
+
+        List<AbstractBuild<?, ?>> expired = Lists.newArrayList();
+        int index = 0;
+        for (AbstractBuild<?, ?> build : builds) {
+            if (!build.isBuilding() && !pinned.contains(build.getNumber())
+                    && !isRetained(index, build.getTimeInMillis(), now)) {
+                expired.add(build);
+            }
+            index++;
+        }
+        return expired;
+    }
+
+    private static List<BuildResult> getResults(final AbstractBuild<?, ?> build) {
+        List<BuildResult> results = Lists.newArrayList();
+        for (Action action : build.getActions()) {
+            if (action instanceof ResultAction) {
+                BuildResult result = ((ResultAction<?>)action).getResult();
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Stores the results that are delta encoded against a build completely
+     * before the build is deleted.
+     */
+    @Extension
+    public static class BuildDeletionListener extends RunListener<AbstractBuild<?, ?>> {
+        /**
+         * Creates a new instance of {@link BuildDeletionListener}.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public BuildDeletionListener() {
+            super((Class)AbstractBuild.class);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void onDeleted(final AbstractBuild<?, ?> build) {
+            for (AbstractBuild<?, ?> next = build.getNextBuild(); next != null; next = next.getNextBuild()) {
+                for (BuildResult result : getResults(next)) {
+                    if (result.isDeltaEncoded() && result.getDeltaBase() == build.getNumber()) {
+                        try {
+                            result.materialize();
+                        }
+                        catch (IOException exception) {
+                            LOGGER.log(Level.WARNING, "Failed to store the result " + result
+                                    + " completely before deleting " + build, exception);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
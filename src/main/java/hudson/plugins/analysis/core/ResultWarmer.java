@@ -0,0 +1,278 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import hudson.Extension;
+
+import hudson.model.TaskListener;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Hudson;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+
+import hudson.util.DaemonThreadFactory;
+
+/**
+ * Loads the latest results of jobs in the background, so that the first
+ * request of a job page after a build or a restart does not need to read the
+ * data files of the latest result and the results of the trend graph. The
+ * trend graph itself is still drawn on request. The latest result of a job is
+ * warmed up after each completed build. After a restart, the results of the
+ * jobs that have been viewed recently and of the jobs in the system property
+ * <code>hudson.plugins.analysis.core.ResultWarmer.jobs</code> (a comma
+ * separated list of job names) are warmed up.
+ * <p>
+ * The results are loaded by a single thread with the lowest priority. Jobs
+ * are skipped if the queue is full or if the used heap exceeds the percentage
+ * given by the system property
+ * <code>hudson.plugins.analysis.core.ResultWarmer.maxHeapUsage</code> (default
+ * 75).
+ *
+ * @author Ulli Hafner
+ */
+public final class ResultWarmer {
+    private static final Logger LOGGER = Logger.getLogger(ResultWarmer.class.getName());
+    private static final String PREFIX = ResultWarmer.class.getName();
+    private static final int PERCENT = 100;
+
+    private static final ResultWarmer INSTANCE = new ResultWarmer(
+            Integer.getInteger(PREFIX + ".maxJobs", 20), Integer.getInteger(PREFIX + ".maxHeapUsage", 75));
+
+    /**
+     * Returns the warmer of this Hudson instance.
+     *
+     * @return the shared warmer
+     */
+    public static ResultWarmer getInstance() {
+        return INSTANCE;
+    }
+
+    /** Maximum number of remembered and queued jobs. */
+    private final int maxJobs;
+    /** Maximum percentage of the used heap that allows to load results. */
+    private final int maxHeapUsage;
+    /** The names of the recently viewed jobs, the most recent job last. */
+    private final Set<String> recentJobs = Sets.newLinkedHashSet();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a new instance of {@link ResultWarmer}.
+     *
+     * @param maxJobs
+     *            the maximum number of remembered and queued jobs
+     * @param maxHeapUsage
+     *            the maximum percentage of the used heap that allows to load
+     *            results
+     */
+    ResultWarmer(final int maxJobs, final int maxHeapUsage) {
+        this.maxJobs = Math.max(1, maxJobs);
+        this.maxHeapUsage = maxHeapUsage;
+
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<Runnable>(this.maxJobs), new LowPriorityThreadFactory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Remembers that the specified job has been viewed.
+     *
+     * @param job
+     *            the job
+     */
+    public void recordView(final AbstractProject<?, ?> job) {
+        String name = job.getFullName();
+        synchronized (recentJobs) {
+            recentJobs.remove(name);
+            recentJobs.add(name);
+            Iterator<String> eldest = recentJobs.iterator();
+            while (recentJobs.size() > maxJobs) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the recently viewed jobs.
+     *
+     * @return the job names, the most recent job last
+     */
+    public List<String> getRecentJobs() {
+        synchronized (recentJobs) {
+            return Lists.newArrayList(recentJobs);
+        }
+    }
+
+    /**
+     * Loads the latest results of the specified job in the background.
+     *
+     * @param job
+     *            the job
+     */
+    public void warmUp(final AbstractProject<?, ?> job) {
+        executor.execute(new Runnable() {
+            public void run() {
+                if (isHeapAvailable()) {
+                    warmUpNow(job);
+                }
+                else {
+                    LOGGER.log(Level.FINE, "Skipped warming up the results of " + job.getFullName() + ": heap limit reached");
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns whether the used heap is below the configured limit.
+     *
+     * @return <code>true</code> if results can be loaded
+     */
+    boolean isHeapAvailable() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+
+        return used * PERCENT < runtime.maxMemory() * maxHeapUsage;
+    }
+
+    private void warmUpNow(final AbstractProject<?, ?> job) {
+        long start = System.currentTimeMillis();
+        for (Action action : job.getActions()) {
+            if (action instanceof AbstractProjectAction) {
+                try {
+                    ((AbstractProjectAction<?>)action).warmUp();
+                }
+                // CHECKSTYLE:OFF
+                catch (RuntimeException exception) {
+                    // CHECKSTYLE:ON
+                    LOGGER.log(Level.WARNING, "Failed to warm up the results of " + job.getFullName(), exception);
+                }
+            }
+        }
+        LOGGER.log(Level.FINE, String.format("Warmed up the results of %s in %d ms",
+                job.getFullName(), System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Loads the latest results of the configured and the recently viewed jobs
+     * in the background.
+     */
+    public void warmUpRecentJobs() {
+        Set<String> names = Sets.newLinkedHashSet();
+        names.addAll(getRecentJobs());
+        for (String name : StringUtils.split(System.getProperty(PREFIX + ".jobs", StringUtils.EMPTY), ',')) {
+            names.add(name.trim());
+        }
+        Hudson hudson = Hudson.getInstance();
+        for (String name : Lists.reverse(Lists.newArrayList(names))) {
+            AbstractProject<?, ?> job = hudson.getItemByFullName(name, AbstractProject.class);
+            if (job != null) {
+                warmUp(job);
+            }
+        }
+    }
+
+    /**
+     * Reads the recently viewed jobs of the previous session.
+     */
+    public void load() {
+        File file = getRecentJobsFile();
+        if (file.exists()) {
+            try {
+                List<String> names = FileUtils.readLines(file, "UTF-8");
+                synchronized (recentJobs) {
+                    recentJobs.clear();
+                    recentJobs.addAll(names);
+                }
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read the recently viewed jobs from " + file, exception);
+            }
+        }
+    }
+
+    /**
+     * Writes the recently viewed jobs, so that their results can be warmed up
+     * after the next restart. Stops the background thread.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        File file = getRecentJobsFile();
+        try {
+            FileUtils.writeLines(file, "UTF-8", getRecentJobs());
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write the recently viewed jobs to " + file, exception);
+        }
+    }
+
+    private File getRecentJobsFile() {
+        return new File(Hudson.getInstance().getRootDir(), PREFIX + ".txt");
+    }
+
+    /**
+     * Creates daemon threads with the lowest priority.
+     */
+    private static final class LowPriorityThreadFactory implements ThreadFactory {
+        private final ThreadFactory delegate = new DaemonThreadFactory();
+
+        /** {@inheritDoc} */
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = delegate.newThread(runnable);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+
+    /**
+     * Warms up the results of a job after each completed build.
+     */
+    @Extension
+    public static class BuildCompletionListener extends RunListener<AbstractBuild<?, ?>> {
+        /**
+         * Creates a new instance of {@link BuildCompletionListener}.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public BuildCompletionListener() {
+            super((Class)AbstractBuild.class);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void onCompleted(final AbstractBuild<?, ?> build, final TaskListener listener) {
+            getInstance().warmUp(build.getProject());
+        }
+    }
+
+    /**
+     * Warms up the results of the recently viewed jobs after all jobs have
+     * been loaded.
+     */
+    @Extension
+    public static class StartupListener extends ItemListener {
+        /** {@inheritDoc} */
+        @Override
+        public void onLoaded() {
+            getInstance().load();
+            getInstance().warmUpRecentJobs();
+        }
+    }
+}
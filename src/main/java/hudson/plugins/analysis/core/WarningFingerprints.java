@@ -0,0 +1,132 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * The sorted fingerprints of the warnings of a build, see
+ * {@link WarningLifecycle#getFingerprint(FileAnnotation)}. The fingerprints
+ * are stored next to the data file of a build so that two builds can be
+ * compared without loading their annotations, see {@link BuildComparison}.
+ *
+ * @author Ulli Hafner
+ */
+public final class WarningFingerprints {
+    private static final int MAGIC = 0x41465032; // AFP2
+
+    /**
+     * Creates the fingerprints of the specified warnings.
+     *
+     * @param annotations
+     *            the warnings
+     * @return the fingerprints
+     */
+    public static WarningFingerprints create(final Collection<? extends FileAnnotation> annotations) {
+        long[] fingerprints = new long[annotations.size()];
+        int index = 0;
+        for (FileAnnotation annotation : annotations) {
+            fingerprints[index++] = WarningLifecycle.getFingerprint(annotation);
+        }
+        Arrays.sort(fingerprints);
+        return new WarningFingerprints(fingerprints);
+    }
+
+    /**
+     * Returns the name of the fingerprints file for the specified base name.
+     *
+     * @param baseName
+     *            the base name of the data file
+     * @return the file name
+     */
+    public static String getFileName(final String baseName) {
+        return baseName + ".fingerprints";
+    }
+
+    /**
+     * Reads the fingerprints of the specified file.
+     *
+     * @param file
+     *            the file to read
+     * @return the fingerprints
+     * @throws IOException
+     *             if the file could not be read
+     */
+    public static WarningFingerprints read(final File file) throws IOException {
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (stream.readInt() != MAGIC) {
+                throw new IOException("Not a fingerprints file: " + file);
+            }
+            long[] fingerprints = new long[stream.readInt()];
+            for (int i = 0; i < fingerprints.length; i++) {
+                fingerprints[i] = stream.readLong();
+            }
+            return new WarningFingerprints(fingerprints);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /** The fingerprints in ascending order. */
+    private final long[] fingerprints;
+
+    private WarningFingerprints(final long[] fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Writes the fingerprints to the specified file.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void write(final File file) throws IOException {
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeInt(fingerprints.length);
+            for (long fingerprint : fingerprints) {
+                stream.writeLong(fingerprint);
+            }
+        }
+        finally {
+            stream.close();
+        }
+        AnnotationStore.replace(temporary, file);
+    }
+
+    /**
+     * Returns the number of fingerprints. Warnings with the same fingerprint
+     * are counted separately.
+     *
+     * @return the number of fingerprints
+     */
+    public int size() {
+        return fingerprints.length;
+    }
+
+    /**
+     * Returns the fingerprint at the specified position.
+     *
+     * @param index
+     *            the position
+     * @return the fingerprint
+     */
+    public long get(final int index) {
+        return fingerprints[index];
+    }
+}
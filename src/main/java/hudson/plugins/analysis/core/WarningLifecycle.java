@@ -0,0 +1,414 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Records for each warning of a job the build that introduced the warning and
+ * the last build that contained the warning. Warnings are identified by their
+ * fingerprint, i.e. the hash code of the source code context combined with the
+ * message, file name, type and category of the warning. So a warning keeps its
+ * age if it moves to another line. Fixed warnings are removed once their last
+ * build has been deleted, see {@link #prune(int)}.
+ * <p>
+ * The index is updated incrementally from the new and fixed warnings of each
+ * build, the data files of older builds are never read. The index is stored
+ * in the root folder of the job. If the index is created for a job that
+ * already has warnings, then the warnings of the build that creates the index
+ * are recorded as introduced by that build, see {@link #getInitialBuild()}.
+ * <p>
+ * The result of a build might be recorded several times, e.g. the aggregated
+ * result of a maven build is recreated whenever a module has been completed.
+ * So the changes of the last recorded build are kept and reverted if the same
+ * build is recorded again.
+ *
+ * @author Ulli Hafner
+ */
+public final class WarningLifecycle {
+    private static final int MAGIC = 0x41574c33; // AWL3
+    private static final int MAGIC_WITHOUT_CHANGES = 0x41574c32; // AWL2
+    /** Loaded indexes, mapped by their file. */
+    private static final Map<File, SoftReference<WarningLifecycle>> INDEXES = Maps.newHashMap();
+
+    /**
+     * Returns the index that is stored in the specified file. Indexes are
+     * shared between all users within this JVM, so that concurrent updates
+     * are not lost.
+     *
+     * @param file
+     *            the file of the index
+     * @return the index, empty if the file does not exist or could not be read
+     */
+    public static WarningLifecycle get(final File file) {
+        synchronized (INDEXES) {
+            SoftReference<WarningLifecycle> reference = INDEXES.get(file);
+            WarningLifecycle lifecycle = reference == null ? null : reference.get();
+            if (lifecycle == null) {
+                lifecycle = read(file);
+                INDEXES.put(file, new SoftReference<WarningLifecycle>(lifecycle));
+            }
+            return lifecycle;
+        }
+    }
+
+    /**
+     * Reads the index that is stored in the specified file without sharing
+     * it.
+     *
+     * @param file
+     *            the file of the index
+     * @return the index, empty if the file does not exist or could not be read
+     */
+    static WarningLifecycle read(final File file) {
+        WarningLifecycle lifecycle = new WarningLifecycle(file);
+        lifecycle.load();
+        return lifecycle;
+    }
+
+    /**
+     * Returns the name of the index file for the specified base name.
+     *
+     * @param baseName
+     *            the base name of the data files of the results
+     * @return the file name
+     */
+    public static String getFileName(final String baseName) {
+        return baseName + ".lifecycle";
+    }
+
+    /**
+     * Returns the fingerprint of the specified warning. Warnings without a
+     * source code context get a context hash code that is derived from their
+     * key, see
+     * {@link hudson.plugins.analysis.util.model.AbstractAnnotation}. Such a hash code is different in
+     * each build, so it is not part of the fingerprint.
+     *
+     * @param annotation
+     *            the warning
+     * @return the fingerprint
+     */
+    public static long getFingerprint(final FileAnnotation annotation) {
+        long fingerprint = 0;
+        if (annotation.getContextHashCode() != annotation.getKey() + 1) {
+            fingerprint = annotation.getContextHashCode();
+        }
+        fingerprint = 31 * fingerprint + hashCode(annotation.getMessage());
+        fingerprint = 31 * fingerprint + hashCode(annotation.getFileName());
+        fingerprint = 31 * fingerprint + hashCode(annotation.getType());
+        fingerprint = 31 * fingerprint + hashCode(annotation.getCategory());
+        return fingerprint;
+    }
+
+    private static int hashCode(final String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private final File file;
+    /** The first and last build of each warning, mapped by the fingerprint. */
+    private final Map<Long, Entry> entries = Maps.newHashMap();
+    /** The build that created this index. */
+    private int initialBuild;
+    /** The last recorded build. */
+    private int lastRecordedBuild;
+    /**
+     * The entries before the last recorded build changed them, mapped by the
+     * fingerprint. A <code>null</code> value marks an entry that has been
+     * added by the build.
+     */
+    private final Map<Long, Entry> changes = Maps.newHashMap();
+
+    /**
+     * Creates a new instance of {@link WarningLifecycle}.
+     *
+     * @param file
+     *            the file of the index
+     */
+    WarningLifecycle(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the file of this index.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Records the warnings of the specified build. If the same build has been
+     * recorded before, then the previously recorded warnings of this build
+     * are replaced.
+     *
+     * @param build
+     *            the number of the build
+     * @param referenceBuild
+     *            the number of the build the new and fixed warnings have been
+     *            computed against
+     * @param allWarnings
+     *            all warnings of the build, only used if the index is empty
+     * @param newWarnings
+     *            the warnings that have been introduced by the build
+     * @param fixedWarnings
+     *            the warnings that have been fixed in the build
+     */
+    public synchronized void update(final int build, final int referenceBuild,
+            final Collection<FileAnnotation> allWarnings,
+            final Collection<FileAnnotation> newWarnings, final Collection<FileAnnotation> fixedWarnings) {
+        if (build == lastRecordedBuild) {
+            revert();
+        }
+        else {
+            changes.clear();
+            lastRecordedBuild = build;
+        }
+        if (initialBuild == 0 || initialBuild == build) {
+            initialBuild = build;
+            for (FileAnnotation annotation : allWarnings) {
+                introduce(getFingerprint(annotation), build);
+            }
+        }
+        else {
+            for (FileAnnotation annotation : newWarnings) {
+                introduce(getFingerprint(annotation), build);
+            }
+        }
+        for (FileAnnotation annotation : fixedWarnings) {
+            long fingerprint = getFingerprint(annotation);
+            Entry entry = entries.get(fingerprint);
+            if (entry != null && entry.isOpen()) {
+                record(fingerprint, entry);
+                entry.lastBuild = Math.max(referenceBuild, entry.firstBuild);
+            }
+        }
+    }
+
+    private void record(final long fingerprint, final Entry entry) {
+        if (!changes.containsKey(fingerprint)) {
+            changes.put(fingerprint, entry == null ? null : new Entry(entry.firstBuild, entry.lastBuild));
+        }
+    }
+
+    private void revert() {
+        for (Map.Entry<Long, Entry> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                entries.remove(change.getKey());
+            }
+            else {
+                entries.put(change.getKey(), change.getValue());
+            }
+        }
+        changes.clear();
+    }
+
+    /**
+     * Removes the fixed warnings whose last build is older than the specified
+     * build, i.e. whose last build has been deleted.
+     *
+     * @param oldestBuild
+     *            the number of the oldest build of the job
+     * @return the number of removed warnings
+     */
+    public synchronized int prune(final int oldestBuild) {
+        int removed = 0;
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+            Entry entry = iterator.next();
+            if (!entry.isOpen() && entry.lastBuild < oldestBuild) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void introduce(final long fingerprint, final int build) {
+        Entry entry = entries.get(fingerprint);
+        if (entry == null || !entry.isOpen()) {
+            record(fingerprint, entry);
+            entries.put(fingerprint, new Entry(build, 0));
+        }
+        else if (build < entry.firstBuild) {
+            record(fingerprint, entry);
+            entry.firstBuild = build;
+        }
+    }
+
+    /**
+     * Returns the number of the build that introduced the specified warning.
+     *
+     * @param annotation
+     *            the warning
+     * @return the build number or 0 if the warning is unknown
+     */
+    public synchronized int getFirstBuild(final FileAnnotation annotation) {
+        Entry entry = entries.get(getFingerprint(annotation));
+        return entry == null ? 0 : entry.firstBuild;
+    }
+
+    /**
+     * Returns the number of the last build that contained the specified
+     * warning.
+     *
+     * @param annotation
+     *            the warning
+     * @return the build number, 0 if the warning has not been fixed yet or is
+     *         unknown
+     */
+    public synchronized int getLastBuild(final FileAnnotation annotation) {
+        Entry entry = entries.get(getFingerprint(annotation));
+        return entry == null ? 0 : entry.lastBuild;
+    }
+
+    /**
+     * Returns the age of the specified warning, i.e. the number of builds
+     * since the warning has been introduced. The index contains the last
+     * period of each warning only: if a warning has been fixed and
+     * introduced again after the specified build, then the age of the
+     * warning in the specified build is unknown.
+     *
+     * @param annotation
+     *            the warning
+     * @param build
+     *            the number of the build to compute the age for
+     * @return the age, or -1 if the warning is unknown
+     */
+    public int getAge(final FileAnnotation annotation, final int build) {
+        int firstBuild = getFirstBuild(annotation);
+        if (firstBuild == 0 || firstBuild > build) {
+            return -1;
+        }
+        return Math.max(0, build - firstBuild);
+    }
+
+    /**
+     * Returns the build that created this index. Warnings that have been
+     * introduced by this build might be older.
+     *
+     * @return the number of the build, or 0 if the index is empty
+     */
+    public synchronized int getInitialBuild() {
+        return initialBuild;
+    }
+
+    /**
+     * Returns the number of warnings in this index.
+     *
+     * @return the number of warnings
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes this index to its file.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public synchronized void save() throws IOException {
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeInt(initialBuild);
+            stream.writeInt(entries.size());
+            for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+                stream.writeLong(entry.getKey());
+                stream.writeInt(entry.getValue().firstBuild);
+                stream.writeInt(entry.getValue().lastBuild);
+            }
+            stream.writeInt(lastRecordedBuild);
+            stream.writeInt(changes.size());
+            for (Map.Entry<Long, Entry> change : changes.entrySet()) {
+                stream.writeLong(change.getKey());
+                Entry entry = change.getValue();
+                stream.writeBoolean(entry != null);
+                if (entry != null) {
+                    stream.writeInt(entry.firstBuild);
+                    stream.writeInt(entry.lastBuild);
+                }
+            }
+        }
+        finally {
+            stream.close();
+        }
+        AnnotationStore.replace(temporary, file);
+    }
+
+    private synchronized void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                int magic = stream.readInt();
+                if (magic != MAGIC && magic != MAGIC_WITHOUT_CHANGES) {
+                    throw new IOException("Not a warning lifecycle index: " + file);
+                }
+                initialBuild = stream.readInt();
+                int size = stream.readInt();
+                for (int i = 0; i < size; i++) {
+                    long fingerprint = stream.readLong();
+                    entries.put(fingerprint, new Entry(stream.readInt(), stream.readInt()));
+                }
+                if (magic == MAGIC) {
+                    lastRecordedBuild = stream.readInt();
+                    int numberOfChanges = stream.readInt();
+                    for (int i = 0; i < numberOfChanges; i++) {
+                        long fingerprint = stream.readLong();
+                        if (stream.readBoolean()) {
+                            changes.put(fingerprint, new Entry(stream.readInt(), stream.readInt()));
+                        }
+                        else {
+                            changes.put(fingerprint, null);
+                        }
+                    }
+                }
+            }
+            finally {
+                stream.close();
+            }
+        }
+        catch (IOException exception) {
+            // a damaged index is recreated with the next build
+            entries.clear();
+            changes.clear();
+            initialBuild = 0;
+            lastRecordedBuild = 0;
+        }
+    }
+
+    /**
+     * The first and last build of a warning.
+     */
+    private static final class Entry {
+        private int firstBuild;
+        /** The last build that contained the warning, 0 while the warning is not fixed. */
+        private int lastBuild;
+
+        Entry(final int firstBuild, final int lastBuild) {
+            this.firstBuild = firstBuild;
+            this.lastBuild = lastBuild;
+        }
+
+        boolean isOpen() {
+            return lastBuild == 0;
+        }
+    }
+}
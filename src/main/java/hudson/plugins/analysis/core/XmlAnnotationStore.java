@@ -0,0 +1,47 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.thoughtworks.xstream.XStream;
+
+import hudson.Extension;
+import hudson.XmlFile;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Stores the annotations as plain XML. This is the format of all results that
+ * have been recorded before the {@link AnnotationStore} has been introduced.
+ *
+ * @author Ulli Hafner
+ */
+@Extension
+public class XmlAnnotationStore extends AnnotationStore {
+    /** ID of this store. */
+    public static final String ID = "xml";
+
+    /** {@inheritDoc} */
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getFileName(final String baseName) {
+        return baseName;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(final File file, final XStream xstream, final FileAnnotation[] annotations) throws IOException {
+        new XmlFile(xstream, file).write(annotations);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public FileAnnotation[] read(final File file, final XStream xstream) throws IOException {
+        return (FileAnnotation[])new XmlFile(xstream, file).read();
+    }
+}
@@ -14,6 +14,8 @@ import hudson.model.Job;
 import hudson.plugins.analysis.core.ResultAction;
 import hudson.plugins.analysis.core.AbstractProjectAction;
 import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.util.AnalysisMetrics;
+import hudson.plugins.analysis.util.AnalysisMetrics.Timer;
 
 /**
  * A portlet that shows a table with the number of warnings in the selected jobs.
@@ -130,10 +132,13 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
      * @return the number of compiler warnings
      */
     public String getWarnings(final Collection<Job<?, ?>> jobs) {
+        Timer timer = AnalysisMetrics.getInstance().getTimer(AnalysisMetrics.PORTLET_AGGREGATION);
+        long start = timer.start();
         int sum = 0;
         for (Job<?, ?> job : jobs) {
             sum += toInt(getWarnings(job));
         }
+        timer.stop(start);
         return String.valueOf(sum);
     }
 
@@ -147,10 +152,13 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
      * @return the number of compiler warnings
      */
     public String getWarnings(final Collection<Job<?, ?>> jobs, final String priority) {
+        Timer timer = AnalysisMetrics.getInstance().getTimer(AnalysisMetrics.PORTLET_AGGREGATION);
+        long start = timer.start();
         int sum = 0;
         for (Job<?, ?> job : jobs) {
             sum += toInt(getWarnings(job, priority));
         }
+        timer.stop(start);
         return String.valueOf(sum);
     }
 
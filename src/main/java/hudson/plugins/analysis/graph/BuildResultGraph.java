@@ -20,6 +20,8 @@ import org.jfree.ui.RectangleInsets;
 
 import hudson.plugins.analysis.core.ResultAction;
 import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.util.AnalysisMetrics;
+import hudson.plugins.analysis.util.AnalysisMetrics.Timer;
 
 import hudson.util.Graph;
 
@@ -222,7 +224,14 @@ public abstract class BuildResultGraph {
         return new Graph(timestamp, configuration.getWidth(), configuration.getHeight()) {
             @Override
             protected JFreeChart createGraph() {
-                return create(configuration, lastAction, pluginName);
+                Timer timer = AnalysisMetrics.getInstance().getTimer(AnalysisMetrics.TREND_GRAPH);
+                long start = timer.start();
+                try {
+                    return create(configuration, lastAction, pluginName);
+                }
+                finally {
+                    timer.stop(start);
+                }
             }
         };
     }
@@ -245,7 +254,14 @@ public abstract class BuildResultGraph {
         return new Graph(timestamp, configuration.getWidth(), configuration.getHeight()) {
             @Override
             protected JFreeChart createGraph() {
-                return createAggregation(configuration, actions, pluginName);
+                Timer timer = AnalysisMetrics.getInstance().getTimer(AnalysisMetrics.TREND_GRAPH);
+                long start = timer.start();
+                try {
+                    return createAggregation(configuration, actions, pluginName);
+                }
+                finally {
+                    timer.stop(start);
+                }
             }
         };
     }
@@ -226,6 +226,18 @@ public abstract class GraphConfigurationView implements ModelObject {
         return graph.getGraph(getTimestamp(), configuration, url, buildHistory.getBaseline());
     }
 
+    /**
+     * Loads the build results that are shown in the current graph. The chart
+     * is created but not drawn: the drawn image can't be cached for the next
+     * request, so only the loaded results remain in memory.
+     *
+     * @param url
+     *            the URL of links in the trend graph
+     */
+    public void loadResults(final String url) {
+        getGraphType().create(configuration, buildHistory.getBaseline(), url);
+    }
+
     /**
      * Returns the graph renderer of the current graph.
      *
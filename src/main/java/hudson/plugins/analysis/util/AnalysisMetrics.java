@@ -0,0 +1,487 @@
+package hudson.plugins.analysis.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Collects metrics of the master-side hot paths of the static analysis
+ * plug-ins: latencies of operations (count, total, maximum and a histogram),
+ * counters (e.g., cache hits and misses or bytes read), and the number of
+ * annotations that are currently resident in memory. All methods are thread
+ * safe.
+ * <p>
+ * The metrics are exposed as dynamic MBean (attributes
+ * <code>&lt;timer&gt;.count</code>, <code>&lt;timer&gt;.totalMillis</code>,
+ * <code>&lt;timer&gt;.maxMillis</code>, one attribute per counter and
+ * <code>residentAnnotations</code>) and on the status page of the plug-in.
+ *
+ * @author Ulli Hafner
+ */
+public final class AnalysisMetrics implements DynamicMBean {
+    /** Loading a data file of a build result. */
+    public static final String LOAD_RESULT = "loadResult";
+    /** Loading the annotations of a single module of a build result. */
+    public static final String LOAD_MODULE = "loadModule";
+    /** Computing the new warnings of a build. */
+    public static final String NEW_WARNINGS = "newWarnings";
+    /** Computing the fixed warnings of a build. */
+    public static final String FIXED_WARNINGS = "fixedWarnings";
+    /** Rendering of a trend graph. */
+    public static final String TREND_GRAPH = "trendGraph";
+    /** Highlighting of a source file. */
+    public static final String SOURCE_HIGHLIGHTING = "sourceHighlighting";
+    /** Aggregation of the results of several jobs in a portlet. */
+    public static final String PORTLET_AGGREGATION = "portletAggregation";
+
+    /** Requests of a build result that have been served from memory. */
+    public static final String PROJECT_CACHE_HITS = "projectCacheHits";
+    /** Requests of a build result that required to load the data file. */
+    public static final String PROJECT_CACHE_MISSES = "projectCacheMisses";
+    /** Requests of new or fixed warnings that have been served from memory. */
+    public static final String DIFFERENCE_CACHE_HITS = "differenceCacheHits";
+    /** Requests of new or fixed warnings that required a new computation. */
+    public static final String DIFFERENCE_CACHE_MISSES = "differenceCacheMisses";
+    /** Number of bytes read from data files. */
+    public static final String BYTES_READ = "bytesRead";
+
+    /** Name of the attribute that provides the number of resident annotations. */
+    private static final String RESIDENT_ANNOTATIONS = "residentAnnotations";
+    /** Upper bounds (exclusive) of the histogram buckets in milliseconds, the last bucket is unbounded. */
+    private static final long[] BUCKETS = {1, 10, 100, 1000, 10000};
+    /** Name of the MBean in the platform MBean server. */
+    private static final String OBJECT_NAME = "hudson.plugins.analysis:type=AnalysisMetrics";
+    private static final Logger LOGGER = Logger.getLogger(AnalysisMetrics.class.getName());
+
+    private static final AnalysisMetrics INSTANCE = new AnalysisMetrics();
+
+    /**
+     * Returns the metrics of this Hudson instance.
+     *
+     * @return the metrics
+     */
+    public static AnalysisMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+
+    /** Number of annotations of all registered objects that are still reachable. */
+    private final AtomicLong residentAnnotations = new AtomicLong();
+    /** Registered objects and their number of annotations. */
+    private final Map<Reference<Object>, Integer> residents = Maps.newHashMap();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+
+    /**
+     * Creates a new instance of {@link AnalysisMetrics}. Use the shared
+     * instance in production code.
+     */
+    AnalysisMetrics() {
+        // only shared instance and tests
+    }
+
+    /**
+     * Registers this instance in the platform MBean server.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        }
+        catch (JMException exception) {
+            LOGGER.log(Level.WARNING, "Can't register MBean " + OBJECT_NAME, exception);
+        }
+    }
+
+    /**
+     * Removes this instance from the platform MBean server.
+     */
+    public void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        catch (JMException exception) {
+            LOGGER.log(Level.WARNING, "Can't unregister MBean " + OBJECT_NAME, exception);
+        }
+    }
+
+    /**
+     * Returns the timer with the specified name. The timer is created on
+     * first access.
+     *
+     * @param name
+     *            the name of the timer
+     * @return the timer
+     */
+    public Timer getTimer(final String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            timers.putIfAbsent(name, new Timer(name));
+            timer = timers.get(name);
+        }
+        return timer;
+    }
+
+    /**
+     * Returns all timers sorted by name.
+     *
+     * @return the timers
+     */
+    public List<Timer> getTimers() {
+        Map<String, Timer> sorted = Maps.newTreeMap();
+        sorted.putAll(timers);
+        return Lists.newArrayList(sorted.values());
+    }
+
+    /**
+     * Increments the specified counter by the specified amount.
+     *
+     * @param name
+     *            the name of the counter
+     * @param amount
+     *            the amount to add
+     */
+    public void count(final String name, final long amount) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new AtomicLong());
+            counter = counters.get(name);
+        }
+        counter.addAndGet(amount);
+    }
+
+    /**
+     * Returns the value of the specified counter.
+     *
+     * @param name
+     *            the name of the counter
+     * @return the value of the counter
+     */
+    public long getCount(final String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            return 0;
+        }
+        return counter.get();
+    }
+
+    /**
+     * Returns all counters sorted by name.
+     *
+     * @return the counters
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = Maps.newTreeMap();
+        for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+            values.put(counter.getKey(), counter.getValue().get());
+        }
+        return values;
+    }
+
+    /**
+     * Registers the annotations of the specified object as resident in
+     * memory. The annotations are counted as long as the object is reachable.
+     *
+     * @param owner
+     *            the object that holds the annotations
+     * @param numberOfAnnotations
+     *            the number of annotations
+     */
+    public void addResident(final Object owner, final int numberOfAnnotations) {
+        synchronized (residents) {
+            expungeCollected();
+            residents.put(new WeakReference<Object>(owner, collected), numberOfAnnotations);
+            residentAnnotations.addAndGet(numberOfAnnotations);
+        }
+    }
+
+    /**
+     * Returns the number of annotations that are currently resident in memory.
+     *
+     * @return the number of resident annotations
+     */
+    public long getResidentAnnotations() {
+        synchronized (residents) {
+            expungeCollected();
+            return residentAnnotations.get();
+        }
+    }
+
+    /**
+     * Returns the number of objects that currently hold resident annotations.
+     *
+     * @return the number of resident objects
+     */
+    public int getNumberOfResidents() {
+        synchronized (residents) {
+            expungeCollected();
+            return residents.size();
+        }
+    }
+
+    private void expungeCollected() {
+        Reference<? extends Object> reference = collected.poll();
+        while (reference != null) {
+            Integer size = residents.remove(reference);
+            if (size != null) {
+                residentAnnotations.addAndGet(-size);
+            }
+            reference = collected.poll();
+        }
+    }
+
+    /**
+     * Returns the upper bounds of the histogram buckets.
+     *
+     * @return the upper bounds in milliseconds
+     */
+    public List<String> getBucketLabels() {
+        List<String> labels = Lists.newArrayList();
+        for (long bound : BUCKETS) {
+            labels.add("< " + bound + " ms");
+        }
+        labels.add(">= " + BUCKETS[BUCKETS.length - 1] + " ms");
+        return labels;
+    }
+
+    /** {@inheritDoc} */
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+        if (RESIDENT_ANNOTATIONS.equals(attribute)) {
+            return getResidentAnnotations();
+        }
+        if (counters.containsKey(attribute)) {
+            return getCount(attribute);
+        }
+        String name = StringUtils.substringBeforeLast(attribute, ".");
+        Timer timer = timers.get(name);
+        if (timer != null) {
+            String property = StringUtils.substringAfterLast(attribute, ".");
+            if ("count".equals(property)) {
+                return timer.getCount();
+            }
+            if ("totalMillis".equals(property)) {
+                return timer.getTotalMillis();
+            }
+            if ("maxMillis".equals(property)) {
+                return timer.getMaxMillis();
+            }
+            if ("histogram".equals(property)) {
+                return timer.getHistogram();
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    /** {@inheritDoc} */
+    public AttributeList getAttributes(final String[] attributes) {
+        AttributeList values = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                values.add(new Attribute(attribute, getAttribute(attribute)));
+            }
+            catch (AttributeNotFoundException exception) {
+                // skip unknown attributes
+            }
+        }
+        return values;
+    }
+
+    /** {@inheritDoc} */
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = Lists.newArrayList();
+        attributes.add(createAttribute(RESIDENT_ANNOTATIONS, Long.class, "Number of annotations resident in memory"));
+        for (String counter : getCounters().keySet()) {
+            attributes.add(createAttribute(counter, Long.class, "Counter " + counter));
+        }
+        for (Timer timer : getTimers()) {
+            String name = timer.getName();
+            attributes.add(createAttribute(name + ".count", Long.class, "Number of calls of " + name));
+            attributes.add(createAttribute(name + ".totalMillis", Long.class, "Total duration of " + name));
+            attributes.add(createAttribute(name + ".maxMillis", Long.class, "Maximum duration of " + name));
+            attributes.add(createAttribute(name + ".histogram", long[].class, "Histogram of the durations of " + name
+                    + ", buckets " + getBucketLabels()));
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of the static analysis plug-ins",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, new MBeanOperationInfo[0], null);
+    }
+
+    private MBeanAttributeInfo createAttribute(final String name, final Class<?> type, final String description) {
+        return new MBeanAttributeInfo(name, type.getName(), description, true, false, false);
+    }
+
+    /** {@inheritDoc} */
+    public Object invoke(final String actionName, final Object[] params, final String[] signature)
+            throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /** {@inheritDoc} */
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Read only attribute: " + attribute.getName());
+    }
+
+    /** {@inheritDoc} */
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    /**
+     * Measures the latency of an operation.
+     */
+    public static final class Timer {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+        /**
+         * Creates a new instance of {@link Timer}.
+         *
+         * @param name
+         *            the name of the timer
+         */
+        Timer(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Starts a measurement.
+         *
+         * @return the start time that needs to be passed to {@link #stop(long)}
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Stops a measurement.
+         *
+         * @param start
+         *            the start time returned by {@link #start()}
+         */
+        public void stop(final long start) {
+            record(System.nanoTime() - start);
+        }
+
+        /**
+         * Records the specified duration.
+         *
+         * @param nanos
+         *            the duration in nanoseconds
+         */
+        public void record(final long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+
+            long millis = nanos / 1000000;
+            int bucket = 0;
+            while (bucket < BUCKETS.length && millis >= BUCKETS[bucket]) {
+                bucket++;
+            }
+            histogram.incrementAndGet(bucket);
+        }
+
+        /**
+         * Returns the name of this timer.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of measurements.
+         *
+         * @return the number of measurements
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Returns the sum of all measured durations.
+         *
+         * @return the total duration in milliseconds
+         */
+        public long getTotalMillis() {
+            return totalNanos.get() / 1000000;
+        }
+
+        /**
+         * Returns the average duration.
+         *
+         * @return the average duration in milliseconds
+         */
+        public long getMeanMillis() {
+            long calls = count.get();
+            if (calls == 0) {
+                return 0;
+            }
+            return totalNanos.get() / calls / 1000000;
+        }
+
+        /**
+         * Returns the maximum duration.
+         *
+         * @return the maximum duration in milliseconds
+         */
+        public long getMaxMillis() {
+            return maxNanos.get() / 1000000;
+        }
+
+        /**
+         * Returns the number of measurements in each bucket of the histogram.
+         *
+         * @return the histogram
+         * @see AnalysisMetrics#getBucketLabels()
+         */
+        public long[] getHistogram() {
+            long[] values = new long[histogram.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = histogram.get(i);
+            }
+            return values;
+        }
+    }
+}
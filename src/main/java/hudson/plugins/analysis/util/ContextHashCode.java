@@ -1,6 +1,7 @@
 package hudson.plugins.analysis.util;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.commons.io.LineIterator;
 
@@ -47,5 +48,25 @@ public class ContextHashCode {
 
         return context.toString().hashCode();
     }
-}
 
+    /**
+     * Creates a hash code from the source code of the warning line and the
+     * surrounding context. The result is the same as for
+     * {@link #create(String, int, String)} if the specified lines are the lines
+     * of the file.
+     *
+     * @param lines
+     *            the lines of the file
+     * @param line
+     *            the line of the warning
+     * @return a has code of the source code
+     */
+    public int create(final List<String> lines, final int line) {
+        StringBuilder context = new StringBuilder(BUFFER_SIZE);
+        int last = Math.min(lines.size() - 1, line + LINES_LOOK_AHEAD + 1);
+        for (int i = Math.max(0, line - LINES_LOOK_AHEAD); i <= last; i++) {
+            context.append(lines.get(i));
+        }
+        return context.toString().hashCode();
+    }
+}
@@ -1,8 +1,11 @@
 package hudson.plugins.analysis.util;
 
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
+
 /**
  * Provides convenient methods to determine the package or namespace names of a
  * file.
@@ -33,6 +36,27 @@ public final class PackageDetectors {
         return UNDEFINED_PACKAGE;
     }
 
+    /**
+     * Detects the package name of the specified file based on several detector
+     * strategies. The content of the file is read from the specified stream.
+     *
+     * @param fileName
+     *            the filename of the file to scan
+     * @param content
+     *            the content of the file, the stream will be closed afterwards
+     * @return the package name or an empty string
+     */
+    public static String detectPackageName(final String fileName, final InputStream content) {
+        for (PackageDetector detector : DETECTORS) {
+            if (detector.accepts(fileName)) {
+                return detector.detectPackageName(content);
+            }
+        }
+        IOUtils.closeQuietly(content);
+
+        return UNDEFINED_PACKAGE;
+    }
+
     /**
      * Creates a new instance of {@link PackageDetectors}.
      */
@@ -0,0 +1,266 @@
+package hudson.plugins.analysis.util;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Measures the time spent in the phases of an analysis run and counts
+ * arbitrary events (e.g., the number of parsed files). Durations of phases with
+ * the same name are summed up. This class is not thread safe.
+ *
+ * @author Ulli Hafner
+ */
+@ExportedBean
+public class PhaseTimings implements Serializable {
+    private static final long serialVersionUID = 4371536328463934563L;
+
+    /** Duration in milliseconds of each phase, in the order of the first start. */
+    private final Map<String, Long> durations = Maps.newLinkedHashMap();
+    /** Counters of events. */
+    private final Map<String, Long> counters = Maps.newLinkedHashMap();
+
+    /** The phase that is currently measured, <code>null</code> if no phase is active. */
+    private transient String currentPhase;
+    /** Start of the current phase. */
+    private transient long start;
+
+    /**
+     * Starts the specified phase. A currently running phase will be stopped.
+     *
+     * @param phase
+     *            the name of the phase
+     */
+    public void start(final String phase) {
+        stop();
+
+        currentPhase = phase;
+        start = System.currentTimeMillis();
+    }
+
+    /**
+     * Stops the currently running phase.
+     */
+    public void stop() {
+        if (currentPhase != null) {
+            add(currentPhase, System.currentTimeMillis() - start);
+            currentPhase = null; // NOPMD
+        }
+    }
+
+    /**
+     * Adds the specified duration to the specified phase.
+     *
+     * @param phase
+     *            the name of the phase
+     * @param duration
+     *            the duration in milliseconds
+     */
+    public void add(final String phase, final long duration) {
+        increment(durations, phase, duration);
+    }
+
+    /**
+     * Adds the time since the specified start to the specified phase.
+     *
+     * @param phase
+     *            the name of the phase
+     * @param startTime
+     *            the start time of the phase in milliseconds
+     * @see System#currentTimeMillis()
+     */
+    public void addSince(final String phase, final long startTime) {
+        add(phase, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Increments the specified counter.
+     *
+     * @param counter
+     *            the name of the counter
+     * @param amount
+     *            the amount to add
+     */
+    public void count(final String counter, final long amount) {
+        increment(counters, counter, amount);
+    }
+
+    private void increment(final Map<String, Long> values, final String name, final long amount) {
+        Long value = values.get(name);
+        if (value == null) {
+            values.put(name, amount);
+        }
+        else {
+            values.put(name, value + amount);
+        }
+    }
+
+    /**
+     * Adds all durations and counters of the specified timings to this
+     * timings.
+     *
+     * @param other
+     *            the timings to add
+     */
+    public void addAll(final PhaseTimings other) {
+        for (Map.Entry<String, Long> duration : other.durations.entrySet()) {
+            add(duration.getKey(), duration.getValue());
+        }
+        for (Map.Entry<String, Long> counter : other.counters.entrySet()) {
+            count(counter.getKey(), counter.getValue());
+        }
+    }
+
+    /**
+     * Returns the duration of the specified phase.
+     *
+     * @param phase
+     *            the name of the phase
+     * @return the duration in milliseconds, 0 if the phase has not been
+     *         measured
+     */
+    public long getDuration(final String phase) {
+        Long duration = durations.get(phase);
+        if (duration == null) {
+            return 0;
+        }
+        return duration;
+    }
+
+    /**
+     * Returns the value of the specified counter.
+     *
+     * @param counter
+     *            the name of the counter
+     * @return the value of the counter
+     */
+    public long getCount(final String counter) {
+        Long value = counters.get(counter);
+        if (value == null) {
+            return 0;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the total duration of all phases.
+     *
+     * @return the total duration in milliseconds
+     */
+    @Exported
+    public long getTotalDuration() {
+        long total = 0;
+        for (Long duration : durations.values()) {
+            total += duration;
+        }
+        return total;
+    }
+
+    /**
+     * Returns whether this timings contain no phases and no counters.
+     *
+     * @return <code>true</code> if there are no timings
+     */
+    public boolean isEmpty() {
+        return durations.isEmpty() && counters.isEmpty();
+    }
+
+    /**
+     * Returns the measured phases.
+     *
+     * @return the phases
+     */
+    @Exported
+    public List<Measurement> getPhases() {
+        return asMeasurements(durations);
+    }
+
+    /**
+     * Returns the counters.
+     *
+     * @return the counters
+     */
+    @Exported
+    public List<Measurement> getCounters() {
+        return asMeasurements(counters);
+    }
+
+    private List<Measurement> asMeasurements(final Map<String, Long> values) {
+        List<Measurement> measurements = Lists.newArrayList();
+        for (Map.Entry<String, Long> value : values.entrySet()) {
+            measurements.add(new Measurement(value.getKey(), value.getValue()));
+        }
+        return measurements;
+    }
+
+    /**
+     * Returns the lines of the breakdown of all phases and counters.
+     *
+     * @return the breakdown
+     */
+    public List<String> getBreakdown() {
+        List<String> lines = Lists.newArrayList();
+        long total = Math.max(1, getTotalDuration());
+        for (Map.Entry<String, Long> duration : durations.entrySet()) {
+            lines.add(String.format("%-25s %8d ms (%3d%%)", duration.getKey(), duration.getValue(),
+                    duration.getValue() * 100 / total));
+        }
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            lines.add(String.format("%-25s %8d", counter.getKey(), counter.getValue()));
+        }
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return durations + " " + counters;
+    }
+
+    /**
+     * The measured value of a phase or counter.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Measurement {
+        private final String name;
+        private final long value;
+
+        /**
+         * Creates a new instance of {@link Measurement}.
+         *
+         * @param name
+         *            the name of the phase or counter
+         * @param value
+         *            the measured value
+         */
+        public Measurement(final String name, final long value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        /**
+         * Returns the name of the phase or counter.
+         *
+         * @return the name
+         */
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the measured value.
+         *
+         * @return the duration in milliseconds or the value of the counter
+         */
+        @Exported
+        public long getValue() {
+            return value;
+        }
+    }
+}
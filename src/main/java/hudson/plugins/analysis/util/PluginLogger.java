@@ -14,6 +14,8 @@ public class PluginLogger {
     private final String pluginName;
     /** The actual print stream to log to. */
     private PrintStream logger;
+    /** The timings of the phases that have been logged. */
+    private final PhaseTimings timings = new PhaseTimings();
 
     /**
      * Creates a new instance of {@link PluginLogger}.
@@ -92,5 +94,37 @@ public class PluginLogger {
     public void logLines(final String lines) {
         logger.print(lines);
     }
-}
 
+    /**
+     * Starts the measurement of the specified phase. A currently running phase
+     * will be stopped.
+     *
+     * @param phase
+     *            the name of the phase
+     */
+    public void startPhase(final String phase) {
+        timings.start(phase);
+    }
+
+    /**
+     * Returns the timings of all phases that have been measured so far.
+     *
+     * @return the timings
+     */
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Stops the current phase and logs the time spent in each phase.
+     */
+    public void logTimings() {
+        timings.stop();
+        if (!timings.isEmpty()) {
+            log("Time spent in each phase:");
+            for (String line : timings.getBreakdown()) {
+                log("  " + line);
+            }
+        }
+    }
+}
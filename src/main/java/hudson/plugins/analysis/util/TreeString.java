@@ -1,6 +1,8 @@
 package hudson.plugins.analysis.util;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
@@ -76,6 +78,35 @@ public final class TreeString implements Serializable {
         return middle;
     }
 
+    /**
+     * Returns the number of characters of the label of this node.
+     */
+    /* package */int labelLength() {
+        return label.length;
+    }
+
+    /**
+     * Returns the length of the common prefix of the label of this node and
+     * the specified string, starting at the given offset of the string.
+     */
+    /* package */int commonPrefix(final String s, final int offset) {
+        int m = Math.min(label.length, s.length() - offset);
+
+        for (int i = 0; i < m; i++) {
+            if (label[i] != s.charAt(offset + i)) {
+                return i;
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Returns the first character of the label of this node.
+     */
+    /* package */char firstChar() {
+        return label[0];
+    }
+
     /**
      * How many nodes do we have from the root to this node (including 'this'
      * itself?) Thus depth of the root node is 1.
@@ -94,7 +125,7 @@ public final class TreeString implements Serializable {
             return false;
         }
         return rhs.getClass() == TreeString.class
-                && ((TreeString)rhs).getLabel().equals(getLabel());
+                && ((TreeString)rhs).toString().equals(toString());
     }
 
     @Override
@@ -168,7 +199,9 @@ public final class TreeString implements Serializable {
 
     /**
      * Default {@link Converter} implementation for XStream that does interning
-     * scoped to one unmarshalling.
+     * scoped to one unmarshalling. Strings that are already part of the shared
+     * {@link TreeStringPool} are reused, all other strings are added to that
+     * pool after the unmarshalling has been completed.
      */
     @SuppressWarnings("all")
     public static final class ConverterImpl implements Converter {
@@ -180,23 +213,55 @@ public final class TreeString implements Serializable {
         }
 
         public Object unmarshal(final HierarchicalStreamReader reader, final UnmarshallingContext context) {
-            TreeStringBuilder builder = (TreeStringBuilder)context.get(TreeStringBuilder.class);
-            if (builder == null) {
-                context.put(TreeStringBuilder.class, builder = new TreeStringBuilder());
+            String value = reader.getValue();
+            TreeString shared = TreeStringPool.getInstance().get(value);
+            if (shared != null) {
+                return shared;
+            }
 
-                // dedup at the end
-                final TreeStringBuilder _builder = builder;
+            LoadScope scope = (LoadScope)context.get(LoadScope.class);
+            if (scope == null) {
+                context.put(LoadScope.class, scope = new LoadScope());
+
+                // dedup and publish at the end
+                final LoadScope _scope = scope;
                 context.addCompletionCallback(new Runnable() {
                     public void run() {
-                        _builder.dedup();
+                        _scope.dispose();
                     }
                 }, 0);
             }
-            return builder.intern(reader.getValue());
+            return scope.intern(value);
         }
 
         public boolean canConvert(final Class type) {
             return type == TreeString.class;
         }
     }
+
+    /**
+     * The {@link TreeString}s created during one unmarshalling. These strings
+     * are still modified while the unmarshalling is in progress, so they are
+     * added to the shared pool only after the unmarshalling has been completed.
+     */
+    private static final class LoadScope {
+        private final TreeStringBuilder builder = new TreeStringBuilder();
+        private final List<TreeString> created = new ArrayList<TreeString>();
+
+        TreeString intern(final String value) {
+            TreeString result = builder.intern(value);
+            created.add(result);
+            return result;
+        }
+
+        void dispose() {
+            builder.dedup();
+
+            TreeStringPool pool = TreeStringPool.getInstance();
+            for (TreeString value : created) {
+                pool.intern(value);
+            }
+            created.clear();
+        }
+    }
 }
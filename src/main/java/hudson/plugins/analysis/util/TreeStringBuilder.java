@@ -28,7 +28,12 @@ public class TreeStringBuilder {
     private static class Child {
         private final TreeString node;
 
-        private Map<String, Child> children = NO_CHILDREN;
+        /**
+         * Children of this node, indexed by the first character of their
+         * label. Since no two edges of a node share a common prefix, the first
+         * character identifies the only edge that can match.
+         */
+        private Map<Character, Child> children = NO_CHILDREN;
 
         private Child(final TreeString node) {
             this.node = node;
@@ -39,38 +44,31 @@ public class TreeStringBuilder {
          * if any.
          */
         public Child intern(final String s) {
-            if (s.length() == 0) {
-                return this;
-            }
-
-            makeWritable();
-            for (Map.Entry<String, Child> e : children.entrySet()) {
-                int plen = commonPrefix(e.getKey(), s);
-                if (plen > 0) {
-                    if (plen < e.getKey().length()) {
-                        // insert a node between this and e.value
-                        Child c = e.getValue();
-                        String prefix = s.substring(0, plen);
-                        Child middle = c.split(prefix);
-
-                        // add 'middle' instead of 'c'
-                        children.remove(e.getKey());
-                        children.put(prefix, middle);
-
-                        return middle.intern(s.substring(plen));
-                    }
-                    else {// entire key is suffix
-                        return e.getValue().intern(s.substring(plen));
-                    }
+            Child current = this;
+            int offset = 0;
+            while (offset < s.length()) {
+                current.makeWritable();
+
+                Character first = s.charAt(offset);
+                Child c = current.children.get(first);
+                if (c == null) {
+                    // no common prefix. an entirely new node.
+                    Child t = new Child(new TreeString(current.node, s.substring(offset)));
+                    current.children.put(first, t);
+                    return t;
                 }
-            }
 
-            // no common prefix. an entirely new node.
-            Child t = children.get(s);
-            if (t == null) {
-                children.put(s, t = new Child(new TreeString(node, s)));
+                int plen = c.node.commonPrefix(s, offset);
+                if (plen < c.node.labelLength()) {
+                    // insert a node between current and c, and add 'middle' instead of 'c'
+                    Child middle = c.split(s.substring(offset, offset + plen));
+                    current.children.put(first, middle);
+                    c = middle;
+                }
+                current = c;
+                offset += plen;
             }
-            return t;
+            return current;
         }
 
         /**
@@ -78,7 +76,7 @@ public class TreeStringBuilder {
          */
         private void makeWritable() {
             if (children == NO_CHILDREN) {
-                children = new HashMap<String, Child>();
+                children = new HashMap<Character, Child>();
             }
         }
 
@@ -88,29 +86,13 @@ public class TreeStringBuilder {
          * child.
          */
         private Child split(final String prefix) {
-            String suffix = node.getLabel().substring(prefix.length());
-
             Child middle = new Child(node.split(prefix));
             middle.makeWritable();
-            middle.children.put(suffix, this);
+            middle.children.put(node.firstChar(), this);
 
             return middle;
         }
 
-        /**
-         * Returns the common prefix between two strings.
-         */
-        private int commonPrefix(final String a, final String b) {
-            int m = Math.min(a.length(), b.length());
-
-            for (int i = 0; i < m; i++) {
-                if (a.charAt(i) != b.charAt(i)) {
-                    return i;
-                }
-            }
-            return m;
-        }
-
         /**
          * Calls {@link TreeString#dedup(Map)} recursively.
          */
@@ -153,6 +135,6 @@ public class TreeStringBuilder {
     /**
      * Place holder that represents no child node, until one is added.
      */
-    private static final Map<String, Child> NO_CHILDREN = Collections.emptyMap();
+    private static final Map<Character, Child> NO_CHILDREN = Collections.emptyMap();
 
 }
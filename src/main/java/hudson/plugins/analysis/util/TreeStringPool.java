@@ -0,0 +1,99 @@
+package hudson.plugins.analysis.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A pool of {@link TreeString}s that is shared between all loaded build
+ * results. Consecutive builds of a job typically report the same file names,
+ * module names and messages, so annotations that are loaded from different
+ * data files can share these instances. The pool holds its elements weakly:
+ * a {@link TreeString} is removed as soon as no loaded annotation references it
+ * anymore.
+ * <p>
+ * Only {@link TreeString}s that will not be modified anymore are allowed to be
+ * added to this pool, i.e. the {@link TreeStringBuilder} that created them must
+ * already be disposed.
+ *
+ * @author Ulli Hafner
+ */
+public final class TreeStringPool {
+    private static final TreeStringPool INSTANCE = new TreeStringPool();
+
+    /**
+     * Returns the pool that is shared between all build results.
+     *
+     * @return the shared pool
+     */
+    public static TreeStringPool getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<TreeString, WeakReference<TreeString>> pool = new WeakHashMap<TreeString, WeakReference<TreeString>>();
+
+    /**
+     * Returns the pooled {@link TreeString} with the specified value.
+     *
+     * @param value
+     *            the value of the string
+     * @return the pooled {@link TreeString} or <code>null</code> if there is no
+     *         such string in the pool
+     */
+    public synchronized TreeString get(final String value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<TreeString> reference = pool.get(TreeString.of(value));
+        if (reference == null) {
+            return null;
+        }
+        return reference.get();
+    }
+
+    /**
+     * Adds the specified {@link TreeString} to this pool, if there is no equal
+     * string in the pool yet.
+     *
+     * @param value
+     *            the string to add
+     * @return the pooled instance that is equal to the specified string
+     */
+    public synchronized TreeString intern(final TreeString value) {
+        if (value == null) {
+            return null;
+        }
+        WeakReference<TreeString> reference = pool.get(value);
+        if (reference != null) {
+            TreeString pooled = reference.get();
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+        pool.put(value, new WeakReference<TreeString>(value));
+        return value;
+    }
+
+    /**
+     * Returns the number of strings in this pool.
+     *
+     * @return the number of strings
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+
+    /**
+     * Removes all strings from this pool.
+     */
+    public synchronized void clear() {
+        pool.clear();
+    }
+
+    /**
+     * Creates a new instance of {@link TreeStringPool}.
+     */
+    private TreeStringPool() {
+        // prevents instantiation
+    }
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
@@ -35,15 +36,18 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
     public static final String WORKSPACE_FILES = "workspace-files";
     /** Unique identifier of this class. */
     private static final long serialVersionUID = -1092014926477547148L;
-    /** Current key of this annotation. */
-    private static long currentKey;
+    /**
+     * Current key of this annotation. Annotations might be created concurrently
+     * by several parsers, so the key must be allocated atomically.
+     */
+    private static final AtomicLong CURRENT_KEY = new AtomicLong();
 
     /** The message of this annotation. */
     private /*almost final*/ TreeString message;
     /** The priority of this annotation. */
     private Priority priority;
     /** Unique key of this annotation. */
-    private final long key;
+    private long key;
     /**
      * The ordered list of line ranges that show the origin of the annotation in
      * the associated file. To save memory consumption, this can be
@@ -90,19 +94,18 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
      * @param type
      *            the type of the annotation
      */
-    @edu.umd.cs.findbugs.annotations.SuppressWarnings("ST")
     public AbstractAnnotation(final String message, final int start, final int end, final String category, final String type) {
         this.message = TreeString.of(StringUtils.strip(message));
         this.category = StringUtils.defaultString(category);
         this.type = StringUtils.defaultString(type);
 
-        key = currentKey++;
+        key = nextKey();
 
         lineRanges = new LineRangeList();
         lineRanges.add(new LineRange(start, end));
         primaryLineNumber = start;
 
-        contextHashCode = currentKey;
+        contextHashCode = key + 1;
     }
 
     /**
@@ -133,9 +136,8 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
      * @param copy
      *            the annotation to copy the values from
      */
-    @edu.umd.cs.findbugs.annotations.SuppressWarnings("ST")
     public AbstractAnnotation(final AbstractAnnotation copy) {
-        key = currentKey++;
+        key = nextKey();
 
         message = TreeString.of(copy.getMessage());
         priority = copy.getPriority();
@@ -151,6 +153,15 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
         packageName = TreeString.of(copy.getPackageName());
     }
 
+    /**
+     * Returns a new unique key for an annotation. This method is thread safe.
+     *
+     * @return the new key
+     */
+    private static long nextKey() {
+        return CURRENT_KEY.getAndIncrement();
+    }
+
     /**
      * Called after XStream de-serialization to improve the memory usage.
      * Ideally we'd like this to be protected, so that the subtype can call this
@@ -320,6 +331,21 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
         return key;
     }
 
+    /**
+     * Replaces the key of this annotation. Keys are unique within a single
+     * Hudson session only, so annotations that have been created in
+     * different sessions need to be re-keyed if they are combined.
+     *
+     * @param key
+     *            the new key
+     */
+    public final void setKey(final long key) {
+        if (contextHashCode == this.key + 1) {
+            contextHashCode = key + 1;
+        }
+        this.key = key;
+    }
+
     /** {@inheritDoc} */
     @Exported
     public final String getFileName() {
@@ -0,0 +1,329 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Indexes a fixed sequence of annotations by the values of several
+ * dimensions. For each value of a dimension the positions of the annotations
+ * with this value are stored, so an {@link AnnotationQuery} is evaluated with
+ * bitmap operations only. Values that occur rarely, e.g. the values of the
+ * file or package dimension, are stored as sorted positions, frequent values
+ * as a bitmap. The following dimensions are indexed:
+ * <ul>
+ * <li><code>priority</code>: the name of the priority, case insensitive</li>
+ * <li><code>module</code>, <code>package</code>, <code>category</code>,
+ * <code>type</code>, <code>origin</code>: the respective property</li>
+ * <li><code>file</code>: the absolute or the short file name</li>
+ * <li><code>state</code>: <code>new</code> or <code>fixed</code>, in an
+ * index that has been created with {@link #withState(Collection, Collection)}</li>
+ * </ul>
+ * The fixed annotations are not part of the annotations of a build. So an
+ * index with state contains the fixed annotations after the indexed
+ * annotations, i.e. queries on such an index might return fixed annotations.
+ *
+ * @author Ulli Hafner
+ */
+public class AnnotationIndex {
+    /** Dimension of the priority. */
+    public static final String PRIORITY = "priority";
+    /** Dimension of the module name. */
+    public static final String MODULE = "module";
+    /** Dimension of the package name. */
+    public static final String PACKAGE = "package";
+    /** Dimension of the file name. */
+    public static final String FILE = "file";
+    /** Dimension of the category. */
+    public static final String CATEGORY = "category";
+    /** Dimension of the type. */
+    public static final String TYPE = "type";
+    /** Dimension of the origin. */
+    public static final String ORIGIN = "origin";
+    /** Dimension of the state with respect to the reference build. */
+    public static final String STATE = "state";
+    /** State of new annotations. */
+    public static final String NEW = "new";
+    /** State of fixed annotations. */
+    public static final String FIXED = "fixed";
+
+    /** All dimensions of the index. */
+    public static final List<String> DIMENSIONS = Collections.unmodifiableList(
+            Arrays.asList(PRIORITY, MODULE, PACKAGE, FILE, CATEGORY, TYPE, ORIGIN, STATE));
+
+    /** The indexed annotations, the position is the bit in the bitmaps. */
+    private final FileAnnotation[] annotations;
+    /** The positions of each value, mapped by the dimension. */
+    private final Map<String, ConcurrentMap<String, Postings>> postings = Maps.newHashMap();
+    /** The absolute file names, mapped by the short file name. */
+    private final Map<String, Set<String>> fileNames = Maps.newHashMap();
+    /** Determines whether the state of the annotations is indexed. */
+    private boolean hasState;
+
+    /**
+     * Creates a new instance of {@link AnnotationIndex}.
+     *
+     * @param annotations
+     *            the annotations to index, results of queries are returned in
+     *            the order of this collection
+     */
+    public AnnotationIndex(final Collection<? extends FileAnnotation> annotations) {
+        this(annotations.toArray(new FileAnnotation[annotations.size()]));
+    }
+
+    private AnnotationIndex(final FileAnnotation[] annotations) {
+        this.annotations = annotations;
+        for (String dimension : DIMENSIONS) {
+            postings.put(dimension, Maps.<String, Postings>newConcurrentMap());
+        }
+        for (int i = 0; i < this.annotations.length; i++) {
+            FileAnnotation annotation = this.annotations[i];
+            add(PRIORITY, annotation.getPriority().name(), i);
+            add(MODULE, annotation.getModuleName(), i);
+            add(PACKAGE, annotation.getPackageName(), i);
+            add(FILE, annotation.getFileName(), i);
+            add(CATEGORY, annotation.getCategory(), i);
+            add(TYPE, annotation.getType(), i);
+            add(ORIGIN, annotation.getOrigin(), i);
+            addFileName(annotation);
+        }
+        for (Map<String, Postings> values : postings.values()) {
+            for (Postings positions : values.values()) {
+                positions.compact(this.annotations.length);
+            }
+        }
+    }
+
+    private void add(final String dimension, final String value, final int position) {
+        if (value == null) {
+            return;
+        }
+        Map<String, Postings> values = postings.get(dimension);
+        String key = normalize(dimension, value);
+        Postings positions = values.get(key);
+        if (positions == null) {
+            positions = new Postings();
+            values.put(key, positions);
+        }
+        positions.add(position);
+    }
+
+    private void addFileName(final FileAnnotation annotation) {
+        String shortName = annotation.getShortFileName();
+        String fileName = annotation.getFileName();
+        if (shortName == null || fileName == null || shortName.equals(fileName)) {
+            return;
+        }
+        Set<String> names = fileNames.get(shortName);
+        if (names == null) {
+            names = Sets.newHashSet();
+            fileNames.put(shortName, names);
+        }
+        names.add(fileName);
+    }
+
+    private String normalize(final String dimension, final String value) {
+        if (PRIORITY.equals(dimension) || STATE.equals(dimension)) {
+            return StringUtils.lowerCase(value);
+        }
+        return value;
+    }
+
+    /**
+     * Creates a new index that additionally indexes the state of the
+     * annotations. The new index contains the annotations of this index,
+     * followed by the specified fixed annotations.
+     *
+     * @param newAnnotations
+     *            the annotations of this index that are new
+     * @param fixedAnnotations
+     *            the annotations that have been fixed, these annotations are
+     *            not part of this index
+     * @return the new index with state
+     */
+    public AnnotationIndex withState(final Collection<FileAnnotation> newAnnotations,
+            final Collection<FileAnnotation> fixedAnnotations) {
+        Set<FileAnnotation> indexed = Sets.newHashSet(annotations);
+        List<FileAnnotation> all = Lists.newArrayList(annotations);
+        for (FileAnnotation annotation : fixedAnnotations) {
+            if (!indexed.contains(annotation)) {
+                all.add(annotation);
+            }
+        }
+        AnnotationIndex index = new AnnotationIndex(all.toArray(new FileAnnotation[all.size()]));
+        index.addState(NEW, newAnnotations);
+        index.addState(FIXED, fixedAnnotations);
+        index.hasState = true;
+
+        return index;
+    }
+
+    private void addState(final String state, final Collection<FileAnnotation> members) {
+        Set<FileAnnotation> lookup = new HashSet<FileAnnotation>(members);
+        Postings positions = new Postings();
+        for (int i = 0; i < annotations.length; i++) {
+            if (lookup.contains(annotations[i])) {
+                positions.add(i);
+            }
+        }
+        positions.compact(annotations.length);
+        postings.get(STATE).put(state, positions);
+    }
+
+    /**
+     * Returns whether the state of the annotations is indexed, see
+     * {@link #withState(Collection, Collection)}.
+     *
+     * @return <code>true</code> if the state dimension is indexed
+     */
+    public boolean hasState() {
+        return hasState;
+    }
+
+    /**
+     * Returns the number of indexed annotations.
+     *
+     * @return the number of annotations
+     */
+    public int size() {
+        return annotations.length;
+    }
+
+    /**
+     * Returns a bitmap that marks all annotations.
+     *
+     * @return a new bitmap with all bits set
+     */
+    public BitSet getAll() {
+        BitSet all = new BitSet(annotations.length);
+        all.set(0, annotations.length);
+        return all;
+    }
+
+    /**
+     * Returns a bitmap that marks the annotations with the specified value.
+     *
+     * @param dimension
+     *            the dimension, see {@link #DIMENSIONS}
+     * @param value
+     *            the value
+     * @return a new bitmap that might be modified by the caller
+     * @throws IllegalArgumentException
+     *             if the dimension is not indexed
+     */
+    public BitSet get(final String dimension, final String value) {
+        Map<String, Postings> values = postings.get(dimension);
+        if (values == null) {
+            throw new IllegalArgumentException("Unknown dimension: " + dimension);
+        }
+        BitSet bitmap = new BitSet(annotations.length);
+        Postings positions = values.get(normalize(dimension, value));
+        if (positions != null) {
+            positions.addTo(bitmap);
+        }
+        if (FILE.equals(dimension) && fileNames.containsKey(value)) {
+            for (String fileName : fileNames.get(value)) {
+                values.get(fileName).addTo(bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the values of the specified dimension.
+     *
+     * @param dimension
+     *            the dimension, see {@link #DIMENSIONS}
+     * @return the values
+     */
+    public Set<String> getValues(final String dimension) {
+        Map<String, Postings> values = postings.get(dimension);
+        if (values == null) {
+            return Collections.emptySet();
+        }
+        if (FILE.equals(dimension)) {
+            return Collections.unmodifiableSet(Sets.union(values.keySet(), fileNames.keySet()));
+        }
+        return Collections.unmodifiableSet(values.keySet());
+    }
+
+    /**
+     * Returns the annotations that are marked in the specified bitmap.
+     *
+     * @param bitmap
+     *            the bitmap
+     * @return the annotations in the order of the index
+     */
+    public List<FileAnnotation> getAnnotations(final BitSet bitmap) {
+        List<FileAnnotation> selected = Lists.newArrayListWithCapacity(bitmap.cardinality());
+        for (int i = bitmap.nextSetBit(0); i >= 0 && i < annotations.length; i = bitmap.nextSetBit(i + 1)) {
+            selected.add(annotations[i]);
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the annotations that match the specified query.
+     *
+     * @param query
+     *            the query
+     * @return the matching annotations in the order of the index
+     */
+    public List<FileAnnotation> select(final AnnotationQuery query) {
+        return getAnnotations(query.evaluate(this));
+    }
+
+    /**
+     * The positions of the annotations with a given value. While the index is
+     * built the positions are appended to a sorted array. Afterwards the
+     * positions are kept in the smaller representation: a value that marks
+     * more than every 32nd annotation is converted to a bitmap.
+     */
+    private static final class Postings {
+        private int[] positions = new int[1];
+        private int size;
+        private BitSet bitmap;
+
+        void add(final int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        void compact(final int length) {
+            if ((long)size * Integer.SIZE > length) {
+                BitSet dense = new BitSet(length);
+                addTo(dense);
+                bitmap = dense;
+                positions = null;
+            }
+            else if (positions.length > size) {
+                positions = Arrays.copyOf(positions, size);
+            }
+        }
+
+        void addTo(final BitSet target) {
+            if (bitmap == null) {
+                for (int i = 0; i < size; i++) {
+                    target.set(positions[i]);
+                }
+            }
+            else {
+                target.or(bitmap);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * A filter for annotations that is evaluated on an {@link AnnotationIndex}.
+ * A query consists of terms <code>dimension:value</code> that are combined
+ * with the operators <code>NOT</code>, <code>AND</code> and <code>OR</code>
+ * (in the order of their precedence) and parentheses. Adjacent terms are
+ * combined with <code>AND</code>. Values that contain blanks or parentheses
+ * are quoted with double quotes. Example:
+ *
+ * <pre>
+ * priority:high AND (module:core OR NOT category:"Coding Style") state:new
+ * </pre>
+ *
+ * @author Ulli Hafner
+ */
+public final class AnnotationQuery {
+    private static final String AND = "AND";
+    private static final String OR = "OR";
+    private static final String NOT = "NOT";
+    private static final String OPEN = "(";
+    private static final String CLOSE = ")";
+
+    /**
+     * Parses the specified query.
+     *
+     * @param query
+     *            the query
+     * @return the parsed query, an empty query matches all annotations
+     * @throws IllegalArgumentException
+     *             if the query is not valid
+     */
+    public static AnnotationQuery parse(final String query) {
+        return new AnnotationQuery(query);
+    }
+
+    private final String query;
+    private final Node root;
+    private final Set<String> dimensions = Sets.newHashSet();
+
+    private final List<String> tokens;
+    private int position;
+
+    private AnnotationQuery(final String query) {
+        this.query = StringUtils.defaultString(query).trim();
+        tokens = tokenize(this.query);
+        if (tokens.isEmpty()) {
+            root = new All();
+        }
+        else {
+            root = parseOr();
+            if (position < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + tokens.get(position) + "' in query: " + query);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the specified dimension is used by this query.
+     *
+     * @param dimension
+     *            the dimension
+     * @return <code>true</code> if the query contains a term of this dimension
+     */
+    public boolean uses(final String dimension) {
+        return dimensions.contains(dimension);
+    }
+
+    /**
+     * Evaluates this query.
+     *
+     * @param index
+     *            the index of the annotations
+     * @return a bitmap that marks the matching annotations of the index
+     */
+    public BitSet evaluate(final AnnotationIndex index) {
+        return root.evaluate(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return query;
+    }
+
+    private Node parseOr() {
+        Node left = parseAnd();
+        while (accept(OR)) {
+            left = new Or(left, parseAnd());
+        }
+        return left;
+    }
+
+    private Node parseAnd() {
+        Node left = parseUnary();
+        while (position < tokens.size() && !isKeyword(OR) && !CLOSE.equals(tokens.get(position))) {
+            accept(AND);
+            left = new And(left, parseUnary());
+        }
+        return left;
+    }
+
+    private Node parseUnary() {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of query: " + query);
+        }
+        if (accept(NOT)) {
+            return new Not(parseUnary());
+        }
+        if (OPEN.equals(tokens.get(position))) {
+            position++;
+            Node node = parseOr();
+            if (position >= tokens.size() || !CLOSE.equals(tokens.get(position))) {
+                throw new IllegalArgumentException("Missing ')' in query: " + query);
+            }
+            position++;
+            return node;
+        }
+        return parseTerm(tokens.get(position++));
+    }
+
+    private Node parseTerm(final String token) {
+        String dimension = StringUtils.substringBefore(token, ":");
+        if (dimension.equals(token) || !AnnotationIndex.DIMENSIONS.contains(dimension)) {
+            throw new IllegalArgumentException("Expected one of " + AnnotationIndex.DIMENSIONS
+                    + " followed by ':' and a value instead of '" + token + "' in query: " + query);
+        }
+        String value = StringUtils.substringAfter(token, ":");
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        dimensions.add(dimension);
+        return new Term(dimension, value);
+    }
+
+    private boolean isKeyword(final String keyword) {
+        return position < tokens.size() && keyword.equalsIgnoreCase(tokens.get(position));
+    }
+
+    private boolean accept(final String keyword) {
+        if (isKeyword(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private static List<String> tokenize(final String query) {
+        List<String> result = Lists.newArrayList();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            }
+            else if (c == '(' || c == ')') {
+                result.add(String.valueOf(c));
+                i++;
+            }
+            else {
+                int start = i;
+                boolean quoted = false;
+                while (i < query.length()) {
+                    c = query.charAt(i);
+                    if (c == '"') {
+                        quoted = !quoted;
+                    }
+                    else if (!quoted && (Character.isWhitespace(c) || c == '(' || c == ')')) {
+                        break;
+                    }
+                    i++;
+                }
+                if (quoted) {
+                    throw new IllegalArgumentException("Missing '\"' in query: " + query);
+                }
+                result.add(query.substring(start, i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A node of the syntax tree of a query.
+     */
+    private abstract static class Node {
+        abstract BitSet evaluate(AnnotationIndex index);
+    }
+
+    /**
+     * Matches all annotations.
+     */
+    private static final class All extends Node {
+        @Override
+        BitSet evaluate(final AnnotationIndex index) {
+            return index.getAll();
+        }
+    }
+
+    /**
+     * Matches the annotations with a given value.
+     */
+    private static final class Term extends Node {
+        private final String dimension;
+        private final String value;
+
+        Term(final String dimension, final String value) {
+            this.dimension = dimension;
+            this.value = value;
+        }
+
+        @Override
+        BitSet evaluate(final AnnotationIndex index) {
+            return index.get(dimension, value);
+        }
+    }
+
+    /**
+     * Matches the annotations that are not matched by a node.
+     */
+    private static final class Not extends Node {
+        private final Node node;
+
+        Not(final Node node) {
+            this.node = node;
+        }
+
+        @Override
+        BitSet evaluate(final AnnotationIndex index) {
+            BitSet result = node.evaluate(index);
+            result.flip(0, index.size());
+            return result;
+        }
+    }
+
+    /**
+     * Matches the annotations that are matched by both nodes.
+     */
+    private static final class And extends Node {
+        private final Node left;
+        private final Node right;
+
+        And(final Node left, final Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        BitSet evaluate(final AnnotationIndex index) {
+            BitSet result = left.evaluate(index);
+            result.and(right.evaluate(index));
+            return result;
+        }
+    }
+
+    /**
+     * Matches the annotations that are matched by one of the nodes.
+     */
+    private static final class Or extends Node {
+        private final Node left;
+        private final Node right;
+
+        Or(final Node left, final Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        BitSet evaluate(final AnnotationIndex index) {
+            BitSet result = left.evaluate(index);
+            result.or(right.evaluate(index));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,1065 @@
+package hudson.plugins.analysis.util.model; // NOPMD
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.ImmutableSet;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Item;
+
+import hudson.plugins.analysis.util.PackageDetectors;
+
+/**
+ * A column oriented store for a large number of annotations. Rather than
+ * keeping a full {@link AbstractAnnotation} object per warning, the properties
+ * of all warnings are stored in primitive arrays (one array per property).
+ * String properties are dictionary encoded, i.e. each distinct string is stored
+ * only once and the columns contain the index of the string in the dictionary.
+ * <p>
+ * Counting, grouping and differencing are evaluated with loops over the
+ * primitive columns. The annotations are visible as lightweight
+ * {@link FileAnnotation} flyweights that read (and write) the values of their
+ * row.
+ * <p>
+ * The primitive columns can be moved outside of the Java heap to reduce the
+ * load of the garbage collector for very large sets of annotations, see
+ * {@link #moveOffHeap()}.
+ * <p>
+ * Each annotation is stored with its primary line range only. This class is
+ * not thread safe.
+ *
+ * @author Ulli Hafner
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+public class AnnotationTable implements AnnotationProvider, Serializable {
+    private static final long serialVersionUID = 3012599405187735711L;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    /** Number of rows in this table. */
+    private int size;
+
+    /** The primitive columns, either on or off the Java heap. */
+    private TableColumns columns;
+
+    /** Dictionary of all strings of this table. */
+    private final StringDictionary dictionary;
+
+    /** The rows mapped by the key, created on demand, see {@link #findRow(long)}. */
+    private transient volatile KeyIndex keyIndex;
+
+    /**
+     * Creates a new instance of {@link AnnotationTable}.
+     */
+    public AnnotationTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new instance of {@link AnnotationTable}.
+     *
+     * @param capacity
+     *            the initial number of rows
+     */
+    public AnnotationTable(final int capacity) {
+        dictionary = new StringDictionary();
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Creates a new instance of {@link AnnotationTable} that contains the
+     * specified annotations.
+     *
+     * @param annotations
+     *            the annotations to add
+     */
+    public AnnotationTable(final Collection<? extends FileAnnotation> annotations) {
+        this(annotations.size());
+
+        addAnnotations(annotations);
+    }
+
+    private void allocate(final int capacity) {
+        columns = new TableColumns.HeapColumns(capacity);
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > columns.capacity()) {
+            if (columns.isDirect()) {
+                throw new IllegalStateException("Annotations stored off heap can't be changed.");
+            }
+            int newCapacity = Math.max(capacity, columns.capacity() + (columns.capacity() >> 1));
+            ((TableColumns.HeapColumns)columns).resize(newCapacity);
+        }
+    }
+
+    /**
+     * Reduces the capacity of this table to its actual number of rows.
+     */
+    public void trim() {
+        if (size < columns.capacity() && !columns.isDirect()) {
+            ((TableColumns.HeapColumns)columns).resize(Math.max(1, size));
+        }
+    }
+
+    /**
+     * Moves the primitive columns of this table to a direct buffer outside of
+     * the Java heap. Afterwards, no more annotations can be added to this
+     * table. The memory of the buffer will be released if this table is no
+     * longer referenced.
+     */
+    public void moveOffHeap() {
+        if (!columns.isDirect()) {
+            columns = columns.copyTo(new TableColumns.DirectColumns(size), size);
+        }
+    }
+
+    /**
+     * Moves the primitive columns of this table back to the Java heap.
+     */
+    public void moveOnHeap() {
+        if (columns.isDirect()) {
+            columns = columns.copyTo(new TableColumns.HeapColumns(Math.max(1, size)), size);
+        }
+    }
+
+    /**
+     * Returns whether the primitive columns of this table are stored outside
+     * of the Java heap.
+     *
+     * @return <code>true</code> if the columns are stored off heap
+     */
+    public boolean isOffHeap() {
+        return columns.isDirect();
+    }
+
+    /**
+     * Returns the estimated number of bytes this table uses on the Java heap.
+     *
+     * @return the number of bytes on the heap
+     */
+    public long getHeapUsage() {
+        long usage = dictionary.getMemoryUsage();
+        KeyIndex index = keyIndex;
+        if (index != null) {
+            usage += index.getMemoryUsage();
+        }
+        if (!columns.isDirect()) {
+            usage += columns.getMemoryUsage();
+        }
+        return usage;
+    }
+
+    /**
+     * Returns the number of bytes this table uses outside of the Java heap.
+     *
+     * @return the number of bytes off heap
+     */
+    public long getOffHeapUsage() {
+        if (columns.isDirect()) {
+            return columns.getMemoryUsage();
+        }
+        return 0;
+    }
+
+    /**
+     * Replaces an off heap table with a copy on the Java heap before
+     * serialization.
+     *
+     * @return the object to serialize
+     */
+    private Object writeReplace() {
+        if (columns.isDirect()) {
+            AnnotationTable copy = new AnnotationTable(this);
+            copy.moveOnHeap();
+            return copy;
+        }
+        return this;
+    }
+
+    /**
+     * Creates a shallow copy of the specified table.
+     *
+     * @param copy
+     *            the table to copy
+     */
+    private AnnotationTable(final AnnotationTable copy) {
+        size = copy.size;
+        columns = copy.columns;
+        dictionary = copy.dictionary;
+    }
+
+    /**
+     * Adds the specified annotation as a new row to this table.
+     *
+     * @param annotation
+     *            the annotation to add
+     * @return the row of the added annotation
+     */
+    public int addAnnotation(final FileAnnotation annotation) {
+        ensureCapacity(size + 1);
+
+        int row = size;
+        columns.setKey(row, annotation.getKey());
+        columns.setPriority(row, annotation.getPriority().ordinal());
+        int start = annotation.getPrimaryLineNumber();
+        int end = start;
+        for (LineRange range : annotation.getLineRanges()) {
+            if (range.getStart() == start) {
+                end = range.getEnd();
+                break;
+            }
+        }
+        columns.setLineStart(row, start);
+        columns.setLineEnd(row, end);
+        columns.setContextHashCode(row, annotation.getContextHashCode());
+        setString(TableColumns.MESSAGE, row, annotation.getMessage());
+        setString(TableColumns.TOOLTIP, row, annotation.getToolTip());
+        setString(TableColumns.FILE, row, annotation.getFileName());
+        setString(TableColumns.PATH, row, annotation.getPathName());
+        setString(TableColumns.MODULE, row, annotation.getModuleName());
+        setString(TableColumns.PACKAGE, row, annotation.hasPackageName() ? annotation.getPackageName() : null);
+        setString(TableColumns.CATEGORY, row, annotation.getCategory());
+        setString(TableColumns.TYPE, row, annotation.getType());
+        setString(TableColumns.ORIGIN, row, annotation.getOrigin());
+        size++;
+        keyIndex = null; // NOPMD
+
+        return row;
+    }
+
+    /**
+     * Adds the specified annotations to this table.
+     *
+     * @param annotations
+     *            the annotations to add
+     */
+    public final void addAnnotations(final Collection<? extends FileAnnotation> annotations) {
+        ensureCapacity(size + annotations.size());
+        for (FileAnnotation annotation : annotations) {
+            addAnnotation(annotation);
+        }
+    }
+
+    /**
+     * Returns the number of rows of this table.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of distinct strings of this table.
+     *
+     * @return the number of distinct strings
+     */
+    public int getNumberOfStrings() {
+        return dictionary.size();
+    }
+
+    /**
+     * Returns the flyweight annotation for the specified row.
+     *
+     * @param row
+     *            the row
+     * @return the annotation of the row
+     */
+    public FileAnnotation getAnnotationAt(final int row) {
+        checkRow(row);
+
+        return new RowAnnotation(this, row);
+    }
+
+    private void checkRow(final int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " not in table of size " + size);
+        }
+    }
+
+    /**
+     * Returns the annotations of the specified rows.
+     *
+     * @param rows
+     *            the rows
+     * @return the annotations of the rows
+     */
+    public Set<FileAnnotation> getAnnotationsAt(final int[] rows) {
+        ImmutableSet.Builder<FileAnnotation> builder = ImmutableSet.builder();
+        for (int row : rows) {
+            builder.add(getAnnotationAt(row));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the row of the annotation with the specified key. The rows are
+     * indexed by their key when this method is called for the first time
+     * after an annotation has been added.
+     *
+     * @param key
+     *            the key of the annotation
+     * @return the row, or -1 if there is no such annotation
+     */
+    public int findRow(final long key) {
+        KeyIndex index = keyIndex;
+        if (index == null) {
+            index = new KeyIndex(columns, size);
+            keyIndex = index;
+        }
+        return index.get(key);
+    }
+
+    /** {@inheritDoc} */
+    public int getNumberOfAnnotations() {
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    public int getNumberOfAnnotations(final Priority priority) {
+        int ordinal = priority.ordinal();
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (columns.getPriority(row) == ordinal) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public int getNumberOfAnnotations(final String priority) {
+        return getNumberOfAnnotations(Priority.fromString(priority));
+    }
+
+    /**
+     * Returns the number of annotations for each priority. The counts are
+     * indexed by the ordinal of the priorities.
+     *
+     * @return the number of annotations per priority
+     */
+    public int[] getPriorityHistogram() {
+        int[] histogram = new int[PRIORITIES.length];
+        for (int row = 0; row < size; row++) {
+            histogram[columns.getPriority(row)]++;
+        }
+        return histogram;
+    }
+
+    /** {@inheritDoc} */
+    public boolean hasAnnotations() {
+        return size > 0;
+    }
+
+    /** {@inheritDoc} */
+    public boolean hasAnnotations(final Priority priority) {
+        int ordinal = priority.ordinal();
+        for (int row = 0; row < size; row++) {
+            if (columns.getPriority(row) == ordinal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    public boolean hasAnnotations(final String priority) {
+        return hasAnnotations(Priority.fromString(priority));
+    }
+
+    /** {@inheritDoc} */
+    public boolean hasNoAnnotations() {
+        return !hasAnnotations();
+    }
+
+    /** {@inheritDoc} */
+    public boolean hasNoAnnotations(final Priority priority) {
+        return !hasAnnotations(priority);
+    }
+
+    /** {@inheritDoc} */
+    public boolean hasNoAnnotations(final String priority) {
+        return !hasAnnotations(priority);
+    }
+
+    /** {@inheritDoc} */
+    public Set<FileAnnotation> getAnnotations() {
+        ImmutableSet.Builder<FileAnnotation> builder = ImmutableSet.builder();
+        for (int row = 0; row < size; row++) {
+            builder.add(new RowAnnotation(this, row));
+        }
+        return builder.build();
+    }
+
+    /** {@inheritDoc} */
+    public Set<FileAnnotation> getAnnotations(final Priority priority) {
+        int ordinal = priority.ordinal();
+        ImmutableSet.Builder<FileAnnotation> builder = ImmutableSet.builder();
+        for (int row = 0; row < size; row++) {
+            if (columns.getPriority(row) == ordinal) {
+                builder.add(new RowAnnotation(this, row));
+            }
+        }
+        return builder.build();
+    }
+
+    /** {@inheritDoc} */
+    public Set<FileAnnotation> getAnnotations(final String priority) {
+        return getAnnotations(Priority.fromString(priority));
+    }
+
+    /** {@inheritDoc} */
+    public FileAnnotation getAnnotation(final long key) {
+        int row = findRow(key);
+        if (row >= 0) {
+            return new RowAnnotation(this, row);
+        }
+        throw new NoSuchElementException("Annotation not found: key=" + key);
+    }
+
+    /** {@inheritDoc} */
+    public FileAnnotation getAnnotation(final String key) {
+        return getAnnotation(Long.parseLong(key));
+    }
+
+    /**
+     * Returns the number of annotations per module.
+     *
+     * @return the number of annotations mapped by module name
+     */
+    public Map<String, Integer> getModuleHistogram() {
+        return histogram(TableColumns.MODULE);
+    }
+
+    /**
+     * Returns the number of annotations per package.
+     *
+     * @return the number of annotations mapped by package name
+     */
+    public Map<String, Integer> getPackageHistogram() {
+        return histogram(TableColumns.PACKAGE);
+    }
+
+    /**
+     * Returns the number of annotations per file.
+     *
+     * @return the number of annotations mapped by file name
+     */
+    public Map<String, Integer> getFileHistogram() {
+        return histogram(TableColumns.FILE);
+    }
+
+    /**
+     * Returns the number of annotations per category.
+     *
+     * @return the number of annotations mapped by category
+     */
+    public Map<String, Integer> getCategoryHistogram() {
+        return histogram(TableColumns.CATEGORY);
+    }
+
+    /**
+     * Returns the number of annotations per type.
+     *
+     * @return the number of annotations mapped by type
+     */
+    public Map<String, Integer> getTypeHistogram() {
+        return histogram(TableColumns.TYPE);
+    }
+
+    private Map<String, Integer> histogram(final int column) {
+        int[] counts = new int[dictionary.size() + 1];
+        for (int row = 0; row < size; row++) {
+            counts[columns.getString(column, row) + 1]++;
+        }
+        Map<String, Integer> histogram = new HashMap<String, Integer>();
+        for (int id = -1; id < dictionary.size(); id++) {
+            if (counts[id + 1] > 0) {
+                histogram.put(StringUtils.defaultString(dictionary.get(id)), counts[id + 1]);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the rows of the annotations of the specified module.
+     *
+     * @param moduleName
+     *            the name of the module
+     * @return the rows of the module
+     */
+    public int[] getModuleRows(final String moduleName) {
+        return select(TableColumns.MODULE, moduleName);
+    }
+
+    /**
+     * Returns the rows of the annotations of the specified package.
+     *
+     * @param packageName
+     *            the name of the package
+     * @return the rows of the package
+     */
+    public int[] getPackageRows(final String packageName) {
+        return select(TableColumns.PACKAGE, packageName);
+    }
+
+    /**
+     * Returns the rows of the annotations of the specified file.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the rows of the file
+     */
+    public int[] getFileRows(final String fileName) {
+        return select(TableColumns.FILE, fileName);
+    }
+
+    /**
+     * Returns the rows of the annotations of the specified category.
+     *
+     * @param category
+     *            the category
+     * @return the rows of the category
+     */
+    public int[] getCategoryRows(final String category) {
+        return select(TableColumns.CATEGORY, category);
+    }
+
+    /**
+     * Returns the rows of the annotations of the specified type.
+     *
+     * @param type
+     *            the type
+     * @return the rows of the type
+     */
+    public int[] getTypeRows(final String type) {
+        return select(TableColumns.TYPE, type);
+    }
+
+    private int[] select(final int column, final String value) {
+        int id = dictionary.find(value);
+        if (id == StringDictionary.NOT_FOUND) {
+            return new int[0];
+        }
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (columns.getString(column, row) == id) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Returns the rows of the new annotations, i.e., the annotations that are
+     * in this table but not in the specified reference table. Uses the same
+     * semantics as {@link hudson.plugins.analysis.core.AnnotationDifferencer}:
+     * an annotation is not new if the reference contains an annotation with the
+     * same context hash code or an equal annotation.
+     *
+     * @param reference
+     *            the annotations of the reference build
+     * @return the rows of the new annotations
+     */
+    public int[] getNewRows(final AnnotationTable reference) {
+        return difference(this, reference);
+    }
+
+    /**
+     * Returns the rows (in the reference table) of the fixed annotations, i.e.,
+     * the annotations that are in the specified reference table but not in this
+     * table.
+     *
+     * @param reference
+     *            the annotations of the reference build
+     * @return the rows of the fixed annotations in the reference table
+     */
+    public int[] getFixedRows(final AnnotationTable reference) {
+        return difference(reference, this);
+    }
+
+    private static int[] difference(final AnnotationTable target, final AnnotationTable other) {
+        long[] otherHashCodes = new long[other.size];
+        for (int row = 0; row < other.size; row++) {
+            otherHashCodes[row] = other.columns.getContextHashCode(row);
+        }
+        Arrays.sort(otherHashCodes);
+
+        int[] candidates = new int[target.size];
+        int count = 0;
+        for (int row = 0; row < target.size; row++) {
+            if (Arrays.binarySearch(otherHashCodes, target.columns.getContextHashCode(row)) < 0) {
+                candidates[count++] = row;
+            }
+        }
+        if (count == 0) {
+            return new int[0];
+        }
+
+        Set<List<Object>> otherRows = new HashSet<List<Object>>();
+        for (int row = 0; row < other.size; row++) {
+            otherRows.add(other.getIdentity(row));
+        }
+        int[] rows = new int[count];
+        int differences = 0;
+        for (int i = 0; i < count; i++) {
+            if (!otherRows.contains(target.getIdentity(candidates[i]))) {
+                rows[differences++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(rows, differences);
+    }
+
+    /**
+     * Returns the properties of the specified row that are compared when
+     * computing the new and fixed annotations.
+     */
+    private List<Object> getIdentity(final int row) {
+        return Arrays.<Object>asList(columns.getPriority(row), columns.getLineStart(row), columns.getLineEnd(row),
+                getString(TableColumns.MESSAGE, row), getString(TableColumns.FILE, row),
+                getString(TableColumns.MODULE, row), getString(TableColumns.PACKAGE, row),
+                getString(TableColumns.CATEGORY, row), getString(TableColumns.TYPE, row));
+    }
+
+    private String getString(final int column, final int row) {
+        return dictionary.get(columns.getString(column, row));
+    }
+
+    private void setString(final int column, final int row, final String value) {
+        columns.setString(column, row, dictionary.add(value));
+    }
+
+    /**
+     * A {@link FileAnnotation} that reads its properties from a row of an
+     * {@link AnnotationTable}. Two flyweights are equal if they refer to the
+     * same row of the same table: a row does not store the columns and the
+     * secondary line ranges of its annotation, so comparing the stored
+     * properties would merge annotations that are different in
+     * {@link AbstractAnnotation}. Flyweights are not serializable, use the
+     * table instead.
+     */
+    private static final class RowAnnotation implements FileAnnotation {
+        private static final String DEFAULT_PACKAGE = "Default Package";
+        private static final String SLASH = "/";
+
+        private final AnnotationTable table;
+        private final int row;
+
+        RowAnnotation(final AnnotationTable table, final int row) {
+            this.table = table;
+            this.row = row;
+        }
+
+        /** {@inheritDoc} */
+        public String getMessage() {
+            return StringUtils.defaultString(table.getString(TableColumns.MESSAGE, row));
+        }
+
+        /** {@inheritDoc} */
+        public String getToolTip() {
+            return StringUtils.defaultString(table.getString(TableColumns.TOOLTIP, row));
+        }
+
+        /** {@inheritDoc} */
+        public int getPrimaryLineNumber() {
+            return table.columns.getLineStart(row);
+        }
+
+        /** {@inheritDoc} */
+        public Collection<LineRange> getLineRanges() {
+            return Collections.singletonList(new LineRange(table.columns.getLineStart(row), table.columns.getLineEnd(row)));
+        }
+
+        /** {@inheritDoc} */
+        public long getKey() {
+            return table.columns.getKey(row);
+        }
+
+        /** {@inheritDoc} */
+        public Priority getPriority() {
+            return PRIORITIES[table.columns.getPriority(row)];
+        }
+
+        /** {@inheritDoc} */
+        public String getFileName() {
+            return table.getString(TableColumns.FILE, row);
+        }
+
+        /** {@inheritDoc} */
+        public String getLinkName() {
+            if (hasPackageName()) {
+                return getPackageName() + "." + FilenameUtils.getBaseName(getFileName());
+            }
+            else {
+                String pathName = getPathName();
+                if (StringUtils.isBlank(pathName)) {
+                    return getFileName();
+                }
+                else {
+                    return pathName + SLASH + getShortFileName();
+                }
+            }
+        }
+
+        /** {@inheritDoc} */
+        public String getTempName(final AbstractBuild<?, ?> owner) {
+            String fileName = getFileName();
+            if (fileName != null) {
+                return owner.getRootDir().getAbsolutePath()
+                        + SLASH + AbstractAnnotation.WORKSPACE_FILES
+                        + SLASH + Integer.toHexString(fileName.hashCode()) + ".tmp";
+            }
+            return StringUtils.EMPTY;
+        }
+
+        /** {@inheritDoc} */
+        public void setFileName(final String fileName) {
+            table.setString(TableColumns.FILE, row, StringUtils.strip(fileName).replace('\\', '/'));
+        }
+
+        /** {@inheritDoc} */
+        public void setPathName(final String workspacePath) {
+            String normalized = workspacePath.replace('\\', '/');
+
+            String s = StringUtils.removeStart(getFileName(), normalized);
+            s = StringUtils.remove(s, FilenameUtils.getName(getFileName()));
+            s = StringUtils.removeStart(s, SLASH);
+            s = StringUtils.removeEnd(s, SLASH);
+            table.setString(TableColumns.PATH, row, s);
+        }
+
+        /** {@inheritDoc} */
+        public boolean canDisplayFile(final AbstractBuild<?, ?> owner) {
+            if (owner.hasPermission(Item.WORKSPACE)) {
+                return new File(getFileName()).exists() || new File(getTempName(owner)).exists();
+            }
+            return false;
+        }
+
+        /** {@inheritDoc} */
+        public String getShortFileName() {
+            return FilenameUtils.getName(getFileName());
+        }
+
+        /** {@inheritDoc} */
+        public String getModuleName() {
+            return StringUtils.defaultString(table.getString(TableColumns.MODULE, row));
+        }
+
+        /** {@inheritDoc} */
+        public void setModuleName(final String moduleName) {
+            table.setString(TableColumns.MODULE, row, moduleName);
+        }
+
+        /** {@inheritDoc} */
+        public String getPackageName() {
+            return StringUtils.defaultIfEmpty(table.getString(TableColumns.PACKAGE, row), DEFAULT_PACKAGE);
+        }
+
+        /** {@inheritDoc} */
+        public boolean hasPackageName() {
+            String packageName = StringUtils.trim(table.getString(TableColumns.PACKAGE, row));
+
+            return StringUtils.isNotBlank(packageName) && !StringUtils.equals(packageName, PackageDetectors.UNDEFINED_PACKAGE);
+        }
+
+        /** {@inheritDoc} */
+        public String getPathName() {
+            return table.getString(TableColumns.PATH, row);
+        }
+
+        /** {@inheritDoc} */
+        public String getOrigin() {
+            return StringUtils.defaultString(table.getString(TableColumns.ORIGIN, row));
+        }
+
+        /** {@inheritDoc} */
+        public String getCategory() {
+            return StringUtils.defaultString(table.getString(TableColumns.CATEGORY, row));
+        }
+
+        /** {@inheritDoc} */
+        public String getType() {
+            return StringUtils.defaultString(table.getString(TableColumns.TYPE, row));
+        }
+
+        /** {@inheritDoc} */
+        public long getContextHashCode() {
+            return table.columns.getContextHashCode(row);
+        }
+
+        /** {@inheritDoc} */
+        public void setContextHashCode(final long contextHashCode) {
+            table.columns.setContextHashCode(row, contextHashCode);
+        }
+
+        /**
+         * Compares the fields of the annotations. Rows with the same fields
+         * are ordered by their table and row, so the order is consistent with
+         * {@link #equals(Object)}.
+         *
+         * @param other
+         *            the annotation to compare with
+         * @return the order of the annotations
+         */
+        public int compareTo(final FileAnnotation other) {
+            int result = StringUtils.defaultString(getFileName()).compareTo(StringUtils.defaultString(other.getFileName()));
+            if (result != 0) {
+                return result;
+            }
+            result = compare(getPrimaryLineNumber(), other.getPrimaryLineNumber());
+            if (result != 0) {
+                return result;
+            }
+            result = getMessage().compareTo(StringUtils.defaultString(other.getMessage()));
+            if (result != 0) {
+                return result;
+            }
+            result = getType().compareTo(StringUtils.defaultString(other.getType()));
+            if (result != 0) {
+                return result;
+            }
+            result = getCategory().compareTo(StringUtils.defaultString(other.getCategory()));
+            if (result != 0) {
+                return result;
+            }
+            result = getPriority().compareTo(other.getPriority());
+            if (result != 0) {
+                return result;
+            }
+            long key = getKey();
+            long otherKey = other.getKey();
+            if (key != otherKey) {
+                return key < otherKey ? -1 : 1;
+            }
+            if (other instanceof RowAnnotation) {
+                RowAnnotation otherRow = (RowAnnotation)other;
+                result = compare(System.identityHashCode(table), System.identityHashCode(otherRow.table));
+                if (result != 0) {
+                    return result;
+                }
+                return compare(row, otherRow.row);
+            }
+            return 0;
+        }
+
+        private int compare(final int value, final int otherValue) {
+            if (value == otherValue) {
+                return 0;
+            }
+            return value < otherValue ? -1 : 1;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(table) + row;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            RowAnnotation other = (RowAnnotation)obj;
+            return table == other.table && row == other.row;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s):%s,%s,%s:%s", getFileName(), getPrimaryLineNumber(),
+                    getPriority(), getCategory(), getType(), getMessage());
+        }
+    }
+
+    /**
+     * Maps the keys of the rows of a table to the rows. The keys and rows are
+     * stored in an open addressing hash table of primitive arrays. If
+     * several rows have the same key, then the first row is mapped.
+     */
+    private static final class KeyIndex {
+        /** Number of bytes of a slot. */
+        private static final int SLOT_SIZE = 12;
+
+        private final long[] keys;
+        /** The row of each slot plus one, 0 marks an empty slot. */
+        private final int[] rows;
+        private final int mask;
+
+        /**
+         * Creates a new instance of {@link KeyIndex}.
+         *
+         * @param columns
+         *            the columns of the table
+         * @param size
+         *            the number of rows of the table
+         */
+        KeyIndex(final TableColumns columns, final int size) {
+            int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+            keys = new long[capacity];
+            rows = new int[capacity];
+            mask = capacity - 1;
+            for (int row = 0; row < size; row++) {
+                long key = columns.getKey(row);
+                int slot = find(key);
+                if (rows[slot] == 0) {
+                    keys[slot] = key;
+                    rows[slot] = row + 1;
+                }
+            }
+        }
+
+        private int find(final long key) {
+            int slot = hash(key) & mask;
+            while (rows[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int hash(final long key) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int)(mixed ^ mixed >>> 32);
+        }
+
+        /**
+         * Returns the row of the specified key.
+         *
+         * @param key
+         *            the key
+         * @return the row, or -1 if there is no such key
+         */
+        int get(final long key) {
+            return rows[find(key)] - 1;
+        }
+
+        /**
+         * Returns the number of bytes used by this index.
+         *
+         * @return the number of bytes
+         */
+        long getMemoryUsage() {
+            return (long)keys.length * SLOT_SIZE;
+        }
+    }
+
+    /**
+     * Maps strings to consecutive integer IDs and vice versa. The
+     * <code>null</code> string is mapped to the ID -1.
+     */
+    static final class StringDictionary implements Serializable {
+        private static final long serialVersionUID = -4624917848432271449L;
+        /** ID of the <code>null</code> string. */
+        static final int NULL = -1;
+        /** Indicates a string that is not part of the dictionary. */
+        static final int NOT_FOUND = -2;
+        /** Estimated number of bytes of a string and its dictionary entries, without the characters. */
+        private static final int STRING_OVERHEAD = 120;
+
+        private final List<String> values = new ArrayList<String>();
+        private transient Map<String, Integer> ids = new HashMap<String, Integer>();
+
+        /**
+         * Adds the specified string to this dictionary.
+         *
+         * @param value
+         *            the string to add
+         * @return the ID of the string
+         */
+        int add(final String value) {
+            if (value == null) {
+                return NULL;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        /**
+         * Returns the ID of the specified string.
+         *
+         * @param value
+         *            the string
+         * @return the ID or {@link #NOT_FOUND} if the string is not part of this dictionary
+         */
+        int find(final String value) {
+            if (value == null) {
+                return NULL;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                return NOT_FOUND;
+            }
+            return id;
+        }
+
+        /**
+         * Returns the string with the specified ID.
+         *
+         * @param id
+         *            the ID
+         * @return the string
+         */
+        String get(final int id) {
+            if (id == NULL) {
+                return null;
+            }
+            return values.get(id);
+        }
+
+        /**
+         * Returns the number of strings in this dictionary.
+         *
+         * @return the number of strings
+         */
+        int size() {
+            return values.size();
+        }
+
+        /**
+         * Returns the estimated number of bytes used by this dictionary.
+         *
+         * @return the number of bytes
+         */
+        long getMemoryUsage() {
+            long usage = 0;
+            for (String value : values) {
+                usage += STRING_OVERHEAD + 2L * value.length();
+            }
+            return usage;
+        }
+
+        private void readObject(final ObjectInputStream input) throws IOException, ClassNotFoundException {
+            input.defaultReadObject();
+
+            ids = new HashMap<String, Integer>();
+            for (int id = 0; id < values.size(); id++) {
+                ids.put(values.get(id), id);
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The primitive columns of an {@link AnnotationTable}. The columns are either
+ * stored in arrays on the Java heap or in a direct {@link ByteBuffer} outside
+ * of the Java heap.
+ *
+ * @author Ulli Hafner
+ */
+abstract class TableColumns {
+    /** Column of the message. */
+    static final int MESSAGE = 0;
+    /** Column of the tooltip. */
+    static final int TOOLTIP = 1;
+    /** Column of the file name. */
+    static final int FILE = 2;
+    /** Column of the path name. */
+    static final int PATH = 3;
+    /** Column of the module name. */
+    static final int MODULE = 4;
+    /** Column of the package name. */
+    static final int PACKAGE = 5;
+    /** Column of the category. */
+    static final int CATEGORY = 6;
+    /** Column of the type. */
+    static final int TYPE = 7;
+    /** Column of the origin. */
+    static final int ORIGIN = 8;
+    /** Number of dictionary encoded string columns. */
+    static final int STRING_COLUMNS = 9;
+
+    /**
+     * Returns the number of rows that can be stored in these columns.
+     *
+     * @return the capacity
+     */
+    abstract int capacity();
+
+    /**
+     * Returns whether the columns are stored outside of the Java heap.
+     *
+     * @return <code>true</code> if the columns are stored off heap
+     */
+    abstract boolean isDirect();
+
+    /**
+     * Returns the number of bytes that are used by these columns.
+     *
+     * @return the number of bytes
+     */
+    abstract long getMemoryUsage();
+
+    abstract long getKey(int row);
+
+    abstract void setKey(int row, long value);
+
+    abstract long getContextHashCode(int row);
+
+    abstract void setContextHashCode(int row, long value);
+
+    abstract int getPriority(int row);
+
+    abstract void setPriority(int row, int value);
+
+    abstract int getLineStart(int row);
+
+    abstract void setLineStart(int row, int value);
+
+    abstract int getLineEnd(int row);
+
+    abstract void setLineEnd(int row, int value);
+
+    abstract int getString(int column, int row);
+
+    abstract void setString(int column, int row, int id);
+
+    /**
+     * Copies the first rows of these columns to the specified columns.
+     *
+     * @param target
+     *            the columns to copy the values to
+     * @param rows
+     *            the number of rows to copy
+     * @return the target columns
+     */
+    TableColumns copyTo(final TableColumns target, final int rows) {
+        for (int row = 0; row < rows; row++) {
+            target.setKey(row, getKey(row));
+            target.setContextHashCode(row, getContextHashCode(row));
+            target.setPriority(row, getPriority(row));
+            target.setLineStart(row, getLineStart(row));
+            target.setLineEnd(row, getLineEnd(row));
+            for (int column = 0; column < STRING_COLUMNS; column++) {
+                target.setString(column, row, getString(column, row));
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Columns that are stored in primitive arrays on the Java heap.
+     */
+    static final class HeapColumns extends TableColumns implements Serializable {
+        private static final long serialVersionUID = -3027741931520390113L;
+
+        private long[] keys;
+        private long[] contextHashCodes;
+        private int[] priorities;
+        private int[] lineStarts;
+        private int[] lineEnds;
+        private int[][] strings;
+
+        HeapColumns(final int capacity) {
+            keys = new long[capacity];
+            contextHashCodes = new long[capacity];
+            priorities = new int[capacity];
+            lineStarts = new int[capacity];
+            lineEnds = new int[capacity];
+            strings = new int[STRING_COLUMNS][capacity];
+        }
+
+        /**
+         * Changes the capacity of these columns.
+         *
+         * @param capacity
+         *            the new capacity
+         */
+        void resize(final int capacity) {
+            keys = Arrays.copyOf(keys, capacity);
+            contextHashCodes = Arrays.copyOf(contextHashCodes, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            lineStarts = Arrays.copyOf(lineStarts, capacity);
+            lineEnds = Arrays.copyOf(lineEnds, capacity);
+            for (int column = 0; column < STRING_COLUMNS; column++) {
+                strings[column] = Arrays.copyOf(strings[column], capacity);
+            }
+        }
+
+        @Override
+        int capacity() {
+            return keys.length;
+        }
+
+        @Override
+        boolean isDirect() {
+            return false;
+        }
+
+        @Override
+        long getMemoryUsage() {
+            return (long)capacity() * DirectColumns.ROW_SIZE;
+        }
+
+        @Override
+        long getKey(final int row) {
+            return keys[row];
+        }
+
+        @Override
+        void setKey(final int row, final long value) {
+            keys[row] = value;
+        }
+
+        @Override
+        long getContextHashCode(final int row) {
+            return contextHashCodes[row];
+        }
+
+        @Override
+        void setContextHashCode(final int row, final long value) {
+            contextHashCodes[row] = value;
+        }
+
+        @Override
+        int getPriority(final int row) {
+            return priorities[row];
+        }
+
+        @Override
+        void setPriority(final int row, final int value) {
+            priorities[row] = value;
+        }
+
+        @Override
+        int getLineStart(final int row) {
+            return lineStarts[row];
+        }
+
+        @Override
+        void setLineStart(final int row, final int value) {
+            lineStarts[row] = value;
+        }
+
+        @Override
+        int getLineEnd(final int row) {
+            return lineEnds[row];
+        }
+
+        @Override
+        void setLineEnd(final int row, final int value) {
+            lineEnds[row] = value;
+        }
+
+        @Override
+        int getString(final int column, final int row) {
+            return strings[column][row];
+        }
+
+        @Override
+        void setString(final int column, final int row, final int id) {
+            strings[column][row] = id;
+        }
+    }
+
+    /**
+     * Columns that are stored in a direct {@link ByteBuffer}, i.e. outside of
+     * the Java heap. Each row is stored as a fixed size record. The capacity of
+     * these columns is fixed.
+     */
+    static final class DirectColumns extends TableColumns {
+        private static final int KEY = 0;
+        private static final int CONTEXT_HASH_CODE = 8;
+        private static final int PRIORITY = 16;
+        private static final int LINE_START = 20;
+        private static final int LINE_END = 24;
+        private static final int STRINGS = 28;
+        /** Number of bytes of each row. */
+        static final int ROW_SIZE = STRINGS + 4 * STRING_COLUMNS;
+
+        private final ByteBuffer buffer;
+        private final int capacity;
+
+        DirectColumns(final int capacity) {
+            this.capacity = capacity;
+            buffer = ByteBuffer.allocateDirect(Math.max(1, capacity) * ROW_SIZE);
+        }
+
+        @Override
+        int capacity() {
+            return capacity;
+        }
+
+        @Override
+        boolean isDirect() {
+            return true;
+        }
+
+        @Override
+        long getMemoryUsage() {
+            return buffer.capacity();
+        }
+
+        private int offset(final int row, final int field) {
+            return row * ROW_SIZE + field;
+        }
+
+        @Override
+        long getKey(final int row) {
+            return buffer.getLong(offset(row, KEY));
+        }
+
+        @Override
+        void setKey(final int row, final long value) {
+            buffer.putLong(offset(row, KEY), value);
+        }
+
+        @Override
+        long getContextHashCode(final int row) {
+            return buffer.getLong(offset(row, CONTEXT_HASH_CODE));
+        }
+
+        @Override
+        void setContextHashCode(final int row, final long value) {
+            buffer.putLong(offset(row, CONTEXT_HASH_CODE), value);
+        }
+
+        @Override
+        int getPriority(final int row) {
+            return buffer.getInt(offset(row, PRIORITY));
+        }
+
+        @Override
+        void setPriority(final int row, final int value) {
+            buffer.putInt(offset(row, PRIORITY), value);
+        }
+
+        @Override
+        int getLineStart(final int row) {
+            return buffer.getInt(offset(row, LINE_START));
+        }
+
+        @Override
+        void setLineStart(final int row, final int value) {
+            buffer.putInt(offset(row, LINE_START), value);
+        }
+
+        @Override
+        int getLineEnd(final int row) {
+            return buffer.getInt(offset(row, LINE_END));
+        }
+
+        @Override
+        void setLineEnd(final int row, final int value) {
+            buffer.putInt(offset(row, LINE_END), value);
+        }
+
+        @Override
+        int getString(final int column, final int row) {
+            return buffer.getInt(offset(row, STRINGS + 4 * column));
+        }
+
+        @Override
+        void setString(final int column, final int row, final int id) {
+            buffer.putInt(offset(row, STRINGS + 4 * column), id);
+        }
+    }
+}
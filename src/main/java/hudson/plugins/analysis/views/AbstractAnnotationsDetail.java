@@ -2,13 +2,21 @@ package hudson.plugins.analysis.views;
 
 import java.util.Collection;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
+import com.google.common.collect.Lists;
+
 import hudson.model.ModelObject;
 import hudson.model.AbstractBuild;
 
+import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.WarningLifecycle;
 import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.AnnotationIndex;
+import hudson.plugins.analysis.util.model.AnnotationQuery;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
@@ -29,6 +37,10 @@ public abstract class AbstractAnnotationsDetail extends AnnotationContainer impl
 
     /** The factory to create detail objects with. */
     private final DetailFactory detailFactory;
+    /** The result that has created this detail object, might be <code>null</code>. */
+    private transient BuildResult result;
+    /** The most recently parsed query, see {@link #parse(String)}. */
+    private transient ParsedQuery parsedQuery;
 
     /**
      * Creates a new instance of {@link AbstractAnnotationsDetail}.
@@ -120,7 +132,166 @@ public abstract class AbstractAnnotationsDetail extends AnnotationContainer impl
      * @return the dynamic result of this module detail view
      */
     public Object getDynamic(final String link, final StaplerRequest request, final StaplerResponse response) {
-        return detailFactory.createDetails(link, owner, getContainer(), defaultEncoding, getDisplayName());
+        Object detail = detailFactory.createDetails(link, owner, getContainer(), defaultEncoding, getDisplayName());
+        if (detail instanceof AbstractAnnotationsDetail) {
+            ((AbstractAnnotationsDetail)detail).setResult(result);
+        }
+        return detail;
+    }
+
+    /**
+     * Sets the result that has created this detail object. The result
+     * provides the age and the new and fixed state of the warnings.
+     *
+     * @param result
+     *            the result, might be <code>null</code>
+     */
+    @SuppressWarnings("hiding")
+    public void setResult(final BuildResult result) {
+        this.result = result;
+    }
+
+    private WarningLifecycle getLifecycle() {
+        if (result == null) {
+            return null;
+        }
+        return result.getLifecycle();
+    }
+
+    /**
+     * Returns whether the age of the warnings is available.
+     *
+     * @return <code>true</code> if the age of the warnings is available
+     */
+    public boolean hasLifecycle() {
+        WarningLifecycle lifecycle = getLifecycle();
+
+        return lifecycle != null && lifecycle.getInitialBuild() > 0;
+    }
+
+    /**
+     * Returns the number of the build that introduced the specified warning.
+     *
+     * @param annotation
+     *            the warning
+     * @return the build number or 0 if the warning is unknown or has been
+     *         introduced again after the build of this detail
+     */
+    public int getFirstBuild(final FileAnnotation annotation) {
+        WarningLifecycle lifecycle = getLifecycle();
+        if (lifecycle == null) {
+            return 0;
+        }
+        int firstBuild = lifecycle.getFirstBuild(annotation);
+        if (firstBuild > owner.getNumber()) {
+            return 0;
+        }
+        return firstBuild;
+    }
+
+    /**
+     * Returns the age of the specified warning, i.e. the number of builds
+     * since the warning has been introduced.
+     *
+     * @param annotation
+     *            the warning
+     * @return the age, or -1 if the warning is unknown
+     */
+    public int getAge(final FileAnnotation annotation) {
+        WarningLifecycle lifecycle = getLifecycle();
+        if (lifecycle == null) {
+            return -1;
+        }
+        return lifecycle.getAge(annotation, owner.getNumber());
+    }
+
+    /**
+     * Returns the sorted annotations with an age in the specified range. If
+     * no range is specified or the age of the warnings is not available, then
+     * all annotations are returned.
+     *
+     * @param minimumAge
+     *            the minimum age (inclusive), might be empty
+     * @param maximumAge
+     *            the maximum age (inclusive), might be empty
+     * @return the annotations in the specified range
+     */
+    public Collection<FileAnnotation> filterByAge(final String minimumAge, final String maximumAge) {
+        return filter(null, minimumAge, maximumAge);
+    }
+
+    /**
+     * Returns the sorted annotations that match the specified query and have
+     * an age in the specified range. An empty query matches all annotations,
+     * an invalid query none, see {@link #getQueryError(String)}.
+     *
+     * @param query
+     *            the query, see {@link AnnotationQuery}, might be empty
+     * @param minimumAge
+     *            the minimum age (inclusive), might be empty
+     * @param maximumAge
+     *            the maximum age (inclusive), might be empty
+     * @return the matching annotations
+     */
+    public Collection<FileAnnotation> filter(final String query, final String minimumAge, final String maximumAge) {
+        Collection<FileAnnotation> annotations = getSortedAnnotations();
+        if (StringUtils.isNotBlank(query)) {
+            ParsedQuery parsed = parse(query);
+            if (parsed.error != null) {
+                return Lists.newArrayList();
+            }
+            annotations = select(annotations, parsed.query);
+        }
+
+        int minimum = NumberUtils.toInt(minimumAge, 0);
+        int maximum = NumberUtils.toInt(maximumAge, Integer.MAX_VALUE);
+        if (!hasLifecycle() || minimum <= 0 && maximum == Integer.MAX_VALUE) {
+            return annotations;
+        }
+        Collection<FileAnnotation> filtered = Lists.newArrayList();
+        for (FileAnnotation annotation : annotations) {
+            int age = getAge(annotation);
+            if (age >= minimum && age <= maximum) {
+                filtered.add(annotation);
+            }
+        }
+        return filtered;
+    }
+
+    private Collection<FileAnnotation> select(final Collection<FileAnnotation> annotations, final AnnotationQuery query) {
+        if (result == null) {
+            return new AnnotationIndex(annotations).select(query);
+        }
+        return result.query(annotations, query);
+    }
+
+    /**
+     * Returns the reason why the specified query is invalid.
+     *
+     * @param query
+     *            the query, might be empty
+     * @return the error message or <code>null</code> if the query is valid
+     */
+    public String getQueryError(final String query) {
+        return parse(query).error;
+    }
+
+    /**
+     * Parses the specified query. The view asks for the error and the
+     * matching annotations of the same query, so the last parsed query is
+     * kept.
+     *
+     * @param query
+     *            the query, might be empty
+     * @return the parsed query
+     */
+    private ParsedQuery parse(final String query) {
+        ParsedQuery parsed = parsedQuery;
+        if (parsed == null || !StringUtils.equals(parsed.text, query)) {
+            parsed = new ParsedQuery(query);
+            parsedQuery = parsed;
+        }
+        return parsed;
     }
 
     /**
@@ -131,4 +302,28 @@ public abstract class AbstractAnnotationsDetail extends AnnotationContainer impl
     public Priority[] getPriorities() {
         return Priority.values();
     }
+
+    /**
+     * A query and the result of parsing it.
+     */
+    private static final class ParsedQuery {
+        private final String text;
+        private final AnnotationQuery query;
+        private final String error;
+
+        ParsedQuery(final String text) {
+            this.text = text;
+
+            AnnotationQuery parsed = null;
+            String message = null;
+            try {
+                parsed = AnnotationQuery.parse(text);
+            }
+            catch (IllegalArgumentException exception) {
+                message = exception.getMessage();
+            }
+            query = parsed;
+            error = message;
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package hudson.plugins.analysis.views;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.collect.Lists;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Api;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Result object representing the annotations that match a query, see
+ * {@link hudson.plugins.analysis.util.model.AnnotationQuery}.
+ *
+ * @author Ulli Hafner
+ */
+@ExportedBean
+public class QueryDetail extends AbstractAnnotationsDetail {
+    /** Unique identifier of this class. */
+    private static final long serialVersionUID = 2873626580409470231L;
+    /** The query that selected the annotations. */
+    private final String query;
+
+    /**
+     * Creates a new instance of {@link QueryDetail}.
+     *
+     * @param owner
+     *            current build as owner of this action.
+     * @param detailFactory
+     *            factory to create detail objects with
+     * @param annotations
+     *            the annotations that match the query
+     * @param query
+     *            the query
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param header
+     *            header to be shown on detail page
+     */
+    public QueryDetail(final AbstractBuild<?, ?> owner, final DetailFactory detailFactory,
+            final Collection<FileAnnotation> annotations, final String query, final String defaultEncoding,
+            final String header) {
+        super(owner, detailFactory, annotations, defaultEncoding, header, Hierarchy.PROJECT);
+        this.query = query;
+    }
+
+    /**
+     * Returns the query that selected the annotations.
+     *
+     * @return the query
+     */
+    @Exported
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the number of annotations that match the query.
+     *
+     * @return the number of matching annotations
+     */
+    @Exported
+    public int getNumberOfWarnings() {
+        return getNumberOfAnnotations();
+    }
+
+    /**
+     * Returns the annotations that match the query.
+     *
+     * @return the matching annotations
+     */
+    @Exported
+    public List<FileAnnotation> getWarnings() {
+        return Lists.newArrayList(getSortedAnnotations());
+    }
+
+    /**
+     * Gets the remote API for this query.
+     *
+     * @return the remote API
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getHeader() {
+        return getName() + " - " + query;
+    }
+
+    /** {@inheritDoc} */
+    public String getDisplayName() {
+        return query;
+    }
+}
@@ -22,6 +22,8 @@ import de.java2html.options.JavaSourceConversionOptions;
 import hudson.model.AbstractBuild;
 import hudson.model.ModelObject;
 
+import hudson.plugins.analysis.util.AnalysisMetrics;
+import hudson.plugins.analysis.util.AnalysisMetrics.Timer;
 import hudson.plugins.analysis.util.EncodingValidator;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.LineRange;
@@ -75,6 +77,8 @@ public class SourceDetail implements ModelObject {
      * splits it into three parts.
      */
     private void initializeContent() {
+        Timer timer = AnalysisMetrics.getInstance().getTimer(AnalysisMetrics.SOURCE_HIGHLIGHTING);
+        long start = timer.start();
         InputStream file = null;
         try {
             File tempFile = new File(annotation.getTempName(owner));
@@ -91,6 +95,7 @@ public class SourceDetail implements ModelObject {
         }
         finally {
             IOUtils.closeQuietly(file);
+            timer.stop(start);
         }
     }
 
@@ -0,0 +1,157 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.plugins.analysis.util.ContextHashCode;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.util.model.WorkspaceFile;
+
+/**
+ * Tests the class {@link AnalysisPipeline}.
+ *
+ * @author Ulli Hafner
+ */
+public class AnalysisPipelineTest {
+    private static final int LINE = 10;
+
+    private File workspace;
+    private File buildFolder;
+    private File sourceFile;
+
+    /**
+     * Creates the workspace with a report and a source file.
+     *
+     * @throws IOException
+     *             if the files could not be created
+     */
+    @Before
+    public void createWorkspace() throws IOException {
+        workspace = createFolder("workspace");
+        buildFolder = createFolder("build");
+
+        FileUtils.writeStringToFile(new File(workspace, "report.txt"), "report");
+        StringBuilder source = new StringBuilder("package edu.hm;\n");
+        for (int line = 1; line < 2 * LINE; line++) {
+            source.append("// line ").append(line).append('\n');
+        }
+        sourceFile = new File(workspace, "Test.java");
+        FileUtils.writeStringToFile(sourceFile, source.toString());
+    }
+
+    private File createFolder(final String prefix) throws IOException {
+        File folder = File.createTempFile(prefix, "");
+        assertTrue("Can't delete temporary file", folder.delete());
+        assertTrue("Can't create temporary folder", folder.mkdir());
+        return folder;
+    }
+
+    /**
+     * Deletes the workspace and build folder.
+     *
+     * @throws IOException
+     *             if the folders could not be deleted
+     */
+    @After
+    public void deleteWorkspace() throws IOException {
+        FileUtils.deleteDirectory(workspace);
+        FileUtils.deleteDirectory(buildFolder);
+    }
+
+    /**
+     * Verifies that the pipeline classifies the annotations, detects the
+     * package names and packages the source files.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testAllStages() throws Exception {
+        FilesParser parser = new FilesParser("[TEST] ", "report.txt", new TestParser(sourceFile.getAbsolutePath()), false, false);
+        AnalysisPipeline pipeline = new AnalysisPipeline(parser, null, buildFolder);
+
+        ParserResult result = pipeline.invoke(workspace, null);
+        pipeline.extractSources();
+
+        assertEquals("Wrong number of annotations", 1, result.getNumberOfAnnotations());
+        FileAnnotation annotation = result.getAnnotations().iterator().next();
+        assertEquals("Wrong context hash code",
+                new ContextHashCode().create(sourceFile.getAbsolutePath(), LINE, null), annotation.getContextHashCode());
+        assertEquals("Wrong package", "edu.hm", annotation.getPackageName());
+
+        File copy = new File(new File(buildFolder, AbstractAnnotation.WORKSPACE_FILES),
+                new WorkspaceFile(sourceFile.getAbsolutePath()).getTempName());
+        assertEquals("Wrong source copy", FileUtils.readFileToString(sourceFile), FileUtils.readFileToString(copy));
+        assertFalse("Archive not deleted", new File(buildFolder, "workspace-files.zip").exists());
+        assertEquals("Wrong number of parsed files", 1, result.getTimings().getCount("Parsed files"));
+        assertFalse("No timings reported", result.getTimings().getPhases().isEmpty());
+    }
+
+    /**
+     * Verifies that no archive is created if no source file could be read.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testNoSources() throws Exception {
+        File missingFile = new File(workspace, "Missing.java");
+        FilesParser parser = new FilesParser("[TEST] ", "report.txt", new TestParser(missingFile.getAbsolutePath()), false, false);
+        AnalysisPipeline pipeline = new AnalysisPipeline(parser, null, buildFolder);
+
+        ParserResult result = pipeline.invoke(workspace, null);
+        assertFalse("Archive created", new File(buildFolder, "workspace-files.zip").exists());
+
+        pipeline.extractSources();
+        assertEquals("Wrong number of annotations", 1, result.getNumberOfAnnotations());
+        assertFalse("Sources extracted", new File(buildFolder, AbstractAnnotation.WORKSPACE_FILES).exists());
+    }
+
+    /**
+     * Parser that reports a warning in the source file.
+     */
+    private static class TestParser implements AnnotationParser {
+        private static final long serialVersionUID = 1L;
+
+        private final String fileName;
+
+        TestParser(final String fileName) {
+            this.fileName = fileName;
+        }
+
+        /** {@inheritDoc} */
+        public Collection<FileAnnotation> parse(final File file, final String moduleName) {
+            Warning warning = new Warning();
+            warning.setFileName(fileName);
+            return Collections.<FileAnnotation>singleton(warning);
+        }
+    }
+
+    /**
+     * Concrete warning for the test.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 1L;
+
+        Warning() {
+            super(Priority.HIGH, "message", LINE, LINE, "category", "type");
+        }
+
+        /** {@inheritDoc} */
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.GeneratedWarning;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the class {@link AnnotationDelta}.
+ *
+ * @author Ulli Hafner
+ */
+public class AnnotationDeltaTest {
+    private static final int WARNINGS = 200;
+    private static final int CHURN = 5;
+
+    private final List<List<FileAnnotation>> history = new WorkloadGenerator(1)
+            .withWarnings(WARNINGS).withChurn(CHURN).createHistory(4);
+
+    /**
+     * Verifies that a chain of deltas reconstructs the annotations of each
+     * build.
+     */
+    @Test
+    public void testChain() {
+        FileAnnotation[] reconstructed = history.get(0).toArray(new FileAnnotation[WARNINGS]);
+        for (int build = 1; build < history.size(); build++) {
+            AnnotationDelta delta = AnnotationDelta.create(Arrays.asList(reconstructed), history.get(build));
+
+            assertDelta(delta.getNumberOfAddedAnnotations());
+            assertDelta(delta.getNumberOfRemovedAnnotations());
+
+            reconstructed = delta.apply(Arrays.asList(reconstructed));
+            assertEquals("Wrong annotations of build " + build,
+                    Sets.newHashSet(history.get(build)), Sets.newHashSet(reconstructed));
+        }
+    }
+
+    /**
+     * Verifies that added annotations with keys of the base build get new
+     * unique keys.
+     */
+    @Test
+    public void testKeyCollisions() {
+        List<FileAnnotation> base = history.get(0);
+        AnnotationDelta delta = AnnotationDelta.create(base, history.get(1));
+        int index = 0;
+        for (FileAnnotation annotation : history.get(1)) {
+            if (!base.contains(annotation)) {
+                ((AbstractAnnotation)annotation).setKey(base.get(index++).getKey());
+            }
+        }
+        assertTrue("No added annotations", index > 0);
+
+        Set<Long> keys = Sets.newHashSet();
+        for (FileAnnotation annotation : delta.apply(base)) {
+            assertTrue("Duplicate key " + annotation.getKey(), keys.add(annotation.getKey()));
+        }
+        assertEquals("Wrong number of keys", history.get(1).size(), keys.size());
+    }
+
+    /**
+     * Verifies that an annotation with a changed context hash code is not
+     * reconstructed from the base build.
+     */
+    @Test
+    public void testChangedContextHashCode() {
+        List<FileAnnotation> base = history.get(0);
+        List<FileAnnotation> current = Lists.newArrayList();
+        for (FileAnnotation annotation : base) {
+            current.add(new GeneratedWarning((GeneratedWarning)annotation));
+        }
+        FileAnnotation changed = current.get(0);
+        changed.setContextHashCode(changed.getContextHashCode() + 1);
+
+        AnnotationDelta delta = AnnotationDelta.create(base, current);
+        assertEquals("Wrong number of added warnings", 1, delta.getNumberOfAddedAnnotations());
+        assertEquals("Wrong number of removed warnings", 1, delta.getNumberOfRemovedAnnotations());
+
+        FileAnnotation[] reconstructed = delta.apply(base);
+        assertEquals("Wrong number of warnings", base.size(), reconstructed.length);
+        assertTrue("Changed warning not restored", Arrays.asList(reconstructed).contains(changed));
+        for (FileAnnotation annotation : reconstructed) {
+            if (annotation.equals(changed)) {
+                assertEquals("Wrong context hash code", changed.getContextHashCode(), annotation.getContextHashCode());
+            }
+        }
+    }
+
+    private void assertDelta(final int size) {
+        assertTrue("Delta too large: " + size, size <= WARNINGS * CHURN / 100);
+        assertTrue("Empty delta", size > 0);
+    }
+
+    /**
+     * Verifies that a delta is restored from its file.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testReadWrite() throws IOException {
+        File file = File.createTempFile("warnings", ".delta");
+        try {
+            AnnotationDelta delta = AnnotationDelta.create(history.get(0), history.get(1));
+            delta.write(file, new AnnotationStream());
+
+            AnnotationDelta read = AnnotationDelta.read(file, new AnnotationStream());
+            assertEquals("Wrong number of added warnings", delta.getNumberOfAddedAnnotations(), read.getNumberOfAddedAnnotations());
+            assertEquals("Wrong annotations", Sets.newHashSet(history.get(1)), Sets.newHashSet(read.apply(history.get(0))));
+        }
+        finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+}
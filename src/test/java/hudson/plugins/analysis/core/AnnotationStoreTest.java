@@ -0,0 +1,139 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the implementations of {@link AnnotationStore}.
+ *
+ * @author Ulli Hafner
+ */
+public class AnnotationStoreTest {
+    private static final String BASE_NAME = "warnings.xml";
+
+    private final FileAnnotation[] warnings = toArray(new WorkloadGenerator(1).withWarnings(100).createWarnings());
+    private File folder;
+
+    private static FileAnnotation[] toArray(final List<FileAnnotation> annotations) {
+        return annotations.toArray(new FileAnnotation[annotations.size()]);
+    }
+
+    /**
+     * Creates the folder of the data files.
+     *
+     * @throws IOException
+     *             if the folder could not be created
+     */
+    @Before
+    public void createFolder() throws IOException {
+        folder = File.createTempFile("store", "");
+        folder.delete();
+        folder.mkdirs();
+    }
+
+    /**
+     * Deletes the folder of the data files.
+     */
+    @After
+    public void deleteFolder() {
+        FileUtils.deleteQuietly(folder);
+        System.clearProperty(AnnotationStore.FORMAT_PROPERTY);
+    }
+
+    /**
+     * Verifies that the XML store reads the written annotations.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testXml() throws IOException {
+        verifyLossless(new XmlAnnotationStore());
+    }
+
+    /**
+     * Verifies that the gzip store reads the written annotations.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testGzip() throws IOException {
+        verifyLossless(new GzipXmlAnnotationStore());
+        assertTrue("File not compressed", new GzipXmlAnnotationStore().getFile(folder, BASE_NAME).length()
+                < new XmlAnnotationStore().getFile(folder, BASE_NAME).length());
+    }
+
+    /**
+     * Verifies that the columnar store reads the primary properties of the
+     * written annotations.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testColumnar() throws IOException {
+        AnnotationStore store = new ColumnarAnnotationStore();
+        File file = write(store);
+
+        FileAnnotation[] read = store.read(file, new AnnotationStream());
+        assertEquals("Wrong number of annotations", warnings.length, read.length);
+        for (int i = 0; i < read.length; i++) {
+            assertEquals("Wrong message", warnings[i].getMessage(), read[i].getMessage());
+            assertEquals("Wrong priority", warnings[i].getPriority(), read[i].getPriority());
+            assertEquals("Wrong file", warnings[i].getFileName(), read[i].getFileName());
+            assertEquals("Wrong line", warnings[i].getPrimaryLineNumber(), read[i].getPrimaryLineNumber());
+        }
+        assertFalse("Columnar store is lossy", store.isLossless());
+    }
+
+    /**
+     * Verifies that the data file of any store is found and that the selected
+     * store is preferred.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testFind() throws IOException {
+        assertEquals("Wrong store without file", XmlAnnotationStore.ID, AnnotationStore.find(folder, BASE_NAME).getId());
+
+        write(new GzipXmlAnnotationStore());
+        assertEquals("Existing file not found", GzipXmlAnnotationStore.ID, AnnotationStore.find(folder, BASE_NAME).getId());
+
+        write(new XmlAnnotationStore());
+        System.setProperty(AnnotationStore.FORMAT_PROPERTY, ColumnarAnnotationStore.ID);
+        assertEquals("Wrong selected store", ColumnarAnnotationStore.ID, AnnotationStore.getDefault().getId());
+        assertEquals("Wrong store", XmlAnnotationStore.ID, AnnotationStore.find(folder, BASE_NAME).getId());
+
+        System.setProperty(AnnotationStore.FORMAT_PROPERTY, GzipXmlAnnotationStore.ID);
+        assertEquals("Selected store not preferred", GzipXmlAnnotationStore.ID, AnnotationStore.find(folder, BASE_NAME).getId());
+    }
+
+    private void verifyLossless(final AnnotationStore store) throws IOException {
+        File file = write(store);
+
+        assertTrue("Store is lossy", store.isLossless());
+        assertEquals("Wrong annotations", Arrays.asList(warnings), Arrays.asList(store.read(file, new AnnotationStream())));
+    }
+
+    private File write(final AnnotationStore store) throws IOException {
+        File file = store.getFile(folder, BASE_NAME);
+        store.write(file, new AnnotationStream(), warnings);
+        assertTrue("File not written", file.exists());
+        return file;
+    }
+}
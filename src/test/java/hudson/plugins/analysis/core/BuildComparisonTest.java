@@ -0,0 +1,133 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.workload.GeneratedWarning;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the class {@link BuildComparison}.
+ *
+ * @author Ulli Hafner
+ */
+public class BuildComparisonTest {
+    private static final int WARNINGS = 1000;
+
+    /**
+     * Verifies that the merge join finds the same new, fixed and unchanged
+     * warnings as a comparison of the sets of fingerprints.
+     */
+    @Test
+    public void testCounts() {
+        List<List<FileAnnotation>> history = new WorkloadGenerator(1).withWarnings(WARNINGS).withChurn(10).createHistory(2);
+        Set<Long> before = getFingerprints(history.get(0));
+        Set<Long> after = getFingerprints(history.get(1));
+
+        BuildComparison comparison = new BuildComparison(null, null,
+                WarningFingerprints.create(history.get(0)), WarningFingerprints.create(history.get(1)));
+
+        assertEquals("Wrong number of new warnings",
+                Sets.difference(after, before).size(), comparison.getNumberOfNewWarnings());
+        assertEquals("Wrong number of fixed warnings",
+                Sets.difference(before, after).size(), comparison.getNumberOfFixedWarnings());
+        assertEquals("Wrong number of unchanged warnings",
+                Sets.intersection(before, after).size(), comparison.getNumberOfUnchangedWarnings());
+        assertTrue("No new warnings", comparison.getNumberOfNewWarnings() > 0);
+    }
+
+    /**
+     * Verifies that the comparison with the reference build finds the same
+     * number of new and fixed warnings as the {@link AnnotationDifferencer}.
+     */
+    @Test
+    public void testSameCountsAsDifferencer() {
+        List<List<FileAnnotation>> history = new WorkloadGenerator(1).withWarnings(WARNINGS).withChurn(10).createHistory(2);
+        Set<FileAnnotation> reference = Sets.newHashSet(history.get(0));
+        Set<FileAnnotation> current = Sets.newHashSet(history.get(1));
+
+        BuildComparison comparison = new BuildComparison(null, null,
+                WarningFingerprints.create(history.get(0)), WarningFingerprints.create(history.get(1)));
+
+        assertEquals("Wrong number of new warnings",
+                AnnotationDifferencer.getNewAnnotations(current, reference).size(), comparison.getNumberOfNewWarnings());
+        assertEquals("Wrong number of fixed warnings",
+                AnnotationDifferencer.getFixedAnnotations(current, reference).size(), comparison.getNumberOfFixedWarnings());
+    }
+
+    /**
+     * Verifies that warnings without a source code context are matched even
+     * if they have been created in another build.
+     */
+    @Test
+    public void testWithoutContext() {
+        List<FileAnnotation> before = Lists.newArrayList();
+        List<FileAnnotation> after = Lists.newArrayList();
+        before.add(createWarning());
+        after.add(createWarning());
+
+        BuildComparison comparison = new BuildComparison(null, null,
+                WarningFingerprints.create(before), WarningFingerprints.create(after));
+
+        assertEquals("Wrong number of new warnings", 0, comparison.getNumberOfNewWarnings());
+        assertEquals("Wrong number of unchanged warnings", 1, comparison.getNumberOfUnchangedWarnings());
+    }
+
+    private FileAnnotation createWarning() {
+        GeneratedWarning warning = new GeneratedWarning(Priority.HIGH, "message", 1, 1, "category", "type");
+        warning.setFileName("/workspace/File.java");
+        return warning;
+    }
+
+    /**
+     * Verifies that warnings with the same fingerprint are counted separately.
+     */
+    @Test
+    public void testDuplicates() {
+        List<FileAnnotation> warnings = new WorkloadGenerator(1).withWarnings(10).createWarnings();
+        List<FileAnnotation> duplicates = Lists.newArrayList(warnings);
+        duplicates.add(warnings.get(0));
+
+        BuildComparison comparison = new BuildComparison(null, null,
+                WarningFingerprints.create(warnings), WarningFingerprints.create(duplicates));
+
+        assertEquals("Wrong number of new warnings", 1, comparison.getNumberOfNewWarnings());
+        assertEquals("Wrong number of fixed warnings", 0, comparison.getNumberOfFixedWarnings());
+        assertEquals("Wrong number of unchanged warnings", warnings.size(), comparison.getNumberOfUnchangedWarnings());
+    }
+
+    /**
+     * Verifies the paging.
+     */
+    @Test
+    public void testPaging() {
+        List<FileAnnotation> warnings = new WorkloadGenerator(1).withWarnings(10).createWarnings();
+        BuildComparison comparison = new BuildComparison(null, null,
+                WarningFingerprints.create(warnings), WarningFingerprints.create(warnings));
+
+        assertFalse("Wrong previous page", comparison.setPage(0, 5).hasPreviousPage());
+        assertTrue("Wrong next page", comparison.hasNextPage());
+        assertTrue("Wrong previous page", comparison.setPage(5, 5).hasPreviousPage());
+        assertFalse("Wrong next page", comparison.hasNextPage());
+        assertEquals("Page size not limited", BuildComparison.MAX_PAGE_SIZE,
+                comparison.setPage(0, Integer.MAX_VALUE).getCount());
+    }
+
+    private Set<Long> getFingerprints(final List<FileAnnotation> warnings) {
+        Set<Long> fingerprints = Sets.newHashSet();
+        for (FileAnnotation warning : warnings) {
+            fingerprints.add(WarningLifecycle.getFingerprint(warning));
+        }
+        assertEquals("Duplicate fingerprints", warnings.size(), fingerprints.size());
+        return fingerprints;
+    }
+}
@@ -106,6 +106,41 @@ public class BuildResultEvaluatorTest {
                 parser.evaluateBuildResult(logger, newDescriptor("", "0", "0", ""), allAnnotations, newAnnotations));
     }
 
+    /**
+     * Verifies that the result computed from the number of annotations per
+     * priority is the same as the result computed from the annotations.
+     */
+    @Test
+    public void checkHistogramComputation() {
+        BuildResultEvaluator parser = new BuildResultEvaluator(URL);
+        List<FileAnnotation> allAnnotations = new ArrayList<FileAnnotation>();
+        List<FileAnnotation> newAnnotations = new ArrayList<FileAnnotation>();
+        allAnnotations.add(createAnnotation());
+        allAnnotations.add(createAnnotation());
+        newAnnotations.add(createAnnotation());
+
+        PriorityHistogram totals = new PriorityHistogram(2, 0, 0);
+        PriorityHistogram newWarnings = new PriorityHistogram(1, 0, 0);
+        String[] thresholds = {"", "0", "1", "2"};
+        for (String unstable : thresholds) {
+            for (String failed : thresholds) {
+                Thresholds t = newDescriptor(unstable, failed, unstable, failed);
+                t.failedTotalHigh = failed;
+                t.unstableNewNormal = unstable;
+
+                StringBuilder expected = new StringBuilder();
+                StringBuilder actual = new StringBuilder();
+                assertEquals(WRONG_BUILD_RESULT,
+                        parser.evaluateBuildResult(expected, t, allAnnotations, newAnnotations),
+                        parser.evaluateBuildResult(actual, t, totals, newWarnings));
+                assertEquals("Wrong message", expected.toString(), actual.toString());
+                assertEquals(WRONG_BUILD_RESULT,
+                        parser.evaluateBuildResult(new StringBuilder(), t, allAnnotations, 1, 1, 0, 0),
+                        parser.evaluateBuildResult(new StringBuilder(), t, totals, 1, 1, 0, 0));
+            }
+        }
+    }
+
     /**
      * Verifies that the messages contain the expected result.
      */
@@ -0,0 +1,217 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import hudson.maven.MavenAggregatedReport;
+import hudson.maven.MavenBuild;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
+
+import hudson.model.Action;
+import hudson.model.Result;
+import hudson.model.AbstractBuild;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the incremental aggregation of the class {@link MavenResultAction}.
+ *
+ * @author Ulli Hafner
+ */
+public class MavenResultActionTest {
+    private static final String WRONG_ANNOTATIONS = "Wrong aggregated annotations";
+    private static final int MODULES = 3;
+
+    private final List<FileAnnotation> warnings = new WorkloadGenerator(1).withWarnings(30).createWarnings();
+    private final Map<MavenModule, List<MavenBuild>> moduleBuilds = Maps.newLinkedHashMap();
+    private final MavenBuild[] builds = new MavenBuild[MODULES];
+
+    private File rootDir;
+    private AbstractBuild<?, ?> owner;
+    private TestResultAction action;
+    private BuildResult published;
+
+    /**
+     * Creates the module builds and the aggregating action.
+     *
+     * @throws IOException
+     *             if the build folder could not be created
+     */
+    @Before
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void createBuilds() throws IOException {
+        rootDir = File.createTempFile("build", "");
+        FileUtils.deleteQuietly(rootDir);
+        rootDir.mkdirs();
+
+        owner = mock(AbstractBuild.class);
+        when(owner.getRootDir()).thenReturn(rootDir);
+
+        AbstractResultAction<BuildResult> delegate = mock(AbstractResultAction.class);
+        when(delegate.getOwner()).thenReturn((AbstractBuild)owner);
+        when(delegate.getHealthDescriptor()).thenReturn(new NullHealthDescriptor());
+        when(delegate.getResult()).thenAnswer(new Answer<BuildResult>() {
+            public BuildResult answer(final InvocationOnMock invocation) {
+                return published;
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            public Void answer(final InvocationOnMock invocation) {
+                published = (BuildResult)invocation.getArguments()[0];
+                return null;
+            }
+        }).when(delegate).setResult(any(BuildResult.class));
+        action = new TestResultAction(delegate);
+
+        int size = warnings.size() / MODULES;
+        for (int module = 0; module < MODULES; module++) {
+            builds[module] = createModuleBuild(warnings.subList(module * size, (module + 1) * size));
+        }
+    }
+
+    /**
+     * Deletes the build folder.
+     */
+    @After
+    public void deleteFolder() {
+        FileUtils.deleteQuietly(rootDir);
+    }
+
+    private MavenBuild createModuleBuild(final List<FileAnnotation> annotations) {
+        BuildResult result = createResult(annotations);
+        when(result.getPluginResult()).thenReturn(Result.SUCCESS);
+
+        TestResultAction moduleAction = mock(TestResultAction.class);
+        when(moduleAction.getResult()).thenReturn(result);
+
+        MavenModule module = mock(MavenModule.class);
+        MavenBuild build = mock(MavenBuild.class);
+        when(build.getAction(TestResultAction.class)).thenReturn(moduleAction);
+        when(build.getProject()).thenReturn(module);
+        when(build.getResult()).thenReturn(Result.SUCCESS);
+        when(build.getRootDir()).thenReturn(rootDir);
+        when(build.isBuilding()).thenReturn(true);
+
+        moduleBuilds.put(module, Collections.singletonList(build));
+        return build;
+    }
+
+    private static BuildResult createResult(final Set<FileAnnotation> annotations) {
+        BuildResult result = mock(BuildResult.class);
+        when(result.getAnnotations()).thenReturn(annotations);
+        when(result.getModules()).thenReturn(Collections.<String>emptySet());
+        when(result.getErrors()).thenReturn(Collections.<String>emptyList());
+        return result;
+    }
+
+    private static BuildResult createResult(final List<FileAnnotation> annotations) {
+        return createResult(Sets.newHashSet(annotations));
+    }
+
+    private void complete(final int module) {
+        when(builds[module].isBuilding()).thenReturn(false);
+        action.update(moduleBuilds, builds[module]);
+    }
+
+    /**
+     * Verifies that the aggregated result contains all modules if the result
+     * is not read during the build.
+     *
+     * @throws IOException
+     *             if the build could not be saved
+     */
+    @Test
+    public void testAllModules() throws IOException {
+        for (int module = 0; module < MODULES; module++) {
+            complete(module);
+        }
+
+        assertEquals(WRONG_ANNOTATIONS, Sets.newHashSet(warnings), published.getAnnotations());
+        verify(owner).save();
+    }
+
+    /**
+     * Verifies that reads of the result between the completion of modules do
+     * not drop modules from the aggregated result.
+     *
+     * @throws IOException
+     *             if the build could not be saved
+     */
+    @Test
+    public void testInterleavedReads() throws IOException {
+        complete(0);
+        assertEquals(WRONG_ANNOTATIONS, Sets.newHashSet(warnings.subList(0, 10)), action.getResult().getAnnotations());
+
+        complete(1);
+        assertNotNull("No result", action.getResult());
+        complete(2);
+
+        assertEquals(WRONG_ANNOTATIONS, Sets.newHashSet(warnings), published.getAnnotations());
+        verify(owner).save();
+    }
+
+    /**
+     * Verifies that modules that complete between two reads are all part of
+     * the aggregated result.
+     */
+    @Test
+    public void testModulesBetweenReads() {
+        complete(0);
+        assertNotNull("No result", action.getResult());
+
+        complete(1);
+        complete(2);
+
+        assertEquals(WRONG_ANNOTATIONS, Sets.newHashSet(warnings), action.getResult().getAnnotations());
+    }
+
+    /**
+     * Aggregates the annotations of the module results.
+     */
+    static class TestResultAction extends MavenResultAction<BuildResult> {
+        TestResultAction(final AbstractResultAction<BuildResult> delegate) {
+            super(delegate, "UTF-8", "TEST");
+        }
+
+        @Override
+        public Class<? extends MavenResultAction<BuildResult>> getIndividualActionType() {
+            return TestResultAction.class;
+        }
+
+        @Override
+        protected BuildResult createResult(final BuildResult existingResult, final BuildResult additionalResult) {
+            return MavenResultActionTest.createResult(Sets.newHashSet(aggregate(existingResult, additionalResult).getAnnotations()));
+        }
+
+        /** {@inheritDoc} */
+        public MavenAggregatedReport createAggregatedAction(final MavenModuleSetBuild build,
+                final Map<MavenModule, List<MavenBuild>> moduleBuilds) {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Action getProjectAction(final MavenModuleSet moduleSet) {
+            return null;
+        }
+    }
+}
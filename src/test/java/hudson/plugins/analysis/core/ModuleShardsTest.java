@@ -0,0 +1,120 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import hudson.plugins.analysis.core.ModuleShards.Shard;
+import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the class {@link ModuleShards}.
+ *
+ * @author Ulli Hafner
+ */
+public class ModuleShardsTest {
+    private static final int MODULES = 5;
+
+    private final WorkloadGenerator generator = new WorkloadGenerator(1).withWarnings(200).withModules(MODULES);
+    private final List<FileAnnotation> warnings = generator.createWarnings();
+    private File file;
+
+    /**
+     * Creates the shard file name.
+     *
+     * @throws IOException
+     *             if the file could not be created
+     */
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("shards", ".modules");
+    }
+
+    /**
+     * Deletes the shard file.
+     */
+    @After
+    public void deleteFile() {
+        FileUtils.deleteQuietly(file);
+    }
+
+    /**
+     * Verifies that each module is read from its own shard.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testReadModules() throws IOException {
+        ModuleShards shards = new ModuleShards(file, new GzipXmlAnnotationStore());
+        shards.write(new AnnotationStream(), warnings.toArray(new FileAnnotation[warnings.size()]));
+
+        Map<Integer, Shard> index = shards.readIndex();
+        assertEquals("Wrong number of shards", MODULES, index.size());
+
+        int total = 0;
+        for (String moduleName : generator.getModuleNames()) {
+            Shard shard = index.get(moduleName.hashCode());
+            assertEquals("Wrong module", moduleName, shard.getModuleName());
+
+            List<FileAnnotation> expected = Lists.newArrayList();
+            for (FileAnnotation warning : warnings) {
+                if (warning.getModuleName().equals(moduleName)) {
+                    expected.add(warning);
+                }
+            }
+            FileAnnotation[] actual = shards.read(new AnnotationStream(), moduleName.hashCode());
+            assertEquals("Wrong annotations of " + moduleName, expected, Arrays.asList(actual));
+            assertEquals("Wrong count of " + moduleName, expected.size(), shard.getNumberOfAnnotations());
+            total += shard.getNumberOfAnnotations();
+        }
+        assertEquals("Wrong total", warnings.size(), total);
+        assertNull("Unknown module found", shards.read(new AnnotationStream(), "unknown".hashCode()));
+    }
+
+    /**
+     * Verifies that all annotations are read from the shards.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testReadAll() throws IOException {
+        ModuleShards shards = new ModuleShards(file, new GzipXmlAnnotationStore());
+        shards.write(new AnnotationStream(), warnings.toArray(new FileAnnotation[warnings.size()]));
+
+        FileAnnotation[] actual = shards.readAll(new AnnotationStream());
+        assertEquals("Wrong number of annotations", warnings.size(), actual.length);
+        assertEquals("Wrong annotations", Sets.newHashSet(warnings), Sets.newHashSet(actual));
+    }
+
+    /**
+     * Verifies that the shards are encoded with the specified store and read
+     * with the store that has written them.
+     *
+     * @throws IOException
+     *             if the file could not be accessed
+     */
+    @Test
+    public void testStore() throws IOException {
+        new ModuleShards(file, new XmlAnnotationStore()).write(new AnnotationStream(),
+                warnings.toArray(new FileAnnotation[warnings.size()]));
+
+        FileAnnotation[] actual = new ModuleShards(file, new GzipXmlAnnotationStore()).readAll(new AnnotationStream());
+        assertEquals("Wrong annotations", Sets.newHashSet(warnings), Sets.newHashSet(actual));
+    }
+}
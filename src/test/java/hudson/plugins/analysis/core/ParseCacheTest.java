@@ -0,0 +1,124 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the class {@link ParseCache}.
+ *
+ * @author Ulli Hafner
+ */
+public class ParseCacheTest {
+    private static final String PARSER = "parser";
+    private static final String MODULE = "module";
+
+    private File report;
+    private final List<FileAnnotation> warnings = new WorkloadGenerator(1).withWarnings(10).createWarnings();
+
+    /**
+     * Creates the report file.
+     *
+     * @throws IOException
+     *             if the file could not be created
+     */
+    @Before
+    public void createReport() throws IOException {
+        report = File.createTempFile("report", ".xml");
+        FileUtils.writeStringToFile(report, "report");
+    }
+
+    /**
+     * Deletes the report file.
+     */
+    @After
+    public void deleteReport() {
+        FileUtils.deleteQuietly(report);
+    }
+
+    /**
+     * Verifies that copies of the annotations of an unchanged file are
+     * returned.
+     */
+    @Test
+    public void testHit() {
+        ParseCache cache = new ParseCache(Integer.MAX_VALUE);
+        assertNull("Empty cache returns result", get(cache, PARSER, MODULE));
+
+        cache.put(PARSER, report, MODULE, warnings);
+        Collection<FileAnnotation> cached = get(cache, PARSER, MODULE);
+
+        assertEquals("Wrong annotations", warnings, cached);
+        assertNotSame("Annotations not copied", warnings.get(0), cached.iterator().next());
+        assertNull("Other parser returns result", get(cache, "other", MODULE));
+        assertNull("Other module returns result", get(cache, PARSER, "other"));
+        assertEquals("Wrong number of hits", 1, cache.getHits());
+        assertEquals("Wrong number of misses", 3, cache.getMisses());
+    }
+
+    /**
+     * Verifies that a changed file is not taken from the cache.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Test
+    public void testChangedFile() throws IOException {
+        ParseCache cache = new ParseCache(Integer.MAX_VALUE);
+        cache.put(PARSER, report, MODULE, warnings);
+
+        FileUtils.writeStringToFile(report, "changed report");
+
+        assertNull("Changed file returns result", get(cache, PARSER, MODULE));
+    }
+
+    /**
+     * Verifies that the least recently used entries are removed if the cache
+     * is full.
+     */
+    @Test
+    public void testEviction() {
+        ParseCache probe = new ParseCache(Integer.MAX_VALUE);
+        probe.put(PARSER, report, MODULE, warnings);
+        long entrySize = probe.getSize();
+
+        ParseCache cache = new ParseCache(entrySize * 2);
+        cache.put("first", report, MODULE, warnings);
+        cache.put("second", report, MODULE, warnings);
+        assertNotNull("First entry evicted", get(cache, "first", MODULE));
+
+        cache.put("third", report, MODULE, warnings);
+
+        assertEquals("Wrong number of entries", 2, cache.getNumberOfEntries());
+        assertEquals("Wrong number of evictions", 1, cache.getEvictions());
+        assertNull("Least recently used entry not evicted", get(cache, "second", MODULE));
+        assertNotNull("Recently used entry evicted", get(cache, "first", MODULE));
+    }
+
+    /**
+     * Verifies that a disabled cache stores nothing.
+     */
+    @Test
+    public void testDisabled() {
+        ParseCache cache = new ParseCache(0);
+        cache.put(PARSER, report, MODULE, warnings);
+
+        assertFalse("Cache enabled", cache.isEnabled());
+        assertNull("Disabled cache returns result", get(cache, PARSER, MODULE));
+    }
+
+    private Collection<FileAnnotation> get(final ParseCache cache, final String parser, final String module) {
+        return cache.get(parser, report, module, getClass().getClassLoader());
+    }
+}
@@ -1,13 +1,21 @@
 package hudson.plugins.analysis.core;
 
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Set;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
 
 import hudson.plugins.analysis.core.ParserResult.Workspace;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
@@ -105,6 +113,40 @@ public class ParserResultTest {
         verify(warning).setFileName(FOUND_FILE_NAME);
     }
 
+    /**
+     * Verifies that the annotations are transferred as encoded payload and
+     * decoded on first access.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        ParserResult result = new ParserResult();
+        for (int line = 1; line <= 100; line++) {
+            result.addAnnotation(new Warning(line % 2 == 0 ? Priority.HIGH : Priority.LOW, "/ws/src/File" + line % 10 + ".java", line));
+        }
+        result.addModule("module");
+        result.setLog("log");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(result);
+        output.close();
+
+        ParserResult copy = (ParserResult)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals("Wrong number of annotations", 100, copy.getNumberOfAnnotations());
+        assertEquals("Wrong number of high annotations", 50, copy.getNumberOfAnnotations(Priority.HIGH));
+        assertTrue("No annotations", copy.hasAnnotations());
+        assertEquals("Wrong modules", result.getModules(), copy.getModules());
+        assertEquals("Wrong log", "log", copy.getLogMessages());
+
+        Set<FileAnnotation> annotations = copy.getAnnotations();
+        assertEquals("Wrong annotations", result.getAnnotations(), annotations);
+        copy.addAnnotation(annotations.iterator().next());
+        assertEquals("Duplicate added", 100, copy.getNumberOfAnnotations());
+    }
+
     private FileAnnotation mockWarning(final String fileName) {
         FileAnnotation warning = mock(FileAnnotation.class);
         when(warning.getFileName()).thenReturn(fileName);
@@ -119,5 +161,22 @@ public class ParserResultTest {
         when(workspace.findFiles(anyString())).thenReturn(workspaceFiles);
         return workspace;
     }
-}
 
+    /**
+     * Concrete warning for the test.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 1L;
+
+        Warning(final Priority priority, final String fileName, final int line) {
+            super(priority, "message " + line, line, line, "category", "type");
+
+            setFileName(fileName);
+        }
+
+        /** {@inheritDoc} */
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the class {@link PersistenceQueue}.
+ *
+ * @author Ulli Hafner
+ */
+public class PersistenceQueueTest {
+    private File folder;
+
+    /**
+     * Creates the folder for the written files.
+     *
+     * @throws IOException
+     *             if the folder could not be created
+     */
+    @Before
+    public void createFolder() throws IOException {
+        folder = File.createTempFile("queue", "");
+        assertTrue("Can't delete temporary file", folder.delete());
+        assertTrue("Can't create temporary folder", folder.mkdir());
+    }
+
+    /**
+     * Deletes the folder.
+     *
+     * @throws IOException
+     *             if the folder could not be deleted
+     */
+    @After
+    public void deleteFolder() throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    /**
+     * Verifies that a task is visible and marked as pending until it has
+     * been finished.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testPendingTask() throws Exception {
+        PersistenceQueue queue = new PersistenceQueue(1, 1);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        File target = new File(folder, "data.xml");
+        queue.submit(target, "data", new Writer(target, blocker));
+
+        assertEquals("Wrong number of pending tasks", 1, queue.getNumberOfPendingTasks());
+        assertEquals("Wrong description", "data", queue.getPendingTasks().get(0));
+        assertTrue("No marker", new File(folder, "data.xml.pending").exists());
+        assertFalse("Pending task is lost", queue.isLost(target));
+
+        blocker.countDown();
+        queue.awaitCompletion(target);
+        queue.shutdown();
+
+        assertTrue("File not written", target.exists());
+        assertFalse("Marker not deleted", new File(folder, "data.xml.pending").exists());
+        assertEquals("Wrong number of pending tasks", 0, queue.getNumberOfPendingTasks());
+        assertEquals("Wrong number of completed tasks", 1, queue.getNumberOfCompletedTasks());
+    }
+
+    /**
+     * Verifies that the marker of a finished task is deleted before a
+     * waiting thread continues, so that the marker of the next task for the
+     * same file is kept.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testSubsequentTasks() throws Exception {
+        PersistenceQueue queue = new PersistenceQueue(1, 1);
+        File target = new File(folder, "data.xml");
+        File marker = new File(folder, "data.xml.pending");
+
+        for (int i = 0; i < 100; i++) {
+            CountDownLatch first = new CountDownLatch(1);
+            queue.submit(target, "first", new Writer(target, first));
+            first.countDown();
+            queue.awaitCompletion(target);
+            assertFalse("Marker not deleted", marker.exists());
+
+            CountDownLatch second = new CountDownLatch(1);
+            queue.submit(target, "second", new Writer(target, second));
+            assertTrue("Marker of second task deleted", marker.exists());
+            assertFalse("Pending task is lost", queue.isLost(target));
+            second.countDown();
+            queue.awaitCompletion(target);
+        }
+        queue.shutdown();
+        assertFalse("Marker not deleted", marker.exists());
+    }
+
+    /**
+     * Verifies that the submitting thread writes the file if the queue is full.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testBackPressure() throws Exception {
+        PersistenceQueue queue = new PersistenceQueue(1, 1);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        File running = new File(folder, "running.xml");
+        File queued = new File(folder, "queued.xml");
+        File rejected = new File(folder, "rejected.xml");
+        queue.submit(running, "running", new Writer(running, blocker));
+        queue.submit(queued, "queued", new Writer(queued, new CountDownLatch(0)));
+        queue.submit(rejected, "rejected", new Writer(rejected, new CountDownLatch(0)));
+
+        assertTrue("Rejected task not run by caller", rejected.exists());
+
+        blocker.countDown();
+        queue.shutdown();
+        assertTrue("Queued task not run", queued.exists());
+        assertTrue("Running task not finished", running.exists());
+    }
+
+    /**
+     * Verifies that a marker of a previous session shows that a file is lost.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testLostTask() throws Exception {
+        File target = new File(folder, "lost.xml");
+        assertTrue("Marker not created", new File(folder, "lost.xml.pending").createNewFile());
+
+        assertTrue("Lost file not detected", new PersistenceQueue(0, 1).isLost(target));
+    }
+
+    /**
+     * Verifies that the payload of a task that has not been finished in a
+     * previous session can be recovered.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testRecoverPayload() throws Exception {
+        PersistenceQueue killed = new PersistenceQueue(1, 1);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        File target = new File(folder, "data.xml");
+        killed.submit(target, "data", new String[] {"first", "second"}, new Writer(target, blocker));
+        assertNull("Pending task recovered", killed.recover(target, getClass().getClassLoader()));
+
+        PersistenceQueue restarted = new PersistenceQueue(0, 1);
+        assertArrayEquals("Wrong payload", new String[] {"first", "second"},
+                (String[])restarted.recover(target, getClass().getClassLoader()));
+
+        blocker.countDown();
+        killed.shutdown();
+        assertNull("Finished task recovered", restarted.recover(target, getClass().getClassLoader()));
+    }
+
+    /**
+     * Writes a file after the latch has been released.
+     */
+    private static class Writer implements Runnable {
+        private final File target;
+        private final CountDownLatch latch;
+
+        Writer(final File target, final CountDownLatch latch) {
+            this.target = target;
+            this.latch = latch;
+        }
+
+        /** {@inheritDoc} */
+        public void run() {
+            try {
+                latch.await();
+                FileUtils.writeStringToFile(target, "content");
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the class {@link PriorityHistogram}.
+ *
+ * @author Ulli Hafner
+ */
+public class PriorityHistogramTest {
+    private static final String WRONG_COUNT = "Wrong number of annotations";
+
+    /**
+     * Verifies that the annotations are counted per priority.
+     */
+    @Test
+    public void testCounts() {
+        List<FileAnnotation> warnings = new WorkloadGenerator(1).withWarnings(100).createWarnings();
+        PriorityHistogram histogram = new PriorityHistogram(warnings);
+        ParserResult result = new ParserResult(warnings);
+
+        assertEquals(WRONG_COUNT, result.getNumberOfAnnotations(), histogram.getNumberOfAnnotations());
+        for (Priority priority : Priority.values()) {
+            assertEquals(WRONG_COUNT, result.getNumberOfAnnotations(priority),
+                    histogram.getNumberOfAnnotations(priority));
+        }
+        assertEquals(WRONG_COUNT, result.getNumberOfAnnotations(Priority.HIGH)
+                + result.getNumberOfAnnotations(Priority.NORMAL),
+                histogram.getNumberOfAnnotationsFrom(Priority.NORMAL));
+        assertEquals(WRONG_COUNT, histogram.getNumberOfAnnotations(),
+                histogram.getNumberOfAnnotationsFrom(Priority.LOW));
+    }
+
+    /**
+     * Verifies that equal annotations are counted only once.
+     */
+    @Test
+    public void testDuplicates() {
+        List<FileAnnotation> warnings = new WorkloadGenerator(1).withWarnings(10).createWarnings();
+        List<FileAnnotation> duplicates = Lists.newArrayList(warnings);
+        duplicates.addAll(warnings);
+
+        assertEquals("Duplicates counted", new PriorityHistogram(warnings), new PriorityHistogram(duplicates));
+    }
+
+    /**
+     * Verifies the explicit counts.
+     */
+    @Test
+    public void testExplicitCounts() {
+        PriorityHistogram histogram = new PriorityHistogram(1, 2, 3);
+
+        assertEquals(WRONG_COUNT, 6, histogram.getNumberOfAnnotations());
+        assertEquals(WRONG_COUNT, 1, histogram.getNumberOfAnnotationsFrom(Priority.HIGH));
+        assertEquals(WRONG_COUNT, 4, histogram.getNumberOfAnnotations(Priority.HIGH, Priority.LOW));
+        assertEquals(WRONG_COUNT, 0, PriorityHistogram.EMPTY.getNumberOfAnnotations());
+    }
+}
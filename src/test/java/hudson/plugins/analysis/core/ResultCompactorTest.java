@@ -0,0 +1,106 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import hudson.model.AbstractBuild;
+
+/**
+ * Tests the retention policy of the class {@link ResultCompactor}.
+ *
+ * @author Ulli Hafner
+ */
+public class ResultCompactorTest {
+    private static final long NOW = 100 * DateUtils.MILLIS_PER_DAY;
+
+    /**
+     * Verifies that nothing is compacted without a retention policy.
+     */
+    @Test
+    public void testDisabled() {
+        ResultCompactor compactor = new ResultCompactor(0, 0);
+
+        assertFalse("Compactor enabled", compactor.isEnabled());
+        assertTrue("Old build not retained", compactor.isRetained(1000, 0, NOW));
+    }
+
+    /**
+     * Verifies that the most recent builds are retained.
+     */
+    @Test
+    public void testKeepBuilds() {
+        ResultCompactor compactor = new ResultCompactor(10, 0);
+
+        assertTrue("Recent build not retained", compactor.isRetained(9, 0, NOW));
+        assertFalse("Old build retained", compactor.isRetained(10, NOW, NOW));
+    }
+
+    /**
+     * Verifies that the builds of the last days are retained.
+     */
+    @Test
+    public void testKeepDays() {
+        ResultCompactor compactor = new ResultCompactor(0, 30);
+
+        assertTrue("Recent build not retained", compactor.isRetained(1000, NOW - 29 * DateUtils.MILLIS_PER_DAY, NOW));
+        assertFalse("Old build retained", compactor.isRetained(0, NOW - 30 * DateUtils.MILLIS_PER_DAY, NOW));
+    }
+
+    /**
+     * Verifies that a build is retained if one of the limits applies.
+     */
+    @Test
+    public void testKeepBuildsOrDays() {
+        ResultCompactor compactor = new ResultCompactor(5, 30);
+
+        assertTrue("Recent build not retained", compactor.isRetained(3, 0, NOW));
+        assertTrue("New build not retained", compactor.isRetained(100, NOW, NOW));
+        assertFalse("Old build retained", compactor.isRetained(5, 0, NOW));
+    }
+
+    /**
+     * Verifies that the last completed build and its reference build are
+     * retained even if they are too old.
+     */
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testKeepLastAndReferenceBuild() {
+        ResultCompactor compactor = new ResultCompactor(0, 30);
+
+        AbstractBuild running = mockBuild(5);
+        when(running.isBuilding()).thenReturn(true);
+        AbstractBuild last = mockBuild(4);
+        AbstractBuild unstable = mockBuild(3);
+        AbstractBuild reference = mockBuild(2);
+        AbstractBuild old = mockBuild(1);
+
+        ResultAction action = mock(ResultAction.class);
+        BuildResult result = mock(BuildResult.class);
+        BuildHistory history = mock(BuildHistory.class);
+        when(last.getActions()).thenReturn(Collections.singletonList(action));
+        when(action.getResult()).thenReturn(result);
+        when(result.getHistory()).thenReturn(history);
+        when(history.getReferenceBuild()).thenReturn(reference);
+
+        List<AbstractBuild<?, ?>> builds = Lists.newArrayList();
+        Collections.addAll(builds, running, last, unstable, reference, old);
+        assertEquals("Wrong expired builds", Lists.newArrayList(unstable, old), compactor.getExpiredBuilds(builds, NOW));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private AbstractBuild mockBuild(final int number) {
+        AbstractBuild build = mock(AbstractBuild.class);
+        when(build.getNumber()).thenReturn(number);
+        when(build.getTimeInMillis()).thenReturn(0L);
+        when(build.getActions()).thenReturn(Collections.emptyList());
+        return build;
+    }
+}
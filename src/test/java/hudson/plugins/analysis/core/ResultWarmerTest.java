@@ -0,0 +1,48 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import hudson.model.AbstractProject;
+
+/**
+ * Tests the class {@link ResultWarmer}.
+ *
+ * @author Ulli Hafner
+ */
+public class ResultWarmerTest {
+    /**
+     * Verifies that only the most recently viewed jobs are remembered.
+     */
+    @Test
+    public void testRecentJobs() {
+        ResultWarmer warmer = new ResultWarmer(2, 100);
+
+        warmer.recordView(createJob("a"));
+        warmer.recordView(createJob("b"));
+        warmer.recordView(createJob("a"));
+        assertEquals("Wrong recent jobs", Arrays.asList("b", "a"), warmer.getRecentJobs());
+
+        warmer.recordView(createJob("c"));
+        assertEquals("Wrong recent jobs", Arrays.asList("a", "c"), warmer.getRecentJobs());
+    }
+
+    /**
+     * Verifies that no results are loaded if the heap limit is reached.
+     */
+    @Test
+    public void testHeapLimit() {
+        assertFalse("Heap available", new ResultWarmer(1, 0).isHeapAvailable());
+        assertTrue("Heap not available", new ResultWarmer(1, 100).isHeapAvailable());
+    }
+
+    private AbstractProject<?, ?> createJob(final String name) {
+        AbstractProject<?, ?> job = mock(AbstractProject.class);
+        when(job.getFullName()).thenReturn(name);
+        return job;
+    }
+}
@@ -0,0 +1,50 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the class {@link WarningFingerprints}.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningFingerprintsTest {
+    /**
+     * Verifies that the fingerprints are sorted and survive a round trip
+     * through a file.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<FileAnnotation> warnings = new WorkloadGenerator(1).withWarnings(100).createWarnings();
+        WarningFingerprints fingerprints = WarningFingerprints.create(warnings);
+        for (int i = 1; i < fingerprints.size(); i++) {
+            assertTrue("Not sorted", fingerprints.get(i - 1) <= fingerprints.get(i));
+        }
+
+        File file = File.createTempFile("warnings", ".fingerprints");
+        try {
+            fingerprints.write(file);
+            WarningFingerprints read = WarningFingerprints.read(file);
+
+            assertEquals("Wrong number of fingerprints", warnings.size(), read.size());
+            for (int i = 0; i < read.size(); i++) {
+                assertEquals("Wrong fingerprint", fingerprints.get(i), read.get(i));
+            }
+        }
+        finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+}
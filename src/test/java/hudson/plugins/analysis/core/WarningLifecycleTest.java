@@ -0,0 +1,223 @@
+package hudson.plugins.analysis.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.workload.GeneratedWarning;
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the class {@link WarningLifecycle}.
+ *
+ * @author Ulli Hafner
+ */
+public class WarningLifecycleTest {
+    private static final String WRONG_FIRST_BUILD = "Wrong first build";
+    private static final String WRONG_LAST_BUILD = "Wrong last build";
+
+    private File file;
+
+    /**
+     * Creates the index file.
+     *
+     * @throws IOException
+     *             if the file could not be created
+     */
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("warnings", ".lifecycle");
+        FileUtils.deleteQuietly(file);
+    }
+
+    /**
+     * Deletes the index file.
+     */
+    @After
+    public void deleteFile() {
+        FileUtils.deleteQuietly(file);
+    }
+
+    /**
+     * Verifies that the first and last builds are recorded from the new and
+     * fixed warnings and survive a round trip through the index file.
+     *
+     * @throws IOException
+     *             if the index could not be written
+     */
+    @Test
+    public void testLifecycle() throws IOException {
+        List<List<FileAnnotation>> history = new WorkloadGenerator(1).withWarnings(200).withChurn(10).createHistory(3);
+        Set<FileAnnotation> first = Sets.newHashSet(history.get(0));
+        Set<FileAnnotation> second = Sets.newHashSet(history.get(1));
+        Set<FileAnnotation> third = Sets.newHashSet(history.get(2));
+
+        WarningLifecycle lifecycle = WarningLifecycle.read(file);
+        assertEquals("Wrong initial build", 0, lifecycle.getInitialBuild());
+        lifecycle.update(1, -1, first, Collections.<FileAnnotation>emptySet(), Collections.<FileAnnotation>emptySet());
+        update(lifecycle, 2, 1, first, second);
+        update(lifecycle, 3, 2, second, third);
+
+        lifecycle.save();
+        verify(WarningLifecycle.read(file), first, second, third);
+        verify(lifecycle, first, second, third);
+    }
+
+    private void update(final WarningLifecycle lifecycle, final int build, final int reference,
+            final Set<FileAnnotation> previous, final Set<FileAnnotation> current) {
+        lifecycle.update(build, reference, current, AnnotationDifferencer.getNewAnnotations(current, previous),
+                AnnotationDifferencer.getFixedAnnotations(current, previous));
+    }
+
+    private void verify(final WarningLifecycle lifecycle, final Set<FileAnnotation> first,
+            final Set<FileAnnotation> second, final Set<FileAnnotation> third) {
+        assertEquals("Wrong initial build", 1, lifecycle.getInitialBuild());
+
+        Set<FileAnnotation> unchanged = Sets.intersection(Sets.intersection(first, second), third);
+        assertFalse("No unchanged warnings", unchanged.isEmpty());
+        for (FileAnnotation annotation : unchanged) {
+            assertEquals(WRONG_FIRST_BUILD, 1, lifecycle.getFirstBuild(annotation));
+            assertEquals(WRONG_LAST_BUILD, 0, lifecycle.getLastBuild(annotation));
+            assertEquals("Wrong age", 2, lifecycle.getAge(annotation, 3));
+        }
+        for (FileAnnotation annotation : AnnotationDifferencer.getNewAnnotations(third, second)) {
+            assertEquals(WRONG_FIRST_BUILD, 3, lifecycle.getFirstBuild(annotation));
+            assertEquals("Wrong age", 0, lifecycle.getAge(annotation, 3));
+        }
+        for (FileAnnotation annotation : AnnotationDifferencer.getFixedAnnotations(second, first)) {
+            assertEquals(WRONG_LAST_BUILD, 1, lifecycle.getLastBuild(annotation));
+        }
+    }
+
+    /**
+     * Verifies that unknown warnings have no age.
+     */
+    @Test
+    public void testUnknownWarning() {
+        WarningLifecycle lifecycle = WarningLifecycle.read(file);
+        FileAnnotation annotation = new WorkloadGenerator(1).withWarnings(1).createWarnings().get(0);
+
+        assertEquals(WRONG_FIRST_BUILD, 0, lifecycle.getFirstBuild(annotation));
+        assertEquals("Wrong age", -1, lifecycle.getAge(annotation, 1));
+    }
+
+    /**
+     * Verifies that the fingerprint contains the message and ignores the
+     * context hash code that is derived from the key.
+     */
+    @Test
+    public void testFingerprint() {
+        GeneratedWarning warning = createWarning("message", 10);
+        GeneratedWarning moved = createWarning("message", 20);
+        GeneratedWarning other = createWarning("other message", 10);
+
+        assertEquals("Fingerprint depends on the key", WarningLifecycle.getFingerprint(warning),
+                WarningLifecycle.getFingerprint(moved));
+        assertFalse("Fingerprint ignores the message",
+                WarningLifecycle.getFingerprint(warning) == WarningLifecycle.getFingerprint(other));
+
+        moved.setContextHashCode(42);
+        assertFalse("Fingerprint ignores the context hash code",
+                WarningLifecycle.getFingerprint(warning) == WarningLifecycle.getFingerprint(moved));
+    }
+
+    private GeneratedWarning createWarning(final String message, final int line) {
+        GeneratedWarning warning = new GeneratedWarning(Priority.HIGH, message, line, line, "category", "type");
+        warning.setFileName("/workspace/File.java");
+        return warning;
+    }
+
+    /**
+     * Verifies that fixed warnings of deleted builds are removed.
+     */
+    @Test
+    public void testPrune() {
+        List<List<FileAnnotation>> history = new WorkloadGenerator(1).withWarnings(200).withChurn(10).createHistory(3);
+        Set<FileAnnotation> first = Sets.newHashSet(history.get(0));
+        Set<FileAnnotation> second = Sets.newHashSet(history.get(1));
+        Set<FileAnnotation> third = Sets.newHashSet(history.get(2));
+
+        WarningLifecycle lifecycle = WarningLifecycle.read(file);
+        lifecycle.update(1, -1, first, Collections.<FileAnnotation>emptySet(), Collections.<FileAnnotation>emptySet());
+        update(lifecycle, 2, 1, first, second);
+        update(lifecycle, 3, 2, second, third);
+
+        int size = lifecycle.size();
+        Set<FileAnnotation> fixedInFirst = AnnotationDifferencer.getFixedAnnotations(second, first);
+        assertEquals("Wrong number of removed warnings", fixedInFirst.size(), lifecycle.prune(2));
+        assertEquals("Wrong number of warnings", size - fixedInFirst.size(), lifecycle.size());
+        for (FileAnnotation annotation : fixedInFirst) {
+            assertEquals(WRONG_LAST_BUILD, 0, lifecycle.getLastBuild(annotation));
+        }
+        for (FileAnnotation annotation : AnnotationDifferencer.getFixedAnnotations(third, second)) {
+            assertEquals(WRONG_LAST_BUILD, 2, lifecycle.getLastBuild(annotation));
+        }
+    }
+
+    /**
+     * Verifies that recording a build again replaces the warnings that have
+     * been recorded for this build before, even if the index has been
+     * written and read in between.
+     *
+     * @throws IOException
+     *             if the index could not be written
+     */
+    @Test
+    public void testRepeatedUpdate() throws IOException {
+        List<List<FileAnnotation>> history = new WorkloadGenerator(1).withWarnings(200).withChurn(10).createHistory(2);
+        Set<FileAnnotation> first = Sets.newHashSet(history.get(0));
+        Set<FileAnnotation> second = Sets.newHashSet(history.get(1));
+        Set<FileAnnotation> partial = Sets.newHashSet(history.get(1).subList(0, 100));
+
+        WarningLifecycle expected = WarningLifecycle.read(new File(file.getPath() + ".expected"));
+        expected.update(1, -1, first, Collections.<FileAnnotation>emptySet(), Collections.<FileAnnotation>emptySet());
+        update(expected, 2, 1, first, second);
+
+        WarningLifecycle lifecycle = WarningLifecycle.read(file);
+        lifecycle.update(1, -1, partial, Collections.<FileAnnotation>emptySet(), Collections.<FileAnnotation>emptySet());
+        lifecycle.update(1, -1, first, Collections.<FileAnnotation>emptySet(), Collections.<FileAnnotation>emptySet());
+        update(lifecycle, 2, 1, first, partial);
+        lifecycle.save();
+        lifecycle = WarningLifecycle.read(file);
+        update(lifecycle, 2, 1, first, second);
+
+        assertEquals("Wrong number of warnings", expected.size(), lifecycle.size());
+        for (FileAnnotation annotation : Sets.union(first, second)) {
+            assertEquals(WRONG_FIRST_BUILD, expected.getFirstBuild(annotation), lifecycle.getFirstBuild(annotation));
+            assertEquals(WRONG_LAST_BUILD, expected.getLastBuild(annotation), lifecycle.getLastBuild(annotation));
+        }
+    }
+
+    /**
+     * Verifies that a warning that has been fixed and introduced again has
+     * no age in the builds before it has been introduced again.
+     */
+    @Test
+    public void testReintroducedWarning() {
+        Set<FileAnnotation> warning = Collections.<FileAnnotation>singleton(createWarning("message", 10));
+        Set<FileAnnotation> none = Collections.<FileAnnotation>emptySet();
+
+        WarningLifecycle lifecycle = WarningLifecycle.read(file);
+        lifecycle.update(1, -1, warning, none, none);
+        update(lifecycle, 2, 1, warning, none);
+        update(lifecycle, 3, 2, none, warning);
+
+        FileAnnotation annotation = warning.iterator().next();
+        assertEquals(WRONG_FIRST_BUILD, 3, lifecycle.getFirstBuild(annotation));
+        assertEquals("Wrong age", -1, lifecycle.getAge(annotation, 1));
+        assertEquals("Wrong age", 1, lifecycle.getAge(annotation, 4));
+    }
+}
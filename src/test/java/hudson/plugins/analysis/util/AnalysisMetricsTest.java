@@ -0,0 +1,122 @@
+package hudson.plugins.analysis.util;
+
+import static org.junit.Assert.*;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+
+import hudson.plugins.analysis.util.AnalysisMetrics.Timer;
+
+/**
+ * Tests the class {@link AnalysisMetrics}.
+ *
+ * @author Ulli Hafner
+ */
+public class AnalysisMetricsTest {
+    private static final long MILLIS = 1000000;
+
+    /**
+     * Verifies the statistics and histogram of a timer.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testTimer() throws Exception {
+        AnalysisMetrics metrics = new AnalysisMetrics();
+        Timer timer = metrics.getTimer(AnalysisMetrics.LOAD_RESULT);
+        assertSame("Timer not shared", timer, metrics.getTimer(AnalysisMetrics.LOAD_RESULT));
+
+        timer.record(5 * MILLIS);
+        timer.record(50 * MILLIS);
+        timer.record(20000 * MILLIS);
+
+        assertEquals("Wrong count", 3, timer.getCount());
+        assertEquals("Wrong total", 20055, timer.getTotalMillis());
+        assertEquals("Wrong mean", 6685, timer.getMeanMillis());
+        assertEquals("Wrong max", 20000, timer.getMaxMillis());
+        assertArrayEquals("Wrong histogram", new long[] {0, 1, 1, 0, 0, 1}, timer.getHistogram());
+        assertEquals("Wrong number of labels", timer.getHistogram().length, metrics.getBucketLabels().size());
+
+        assertEquals("Wrong attribute", 3L, metrics.getAttribute(AnalysisMetrics.LOAD_RESULT + ".count"));
+        assertEquals("Wrong attribute", 20000L, metrics.getAttribute(AnalysisMetrics.LOAD_RESULT + ".maxMillis"));
+    }
+
+    /**
+     * Verifies that counters are summed up.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testCounters() throws Exception {
+        AnalysisMetrics metrics = new AnalysisMetrics();
+        metrics.count(AnalysisMetrics.BYTES_READ, 100);
+        metrics.count(AnalysisMetrics.BYTES_READ, 20);
+
+        assertEquals("Wrong count", 120, metrics.getCount(AnalysisMetrics.BYTES_READ));
+        assertEquals("Wrong count", 0, metrics.getCount(AnalysisMetrics.PROJECT_CACHE_HITS));
+        assertEquals("Wrong attribute", 120L, metrics.getAttribute(AnalysisMetrics.BYTES_READ));
+        assertEquals("Wrong number of attributes", 2, metrics.getMBeanInfo().getAttributes().length);
+    }
+
+    /**
+     * Verifies that unknown attributes are rejected.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test(expected = AttributeNotFoundException.class)
+    public void testUnknownAttribute() throws Exception {
+        new AnalysisMetrics().getAttribute("unknown.count");
+    }
+
+    /**
+     * Verifies that operations are rejected, since the metrics provide none.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testUnknownOperation() throws Exception {
+        try {
+            new AnalysisMetrics().invoke("reset", new Object[0], new String[0]);
+            fail("Operation accepted");
+        }
+        catch (ReflectionException exception) {
+            assertTrue("Wrong cause", exception.getTargetException() instanceof NoSuchMethodException);
+        }
+    }
+
+    /**
+     * Verifies that resident annotations are counted as long as the owner is
+     * reachable.
+     */
+    @Test
+    public void testResidents() {
+        AnalysisMetrics metrics = new AnalysisMetrics();
+        Object owner = new Object();
+        metrics.addResident(owner, 10);
+        metrics.addResident(new Object(), 5);
+
+        assertTrue("Wrong number of residents", metrics.getResidentAnnotations() >= 10);
+        assertEquals("Wrong number of residents", 10, waitForCollection(metrics, 10));
+        assertEquals("Wrong number of owners", 1, metrics.getNumberOfResidents());
+        assertNotNull("Owner collected", owner);
+    }
+
+    private long waitForCollection(final AnalysisMetrics metrics, final long expected) {
+        for (int i = 0; i < 50 && metrics.getResidentAnnotations() != expected; i++) {
+            System.gc(); // NOPMD
+            try {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return metrics.getResidentAnnotations();
+    }
+}
@@ -0,0 +1,63 @@
+package hudson.plugins.analysis.util;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the class {@link PhaseTimings}.
+ *
+ * @author Ulli Hafner
+ */
+public class PhaseTimingsTest {
+    private static final String PARSING = "Parsing";
+    private static final String COPYING = "Copying";
+
+    /**
+     * Verifies that durations and counters are summed up.
+     */
+    @Test
+    public void testSums() {
+        PhaseTimings timings = new PhaseTimings();
+        assertTrue("Not empty", timings.isEmpty());
+
+        timings.add(PARSING, 10);
+        timings.add(COPYING, 5);
+        timings.add(PARSING, 20);
+        timings.count("Files", 2);
+        timings.count("Files", 3);
+
+        assertEquals("Wrong duration", 30, timings.getDuration(PARSING));
+        assertEquals("Wrong duration", 0, timings.getDuration("Unknown"));
+        assertEquals("Wrong total", 35, timings.getTotalDuration());
+        assertEquals("Wrong count", 5, timings.getCount("Files"));
+
+        List<PhaseTimings.Measurement> phases = timings.getPhases();
+        assertEquals("Wrong number of phases", 2, phases.size());
+        assertEquals("Wrong order", PARSING, phases.get(0).getName());
+        assertEquals("Wrong breakdown", 3, timings.getBreakdown().size());
+
+        PhaseTimings other = new PhaseTimings();
+        other.addAll(timings);
+        other.add(COPYING, 1);
+        assertEquals("Wrong merged duration", 6, other.getDuration(COPYING));
+        assertEquals("Wrong merged count", 5, other.getCount("Files"));
+    }
+
+    /**
+     * Verifies that starting a phase stops the current phase.
+     */
+    @Test
+    public void testStartStop() {
+        PhaseTimings timings = new PhaseTimings();
+        timings.start(PARSING);
+        timings.start(COPYING);
+        timings.stop();
+        timings.stop();
+
+        assertEquals("Wrong number of phases", 2, timings.getPhases().size());
+        assertTrue("Negative duration", timings.getDuration(COPYING) >= 0);
+    }
+}
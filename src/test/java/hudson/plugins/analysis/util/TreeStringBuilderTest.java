@@ -69,6 +69,33 @@ public class TreeStringBuilderTest {
         }
     }
 
+    /**
+     * Directories with thousands of files: all strings share the same prefix
+     * and differ in the last segment only.
+     */
+    @Test
+    public void testWideTree() {
+        TreeStringBuilder x = new TreeStringBuilder();
+
+        List<String> a = new ArrayList<String>();
+        List<TreeString> o = new ArrayList<TreeString>();
+        for (int i = 0; i < 5000; i++) {
+            String s = "/workspace/module/src/main/java/File" + i + ".java";
+            a.add(s);
+            o.add(x.intern(s));
+        }
+        for (int i = 0; i < a.size(); i++) {
+            verify(a.get(i), o.get(i));
+            assertSame(o.get(i), x.intern(a.get(i)));
+        }
+
+        verify("/workspace/module", x.intern("/workspace/module"));
+        verify("/workspace/other", x.intern("/workspace/other"));
+        for (int i = 0; i < a.size(); i++) {
+            verify(a.get(i), o.get(i));
+        }
+    }
+
     private void verify(final String s, final TreeString t) {
         assertEquals(s, t.toString());
     }
@@ -0,0 +1,62 @@
+package hudson.plugins.analysis.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the class {@link TreeStringPool}.
+ *
+ * @author Ulli Hafner
+ */
+public class TreeStringPoolTest {
+    private static final String FILE_NAME = "/workspace/module/src/main/java/Test.java";
+
+    /**
+     * Clears the shared pool.
+     */
+    @After
+    public void clearPool() {
+        TreeStringPool.getInstance().clear();
+    }
+
+    /**
+     * Verifies that equal strings of different builders are mapped to the same instance.
+     */
+    @Test
+    public void testSharedInstances() {
+        TreeStringPool pool = TreeStringPool.getInstance();
+        assertNull("Empty pool", pool.get(FILE_NAME));
+
+        TreeStringBuilder first = new TreeStringBuilder();
+        first.intern("/workspace/module/src/main/java/Other.java");
+        TreeString firstBuild = first.intern(FILE_NAME);
+
+        TreeStringBuilder second = new TreeStringBuilder();
+        TreeString secondBuild = second.intern(FILE_NAME);
+
+        assertSame("First string not pooled", firstBuild, pool.intern(firstBuild));
+        assertSame("Second string not replaced", firstBuild, pool.intern(secondBuild));
+        assertSame("Wrong pooled string", firstBuild, pool.get(FILE_NAME));
+        assertEquals("Wrong size", 1, pool.size());
+    }
+
+    /**
+     * Verifies that strings with the same label but different prefixes are not equal.
+     */
+    @Test
+    public void testEqualsUsesCompleteString() {
+        TreeStringBuilder builder = new TreeStringBuilder();
+        TreeString first = builder.intern("a/Test.java");
+        TreeString second = builder.intern("b/Test.java");
+
+        assertFalse("Different strings are equal", first.equals(second));
+        assertEquals("Same strings are not equal", first, TreeString.of("a/Test.java"));
+
+        TreeStringPool pool = TreeStringPool.getInstance();
+        pool.intern(first);
+        pool.intern(second);
+        assertSame("Wrong pooled string", second, pool.get("b/Test.java"));
+    }
+}
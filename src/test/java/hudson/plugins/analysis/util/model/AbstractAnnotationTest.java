@@ -0,0 +1,125 @@
+package hudson.plugins.analysis.util.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+/**
+ * Tests the class {@link AbstractAnnotation}.
+ *
+ * @author Ulli Hafner
+ */
+public class AbstractAnnotationTest {
+    private static final int NUMBER_OF_THREADS = 16;
+    private static final int ANNOTATIONS_PER_THREAD = 10000;
+
+    /**
+     * Verifies that annotations that are created concurrently by several
+     * parsers get unique keys.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testUniqueKeysForConcurrentParsers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+            for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+                results.add(executor.submit(new Callable<long[]>() {
+                    public long[] call() throws Exception {
+                        start.await();
+                        long[] keys = new long[ANNOTATIONS_PER_THREAD];
+                        for (int i = 0; i < keys.length; i++) {
+                            keys[i] = new Warning(i).getKey();
+                        }
+                        return keys;
+                    }
+                }));
+            }
+            start.countDown();
+
+            Set<Long> keys = new HashSet<Long>();
+            for (Future<long[]> result : results) {
+                for (long key : result.get()) {
+                    assertTrue("Duplicate key " + key, keys.add(key));
+                }
+            }
+            assertEquals("Wrong number of keys", NUMBER_OF_THREADS * ANNOTATIONS_PER_THREAD, keys.size());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies that concurrently created annotations are not lost in a container.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void testNoAnnotationIsOverwrittenInContainer() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            List<Future<List<FileAnnotation>>> results = new ArrayList<Future<List<FileAnnotation>>>();
+            for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+                results.add(executor.submit(new Callable<List<FileAnnotation>>() {
+                    public List<FileAnnotation> call() {
+                        List<FileAnnotation> warnings = new ArrayList<FileAnnotation>();
+                        for (int i = 0; i < ANNOTATIONS_PER_THREAD / 10; i++) {
+                            warnings.add(new Warning(i));
+                        }
+                        return warnings;
+                    }
+                }));
+            }
+
+            DefaultAnnotationContainer container = new DefaultAnnotationContainer();
+            for (Future<List<FileAnnotation>> result : results) {
+                container.addAnnotations(result.get());
+            }
+            assertEquals("Wrong number of annotations", NUMBER_OF_THREADS * ANNOTATIONS_PER_THREAD / 10,
+                    container.getNumberOfAnnotations());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Concrete warning for the test.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates a new instance of <code>Warning</code>.
+         *
+         * @param line
+         *            the line of the warning
+         */
+        Warning(final int line) {
+            super(Priority.NORMAL, "message", line, line, "category", "type");
+
+            setFileName("file");
+        }
+
+        /** {@inheritDoc} */
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package hudson.plugins.analysis.util.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import hudson.plugins.analysis.workload.WorkloadGenerator;
+
+/**
+ * Tests the classes {@link AnnotationQuery} and {@link AnnotationIndex}.
+ *
+ * @author Ulli Hafner
+ */
+public class AnnotationQueryTest {
+    private static final String WRONG_RESULT = "Wrong result";
+
+    private final WorkloadGenerator generator = new WorkloadGenerator(1).withWarnings(500).withModules(3);
+    private final List<FileAnnotation> warnings = generator.createWarnings();
+    private final AnnotationIndex index = new AnnotationIndex(warnings);
+    private final List<FileAnnotation> fixed = new WorkloadGenerator(2).withWarnings(50)
+            .withWorkspace(new File("fixed")).createWarnings();
+
+    /**
+     * Verifies that the operators are evaluated with the expected precedence.
+     */
+    @Test
+    public void testOperators() {
+        String module = generator.getModuleName(0);
+        List<FileAnnotation> expected = Lists.newArrayList();
+        for (FileAnnotation warning : warnings) {
+            boolean isModule = module.equals(warning.getModuleName());
+            boolean isHigh = warning.getPriority() == Priority.HIGH;
+            boolean isLow = warning.getPriority() == Priority.LOW;
+            if (isHigh && !isModule || isLow) {
+                expected.add(warning);
+            }
+        }
+        assertFalse("No warnings selected", expected.isEmpty());
+
+        assertEquals(WRONG_RESULT, expected,
+                select("priority:HIGH AND NOT module:\"" + module + "\" OR priority:low"));
+        assertEquals(WRONG_RESULT, expected,
+                select("(priority:high NOT module:\"" + module + "\") or (priority:LOW)"));
+    }
+
+    /**
+     * Verifies that the empty query matches all warnings and unknown values
+     * none.
+     */
+    @Test
+    public void testAllAndNone() {
+        assertEquals(WRONG_RESULT, warnings, select(""));
+        assertEquals(WRONG_RESULT, warnings, select("NOT module:unknown"));
+        assertTrue(WRONG_RESULT, select("module:unknown").isEmpty());
+    }
+
+    /**
+     * Verifies that the new warnings are selected with the state
+     * <code>new</code>.
+     */
+    @Test
+    public void testNewState() {
+        AnnotationIndex stateIndex = index.withState(warnings.subList(0, 10), fixed);
+
+        AnnotationQuery query = AnnotationQuery.parse("state:new");
+        assertTrue("State not used", query.uses(AnnotationIndex.STATE));
+        assertFalse("Module used", query.uses(AnnotationIndex.MODULE));
+        assertEquals(WRONG_RESULT, warnings.subList(0, 10), stateIndex.select(query));
+        assertEquals(WRONG_RESULT, warnings.subList(0, 10), stateIndex.select(AnnotationQuery.parse("state:NEW")));
+    }
+
+    /**
+     * Verifies that the fixed warnings, which are not part of the indexed
+     * warnings, are selected with the state <code>fixed</code>.
+     */
+    @Test
+    public void testFixedState() {
+        AnnotationIndex stateIndex = index.withState(warnings.subList(0, 10), fixed);
+
+        assertEquals(WRONG_RESULT, fixed, stateIndex.select(AnnotationQuery.parse("state:fixed")));
+        assertTrue(WRONG_RESULT, index.select(AnnotationQuery.parse("state:fixed")).isEmpty());
+
+        List<FileAnnotation> all = Lists.newArrayList(warnings);
+        all.addAll(fixed);
+        assertEquals(WRONG_RESULT, all, stateIndex.select(AnnotationQuery.parse("state:new OR NOT state:new")));
+
+        List<FileAnnotation> highFixed = Lists.newArrayList();
+        for (FileAnnotation warning : fixed) {
+            if (warning.getPriority() == Priority.HIGH) {
+                highFixed.add(warning);
+            }
+        }
+        assertFalse("No warnings selected", highFixed.isEmpty());
+        assertEquals(WRONG_RESULT, highFixed, stateIndex.select(AnnotationQuery.parse("state:fixed AND priority:high")));
+    }
+
+    /**
+     * Verifies that the file dimension matches the absolute and the short
+     * file name.
+     */
+    @Test
+    public void testFileNames() {
+        FileAnnotation first = warnings.get(0);
+        List<FileAnnotation> sameFile = Lists.newArrayList();
+        List<FileAnnotation> sameShortName = Lists.newArrayList();
+        for (FileAnnotation warning : warnings) {
+            if (first.getFileName().equals(warning.getFileName())) {
+                sameFile.add(warning);
+            }
+            if (first.getShortFileName().equals(warning.getShortFileName())) {
+                sameShortName.add(warning);
+            }
+        }
+
+        assertEquals(WRONG_RESULT, sameFile, select("file:\"" + first.getFileName() + "\""));
+        assertEquals(WRONG_RESULT, sameShortName, select("file:\"" + first.getShortFileName() + "\""));
+    }
+
+    /**
+     * Verifies that invalid queries are rejected.
+     */
+    @Test
+    public void testInvalidQueries() {
+        String[] invalid = {"module", "unknown:value", "(priority:high", "priority:high)", "NOT",
+                "priority:high AND", "module:\"open"};
+        for (String query : invalid) {
+            try {
+                AnnotationQuery.parse(query);
+                fail("Query accepted: " + query);
+            }
+            catch (IllegalArgumentException exception) {
+                assertNotNull("No message", exception.getMessage());
+            }
+        }
+    }
+
+    private List<FileAnnotation> select(final String query) {
+        return index.select(AnnotationQuery.parse(query));
+    }
+}
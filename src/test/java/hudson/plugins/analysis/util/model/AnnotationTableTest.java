@@ -0,0 +1,232 @@
+package hudson.plugins.analysis.util.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import hudson.plugins.analysis.core.AnnotationDifferencer;
+
+/**
+ * Tests the class {@link AnnotationTable}.
+ *
+ * @author Ulli Hafner
+ */
+public class AnnotationTableTest {
+    private static final String MODULE_A = "module-a";
+    private static final String MODULE_B = "module-b";
+
+    /**
+     * Verifies that the flyweights provide the values of the original annotations.
+     */
+    @Test
+    public void testFlyweights() {
+        Warning warning = new Warning(Priority.HIGH, MODULE_A, "Test.java", 10, 1L);
+        warning.setOrigin("origin");
+        warning.setPackageName("edu.hm");
+
+        AnnotationTable table = new AnnotationTable();
+        int row = table.addAnnotation(warning);
+
+        FileAnnotation flyweight = table.getAnnotationAt(row);
+        assertEquals("Wrong key", warning.getKey(), flyweight.getKey());
+        assertSame("Wrong priority", Priority.HIGH, flyweight.getPriority());
+        assertEquals("Wrong message", warning.getMessage(), flyweight.getMessage());
+        assertEquals("Wrong file", warning.getFileName(), flyweight.getFileName());
+        assertEquals("Wrong module", MODULE_A, flyweight.getModuleName());
+        assertEquals("Wrong package", "edu.hm", flyweight.getPackageName());
+        assertEquals("Wrong link", warning.getLinkName(), flyweight.getLinkName());
+        assertEquals("Wrong origin", "origin", flyweight.getOrigin());
+        assertEquals("Wrong line", 10, flyweight.getPrimaryLineNumber());
+        assertEquals("Wrong ranges", warning.getLineRanges().iterator().next(), flyweight.getLineRanges().iterator().next());
+        assertEquals("Wrong hash", 1L, flyweight.getContextHashCode());
+        assertEquals("Wrong lookup by key", row, table.findRow(warning.getKey()));
+
+        flyweight.setModuleName(MODULE_B);
+        assertEquals("Module not changed", MODULE_B, table.getAnnotation(warning.getKey()).getModuleName());
+    }
+
+    /**
+     * Verifies the counting and grouping.
+     */
+    @Test
+    public void testCountsAndGroups() {
+        List<FileAnnotation> warnings = new ArrayList<FileAnnotation>();
+        warnings.add(new Warning(Priority.HIGH, MODULE_A, "A.java", 1, 1));
+        warnings.add(new Warning(Priority.HIGH, MODULE_A, "A.java", 2, 2));
+        warnings.add(new Warning(Priority.NORMAL, MODULE_B, "B.java", 3, 3));
+        warnings.add(new Warning(Priority.LOW, MODULE_B, "C.java", 4, 4));
+
+        AnnotationTable table = new AnnotationTable(warnings);
+        assertEquals("Wrong number", 4, table.getNumberOfAnnotations());
+        assertEquals("Wrong high", 2, table.getNumberOfAnnotations(Priority.HIGH));
+        assertEquals("Wrong normal", 1, table.getNumberOfAnnotations(Priority.NORMAL));
+        assertEquals("Wrong low", 1, table.getNumberOfAnnotations("low"));
+        assertEquals("Wrong set", 2, table.getAnnotations(Priority.HIGH).size());
+
+        Map<String, Integer> modules = table.getModuleHistogram();
+        assertEquals("Wrong modules", 2, modules.size());
+        assertEquals("Wrong module A", Integer.valueOf(2), modules.get(MODULE_A));
+        assertEquals("Wrong module B", Integer.valueOf(2), modules.get(MODULE_B));
+        assertEquals("Wrong files", 2, table.getFileRows("A.java").length);
+        assertEquals("Wrong unknown", 0, table.getModuleRows("unknown").length);
+        assertEquals("Wrong strings", 9, table.getNumberOfStrings());
+    }
+
+    /**
+     * Verifies that the differences are the same as computed by {@link AnnotationDifferencer}.
+     */
+    @Test
+    public void testDifference() {
+        List<FileAnnotation> previous = new ArrayList<FileAnnotation>();
+        previous.add(new Warning(Priority.HIGH, MODULE_A, "A.java", 1, 1));
+        previous.add(new Warning(Priority.HIGH, MODULE_A, "A.java", 2, 2));
+        previous.add(new Warning(Priority.NORMAL, MODULE_B, "B.java", 3, 3));
+
+        List<FileAnnotation> current = new ArrayList<FileAnnotation>();
+        current.add(new Warning(Priority.HIGH, MODULE_A, "A.java", 1, 1));
+        current.add(new Warning(Priority.HIGH, MODULE_A, "A.java", 5, 2)); // moved, same context
+        current.add(new Warning(Priority.LOW, MODULE_B, "C.java", 4, 4)); // new
+
+        AnnotationTable currentTable = new AnnotationTable(current);
+        AnnotationTable previousTable = new AnnotationTable(previous);
+
+        Set<FileAnnotation> newWarnings = currentTable.getAnnotationsAt(currentTable.getNewRows(previousTable));
+        assertEquals("Wrong new", 1, newWarnings.size());
+        assertEquals("Wrong new", "C.java", newWarnings.iterator().next().getFileName());
+
+        Set<FileAnnotation> fixedWarnings = previousTable.getAnnotationsAt(currentTable.getFixedRows(previousTable));
+        assertEquals("Wrong fixed", 1, fixedWarnings.size());
+        assertEquals("Wrong fixed", "B.java", fixedWarnings.iterator().next().getFileName());
+
+        assertEquals("Different from differencer", AnnotationDifferencer.getNewAnnotations(
+                currentTable.getAnnotations(), previousTable.getAnnotations()).size(), newWarnings.size());
+    }
+
+    /**
+     * Verifies that annotations that differ only in properties that are not
+     * stored in the table are not merged.
+     */
+    @Test
+    public void testRowsAreNotMerged() {
+        Warning first = new Warning(Priority.HIGH, MODULE_A, "A.java", 1, 1);
+        first.setColumnPosition(1, 5);
+        Warning second = new Warning(Priority.HIGH, MODULE_A, "A.java", 1, 1);
+        second.setColumnPosition(10, 15);
+        List<FileAnnotation> warnings = new ArrayList<FileAnnotation>();
+        warnings.add(first);
+        warnings.add(second);
+
+        AnnotationTable table = new AnnotationTable(warnings);
+        table.moveOffHeap();
+
+        assertEquals("Rows merged", 2, table.getAnnotations().size());
+        assertEquals("Same row not equal", table.getAnnotationAt(0), table.getAnnotationAt(0));
+        assertFalse("Different rows equal", table.getAnnotationAt(0).equals(table.getAnnotationAt(1)));
+        assertTrue("Wrong order", table.getAnnotationAt(0).compareTo(table.getAnnotationAt(1)) < 0);
+        assertTrue("Wrong order", table.getAnnotationAt(1).compareTo(table.getAnnotationAt(0)) > 0);
+    }
+
+    /**
+     * Verifies that rows are found by their key after further annotations
+     * have been added.
+     */
+    @Test
+    public void testFindRow() {
+        AnnotationTable table = new AnnotationTable();
+        List<Warning> warnings = new ArrayList<Warning>();
+        for (int line = 1; line <= 100; line++) {
+            Warning warning = new Warning(Priority.HIGH, MODULE_A, "A.java", line, line);
+            warnings.add(warning);
+            table.addAnnotation(warning);
+            assertEquals("Wrong row of added annotation", line - 1, table.findRow(warning.getKey()));
+        }
+        for (int row = 0; row < warnings.size(); row++) {
+            assertEquals("Wrong row", row, table.findRow(warnings.get(row).getKey()));
+        }
+        assertEquals("Unknown key found", -1, table.findRow(-1));
+    }
+
+    /**
+     * Verifies that the rows are ordered by their fields and that the order
+     * is consistent with equals.
+     */
+    @Test
+    public void testOrder() {
+        List<FileAnnotation> warnings = new ArrayList<FileAnnotation>();
+        warnings.add(new Warning(Priority.HIGH, MODULE_A, "B.java", 1, 1));
+        warnings.add(new Warning(Priority.HIGH, MODULE_A, "A.java", 2, 2));
+        AnnotationTable table = new AnnotationTable(warnings);
+        AnnotationTable copy = new AnnotationTable(warnings);
+
+        assertTrue("Wrong order", table.getAnnotationAt(1).compareTo(table.getAnnotationAt(0)) < 0);
+        assertTrue("Wrong order", table.getAnnotationAt(0).compareTo(table.getAnnotationAt(1)) > 0);
+
+        FileAnnotation row = table.getAnnotationAt(0);
+        FileAnnotation copied = copy.getAnnotationAt(0);
+        assertFalse("Rows of different tables equal", row.equals(copied));
+        assertTrue("Order not consistent with equals", row.compareTo(copied) != 0);
+        assertEquals("Order not antisymmetric", -Integer.signum(row.compareTo(copied)), Integer.signum(copied.compareTo(row)));
+        assertEquals("Same row not equal", 0, row.compareTo(table.getAnnotationAt(0)));
+    }
+
+    /**
+     * Verifies that a table provides the same values if its columns are stored off heap.
+     */
+    @Test
+    public void testOffHeap() {
+        List<FileAnnotation> warnings = new ArrayList<FileAnnotation>();
+        for (int i = 0; i < 100; i++) {
+            warnings.add(new Warning(Priority.values()[i % 3], i % 2 == 0 ? MODULE_A : MODULE_B, "File" + i + ".java", i, i));
+        }
+        AnnotationTable table = new AnnotationTable(warnings);
+        long heapUsage = table.getHeapUsage();
+        assertFalse("Table is off heap", table.isOffHeap());
+        assertEquals("Wrong off heap usage", 0, table.getOffHeapUsage());
+
+        table.moveOffHeap();
+        assertTrue("Table is on heap", table.isOffHeap());
+        assertTrue("Heap usage not reduced", table.getHeapUsage() < heapUsage);
+        assertEquals("Wrong off heap usage", 100 * TableColumns.DirectColumns.ROW_SIZE, table.getOffHeapUsage());
+
+        for (int row = 0; row < warnings.size(); row++) {
+            FileAnnotation expected = warnings.get(row);
+            FileAnnotation actual = table.getAnnotationAt(row);
+            assertEquals("Wrong key", expected.getKey(), actual.getKey());
+            assertSame("Wrong priority", expected.getPriority(), actual.getPriority());
+            assertEquals("Wrong file", expected.getFileName(), actual.getFileName());
+            assertEquals("Wrong line", expected.getPrimaryLineNumber(), actual.getPrimaryLineNumber());
+            assertEquals("Wrong hash", expected.getContextHashCode(), actual.getContextHashCode());
+        }
+        assertEquals("Wrong modules", Integer.valueOf(50), table.getModuleHistogram().get(MODULE_A));
+
+        table.moveOnHeap();
+        assertFalse("Table is off heap", table.isOffHeap());
+        assertEquals("Wrong file after move", "File42.java", table.getAnnotationAt(42).getFileName());
+    }
+
+    /**
+     * Concrete warning for the test.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 1L;
+
+        Warning(final Priority priority, final String module, final String fileName, final int line, final long contextHashCode) {
+            super(priority, "message", line, line, "category", "type");
+
+            setModuleName(module);
+            setFileName(fileName);
+            setContextHashCode(contextHashCode);
+        }
+
+        /** {@inheritDoc} */
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package hudson.plugins.analysis.workload;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Warning that is created by the {@link WorkloadGenerator}.
+ *
+ * @author Ulli Hafner
+ */
+public class GeneratedWarning extends AbstractAnnotation {
+    private static final long serialVersionUID = -3413592453853768765L;
+
+    /**
+     * Creates a new instance of {@link GeneratedWarning}.
+     *
+     * @param priority
+     *            the priority
+     * @param message
+     *            the message of the warning
+     * @param start
+     *            the first line of the line range
+     * @param end
+     *            the last line of the line range
+     * @param category
+     *            the category of the annotation
+     * @param type
+     *            the type of the annotation
+     */
+    public GeneratedWarning(final Priority priority, final String message, final int start, final int end,
+            final String category, final String type) {
+        super(priority, message, start, end, category, type);
+    }
+
+    /**
+     * Creates a new instance of {@link GeneratedWarning} that is a copy of the
+     * specified warning. The copy gets a new key.
+     *
+     * @param copy
+     *            the warning to copy
+     */
+    public GeneratedWarning(final GeneratedWarning copy) {
+        super(copy);
+    }
+
+    /** {@inheritDoc} */
+    public String getToolTip() {
+        return StringUtils.EMPTY;
+    }
+}
@@ -0,0 +1,440 @@
+package hudson.plugins.analysis.workload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import hudson.FilePath;
+
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Generates synthetic workloads for benchmarks and scaling tests: sets of
+ * warnings, {@link ParserResult}s, workspaces with module descriptors and
+ * source files, and histories of several builds. All values are derived from
+ * a seed, so the same configuration always produces the same workload.
+ * <p>
+ * The generator is configured with the <code>with</code> methods, e.g.
+ *
+ * <pre>
+ * new WorkloadGenerator(1).withWarnings(10000).withModules(100).withFileSkew(1.2).createWarnings();
+ * </pre>
+ *
+ * The modules of a workspace alternate between Maven (pom.xml), Ant
+ * (build.xml) and OSGi (META-INF/MANIFEST.MF) descriptors. The module names
+ * of the warnings match the names in these descriptors.
+ *
+ * @author Ulli Hafner
+ */
+public class WorkloadGenerator {
+    private static final String DEFAULT_ROOT = "/var/hudson/workspace/job";
+    private static final int NUMBER_OF_TYPES = 20;
+    private static final int NUMBER_OF_MESSAGES = 100;
+    private static final int NUMBER_OF_PACKAGES = 7;
+    private static final int MAX_RANGE = 3;
+    private static final int PERCENT = 100;
+
+    private final long seed;
+    private int numberOfWarnings = 1000;
+    private int numberOfModules = 10;
+    private int filesPerModule = 20;
+    private int linesPerFile = 500;
+    private double fileSkew;
+    private int churn = 5;
+    private final Map<String, Integer> categories = Maps.newLinkedHashMap();
+    private final Map<Priority, Integer> priorities = Maps.newLinkedHashMap();
+    private File workspace;
+
+    /** Cumulative distribution of the warnings over the files, created lazily. */
+    private double[] fileDistribution;
+
+    /**
+     * Creates a new instance of {@link WorkloadGenerator}.
+     *
+     * @param seed
+     *            the seed of all random values
+     */
+    public WorkloadGenerator(final long seed) {
+        this.seed = seed;
+
+        categories.put("Style", 50);
+        categories.put("Correctness", 20);
+        categories.put("Naming", 15);
+        categories.put("Performance", 10);
+        categories.put("Security", 5);
+
+        priorities.put(Priority.HIGH, 10);
+        priorities.put(Priority.NORMAL, 60);
+        priorities.put(Priority.LOW, 30);
+    }
+
+    /**
+     * Sets the number of warnings of a build.
+     *
+     * @param warnings
+     *            the number of warnings
+     * @return this generator
+     */
+    public WorkloadGenerator withWarnings(final int warnings) {
+        numberOfWarnings = warnings;
+        return this;
+    }
+
+    /**
+     * Sets the number of modules.
+     *
+     * @param modules
+     *            the number of modules
+     * @return this generator
+     */
+    public WorkloadGenerator withModules(final int modules) {
+        numberOfModules = modules;
+        fileDistribution = null; // NOPMD
+        return this;
+    }
+
+    /**
+     * Sets the number of source files per module.
+     *
+     * @param files
+     *            the number of files per module
+     * @return this generator
+     */
+    public WorkloadGenerator withFilesPerModule(final int files) {
+        filesPerModule = files;
+        fileDistribution = null; // NOPMD
+        return this;
+    }
+
+    /**
+     * Sets the number of lines of each source file.
+     *
+     * @param lines
+     *            the number of lines, must be greater than 3
+     * @return this generator
+     */
+    public WorkloadGenerator withLinesPerFile(final int lines) {
+        linesPerFile = lines;
+        return this;
+    }
+
+    /**
+     * Sets the skew of the distribution of the warnings over the files. The
+     * number of warnings of the file with rank <i>k</i> is proportional to
+     * 1/<i>k</i><sup>skew</sup> (Zipf distribution). A skew of 0 distributes the
+     * warnings uniformly.
+     *
+     * @param skew
+     *            the skew
+     * @return this generator
+     */
+    public WorkloadGenerator withFileSkew(final double skew) {
+        fileSkew = skew;
+        fileDistribution = null; // NOPMD
+        return this;
+    }
+
+    /**
+     * Sets the relative frequencies of the categories. Replaces the default
+     * categories.
+     *
+     * @param weights
+     *            the weight of each category
+     * @return this generator
+     */
+    public WorkloadGenerator withCategories(final Map<String, Integer> weights) {
+        categories.clear();
+        categories.putAll(weights);
+        return this;
+    }
+
+    /**
+     * Sets the relative frequencies of the priorities.
+     *
+     * @param high
+     *            weight of high priority warnings
+     * @param normal
+     *            weight of normal priority warnings
+     * @param low
+     *            weight of low priority warnings
+     * @return this generator
+     */
+    public WorkloadGenerator withPriorities(final int high, final int normal, final int low) {
+        priorities.put(Priority.HIGH, high);
+        priorities.put(Priority.NORMAL, normal);
+        priorities.put(Priority.LOW, low);
+        return this;
+    }
+
+    /**
+     * Sets the percentage of warnings that are fixed and replaced by new
+     * warnings from one build to the next.
+     *
+     * @param percentage
+     *            the churn in percent
+     * @return this generator
+     */
+    public WorkloadGenerator withChurn(final int percentage) {
+        churn = percentage;
+        return this;
+    }
+
+    /**
+     * Sets the folder of the workspace. The file names of the warnings will be
+     * located in this folder. Use {@link #createWorkspace()} to create the files
+     * of the workspace.
+     *
+     * @param folder
+     *            the workspace folder
+     * @return this generator
+     */
+    public WorkloadGenerator withWorkspace(final File folder) {
+        workspace = folder;
+        return this;
+    }
+
+    /**
+     * Returns the total number of source files.
+     *
+     * @return the number of source files
+     */
+    public int getNumberOfFiles() {
+        return numberOfModules * filesPerModule;
+    }
+
+    /**
+     * Returns the name of the specified module.
+     *
+     * @param module
+     *            the index of the module
+     * @return the module name
+     */
+    public String getModuleName(final int module) {
+        return "Module " + module;
+    }
+
+    /**
+     * Returns the names of all modules.
+     *
+     * @return the module names
+     */
+    public List<String> getModuleNames() {
+        List<String> names = Lists.newArrayList();
+        for (int module = 0; module < numberOfModules; module++) {
+            names.add(getModuleName(module));
+        }
+        return names;
+    }
+
+    private String getRoot() {
+        if (workspace == null) {
+            return DEFAULT_ROOT;
+        }
+        return workspace.getAbsolutePath().replace('\\', '/');
+    }
+
+    private String getModuleFolder(final int module) {
+        return getRoot() + "/module-" + module;
+    }
+
+    private String getPackageName(final int file) {
+        return "edu.hm.module" + getModule(file) + ".pkg" + file % NUMBER_OF_PACKAGES;
+    }
+
+    private int getModule(final int file) {
+        return file / filesPerModule;
+    }
+
+    /**
+     * Returns the absolute path of the specified source file.
+     *
+     * @param file
+     *            the index of the file
+     * @return the file name
+     */
+    public String getFileName(final int file) {
+        return getModuleFolder(getModule(file)) + "/src/main/java/" + getPackageName(file).replace('.', '/')
+                + "/Class" + file + ".java";
+    }
+
+    /**
+     * Creates the warnings of a build.
+     *
+     * @return the warnings
+     */
+    public List<FileAnnotation> createWarnings() {
+        Random random = new Random(seed);
+        List<FileAnnotation> warnings = Lists.newArrayListWithCapacity(numberOfWarnings);
+        for (int i = 0; i < numberOfWarnings; i++) {
+            warnings.add(createWarning(random));
+        }
+        return warnings;
+    }
+
+    /**
+     * Creates a {@link ParserResult} that contains the warnings of a build and
+     * all modules.
+     *
+     * @return the parser result
+     */
+    public ParserResult createParserResult() {
+        ParserResult result;
+        if (workspace == null) {
+            result = new ParserResult();
+        }
+        else {
+            result = new ParserResult(new FilePath(workspace));
+        }
+        result.addAnnotations(createWarnings());
+        result.addModules(getModuleNames());
+        return result;
+    }
+
+    /**
+     * Creates the warnings of a sequence of builds. The first build contains
+     * the warnings of {@link #createWarnings()}. In each following build the
+     * configured percentage of warnings of the previous build is fixed and the
+     * same number of new warnings is added. All other warnings are copies of
+     * the warnings of the previous build.
+     *
+     * @param builds
+     *            the number of builds
+     * @return the warnings of each build, the oldest build first
+     */
+    public List<List<FileAnnotation>> createHistory(final int builds) {
+        List<List<FileAnnotation>> history = Lists.newArrayList();
+        List<FileAnnotation> previous = createWarnings();
+        history.add(previous);
+        for (int build = 1; build < builds; build++) {
+            Random random = new Random(seed + build);
+            List<FileAnnotation> current = Lists.newArrayListWithCapacity(previous.size());
+            for (FileAnnotation warning : previous) {
+                current.add(new GeneratedWarning((GeneratedWarning)warning));
+            }
+            Collections.shuffle(current, random);
+            int changes = current.size() * churn / PERCENT;
+            for (int i = 0; i < changes; i++) {
+                current.set(i, createWarning(random));
+            }
+            history.add(current);
+            previous = current;
+        }
+        return history;
+    }
+
+    /**
+     * Creates the files of the workspace: a module descriptor for each module
+     * and all source files.
+     *
+     * @throws IOException
+     *             if the files could not be written
+     * @throws IllegalStateException
+     *             if no workspace has been set
+     */
+    public void createWorkspace() throws IOException {
+        if (workspace == null) {
+            throw new IllegalStateException("No workspace folder set");
+        }
+        for (int module = 0; module < numberOfModules; module++) {
+            createModuleDescriptor(module);
+        }
+        for (int file = 0; file < getNumberOfFiles(); file++) {
+            createSourceFile(file);
+        }
+    }
+
+    private void createModuleDescriptor(final int module) throws IOException {
+        File folder = new File(getModuleFolder(module));
+        String name = getModuleName(module);
+        switch (module % 3) {
+            case 0:
+                FileUtils.writeStringToFile(new File(folder, "pom.xml"),
+                        "<project><artifactId>module-" + module + "</artifactId><name>" + name + "</name></project>");
+                break;
+            case 1:
+                FileUtils.writeStringToFile(new File(folder, "build.xml"),
+                        "<project name=\"" + name + "\" default=\"compile\"/>");
+                break;
+            default:
+                FileUtils.writeStringToFile(new File(folder, "META-INF/MANIFEST.MF"),
+                        "Manifest-Version: 1.0\nBundle-Name: " + name + "\nBundle-SymbolicName: module" + module + "\n");
+                break;
+        }
+    }
+
+    private void createSourceFile(final int file) throws IOException {
+        List<String> lines = Lists.newArrayListWithCapacity(linesPerFile);
+        lines.add("package " + getPackageName(file) + ";");
+        lines.add("public class Class" + file + " {");
+        for (int line = 2; line < linesPerFile - 1; line++) {
+            lines.add("    private int field" + line + " = compute(" + line + ", " + file + "); // line " + line);
+        }
+        lines.add("}");
+        FileUtils.writeLines(new File(getFileName(file)), lines);
+    }
+
+    private FileAnnotation createWarning(final Random random) {
+        int file = selectFile(random);
+        int line = 3 + random.nextInt(Math.max(1, linesPerFile - MAX_RANGE - 3));
+        String category = select(categories, random);
+
+        GeneratedWarning warning = new GeneratedWarning(select(priorities, random),
+                category + " issue number " + random.nextInt(NUMBER_OF_MESSAGES) + " in expression",
+                line, line + random.nextInt(MAX_RANGE), category, category + "Check" + random.nextInt(NUMBER_OF_TYPES));
+        warning.setModuleName(getModuleName(getModule(file)));
+        warning.setPackageName(getPackageName(file));
+        warning.setFileName(getFileName(file));
+        warning.setContextHashCode(random.nextLong());
+        return warning;
+    }
+
+    private <T> T select(final Map<T, Integer> weights, final Random random) {
+        int total = 0;
+        for (Integer weight : weights.values()) {
+            total += weight;
+        }
+        int value = random.nextInt(Math.max(1, total));
+        for (Map.Entry<T, Integer> entry : weights.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        return weights.keySet().iterator().next();
+    }
+
+    private int selectFile(final Random random) {
+        if (fileDistribution == null) {
+            fileDistribution = createFileDistribution();
+        }
+        int index = Arrays.binarySearch(fileDistribution, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, fileDistribution.length - 1);
+    }
+
+    private double[] createFileDistribution() {
+        double[] distribution = new double[getNumberOfFiles()];
+        double sum = 0;
+        for (int rank = 0; rank < distribution.length; rank++) {
+            sum += 1 / Math.pow(rank + 1, fileSkew);
+            distribution[rank] = sum;
+        }
+        for (int rank = 0; rank < distribution.length; rank++) {
+            distribution[rank] /= sum;
+        }
+        return distribution;
+    }
+}
@@ -0,0 +1,126 @@
+package hudson.plugins.analysis.workload;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import hudson.plugins.analysis.core.AnnotationDifferencer;
+import hudson.plugins.analysis.core.ParserResult;
+import hudson.plugins.analysis.util.ModuleDetector;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Tests the class {@link WorkloadGenerator}.
+ *
+ * @author Ulli Hafner
+ */
+public class WorkloadGeneratorTest {
+    private static final int WARNINGS = 2000;
+
+    /**
+     * Verifies that the same seed creates the same warnings.
+     */
+    @Test
+    public void testDeterministic() {
+        List<FileAnnotation> first = new WorkloadGenerator(1).withWarnings(WARNINGS).createWarnings();
+        List<FileAnnotation> second = new WorkloadGenerator(1).withWarnings(WARNINGS).createWarnings();
+        List<FileAnnotation> other = new WorkloadGenerator(2).withWarnings(WARNINGS).createWarnings();
+
+        assertEquals("Wrong number of warnings", WARNINGS, first.size());
+        assertEquals("Different warnings", first, second);
+        for (int i = 0; i < WARNINGS; i++) {
+            assertEquals("Different hash code", first.get(i).getContextHashCode(), second.get(i).getContextHashCode());
+        }
+        assertFalse("Same warnings for different seed", first.equals(other));
+    }
+
+    /**
+     * Verifies that the warnings are distributed according to the skew and
+     * the weights of the categories.
+     */
+    @Test
+    public void testDistribution() {
+        Map<String, Integer> categories = Maps.newHashMap();
+        categories.put("Frequent", 9);
+        categories.put("Rare", 1);
+        WorkloadGenerator generator = new WorkloadGenerator(1).withWarnings(WARNINGS)
+                .withModules(5).withFilesPerModule(20).withFileSkew(2).withCategories(categories);
+
+        int first = 0;
+        int last = 0;
+        int rare = 0;
+        for (FileAnnotation warning : generator.createWarnings()) {
+            if (warning.getFileName().equals(generator.getFileName(0))) {
+                first++;
+            }
+            if (warning.getFileName().equals(generator.getFileName(generator.getNumberOfFiles() - 1))) {
+                last++;
+            }
+            if ("Rare".equals(warning.getCategory())) {
+                rare++;
+            }
+        }
+        assertTrue("First file not skewed: " + first, first > WARNINGS / 2);
+        assertTrue("Last file not skewed: " + last, last < first / 100);
+        assertTrue("Wrong category distribution: " + rare, rare > WARNINGS / 20 && rare < WARNINGS / 5);
+    }
+
+    /**
+     * Verifies that the configured percentage of warnings changes between two
+     * builds.
+     */
+    @Test
+    public void testHistory() {
+        List<List<FileAnnotation>> history = new WorkloadGenerator(1).withWarnings(WARNINGS).withChurn(10).createHistory(3);
+
+        assertEquals("Wrong number of builds", 3, history.size());
+        for (int build = 1; build < history.size(); build++) {
+            Set<FileAnnotation> previous = Sets.newHashSet(history.get(build - 1));
+            Set<FileAnnotation> current = Sets.newHashSet(history.get(build));
+
+            assertEquals("Wrong number of warnings", WARNINGS, history.get(build).size());
+            int fixed = AnnotationDifferencer.getFixedAnnotations(current, previous).size();
+            assertTrue("Wrong number of fixed warnings: " + fixed, fixed > WARNINGS / 20 && fixed <= WARNINGS / 10);
+        }
+    }
+
+    /**
+     * Verifies that the created workspace contains the source files and the
+     * module descriptors that match the warnings.
+     *
+     * @throws IOException
+     *             if the workspace could not be created
+     */
+    @Test
+    public void testWorkspace() throws IOException {
+        File workspace = File.createTempFile("workspace", "");
+        assertTrue("Can't delete temporary file", workspace.delete());
+        try {
+            WorkloadGenerator generator = new WorkloadGenerator(1).withWorkspace(workspace)
+                    .withWarnings(100).withModules(6).withFilesPerModule(2).withLinesPerFile(50);
+            generator.createWorkspace();
+
+            ParserResult result = generator.createParserResult();
+            assertEquals("Wrong number of modules", 6, result.getNumberOfModules());
+
+            ModuleDetector detector = new ModuleDetector(workspace);
+            for (FileAnnotation warning : result.getAnnotations()) {
+                assertTrue("File not created: " + warning.getFileName(), new File(warning.getFileName()).exists());
+                assertEquals("Wrong module", warning.getModuleName(), detector.guessModuleName(warning.getFileName()));
+            }
+        }
+        finally {
+            FileUtils.deleteDirectory(workspace);
+        }
+    }
+}